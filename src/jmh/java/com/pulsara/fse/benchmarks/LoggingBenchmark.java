@@ -0,0 +1,112 @@
+package com.pulsara.fse.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+
+/**
+ * Benchmarks of the cost of a log line on the request thread under the logging
+ * configurations of logback-spring.xml, writing to a discarding stream so that
+ * the console itself is not measured:
+ * <ul>
+ * <li>sync_caller_data: the development configuration, a synchronous appender
+ * with the %M:%L pattern that walks the stack of every log line.</li>
+ * <li>sync: a synchronous appender without caller data.</li>
+ * <li>async: the production configuration, an asynchronous appender with a
+ * bounded queue that never blocks. Lines the writer thread cannot keep up with
+ * are dropped, so this measures the cost paid by the request thread.</li>
+ * <li>disabled: a debug line below the logger level.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoggingBenchmark {
+
+    private static final String DEVELOPMENT_PATTERN = "%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %M:%L - %msg%n";
+    private static final String PRODUCTION_PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} [%thread] %-5level %logger{36} - %msg%n";
+
+    @Param({ "sync_caller_data", "sync", "async", "disabled" })
+    private String configuration;
+
+    private LoggerContext context;
+    private Logger logger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new LoggerContext();
+        // as set up by the logback service provider, events look up the MDC through it
+        context.setMDCAdapter(new LogbackMDCAdapter());
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(configuration.equals("sync_caller_data") ? DEVELOPMENT_PATTERN : PRODUCTION_PATTERN);
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(context);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+
+        Appender<ILoggingEvent> appender = output;
+        if (configuration.equals("async")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(8192 / 5);
+            async.setNeverBlock(true);
+            async.setIncludeCallerData(false);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+
+        logger = context.getLogger("com.pulsara.fse.service.EntityRelationshipService");
+        logger.setAdditive(false);
+        logger.setLevel(ch.qos.logback.classic.Level.INFO);
+        logger.addAppender(appender);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void logLine() {
+        long id = 42;
+        if (configuration.equals("disabled")) {
+            logger.debug("Loaded relationships of source entity {} in {} ms", id, 3);
+        } else {
+            logger.info("Loaded relationships of source entity {} in {} ms", id, 3);
+        }
+    }
+}
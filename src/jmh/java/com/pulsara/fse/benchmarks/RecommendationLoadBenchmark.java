@@ -0,0 +1,115 @@
+package com.pulsara.fse.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.pulsara.fse.FseApplication;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRepository;
+
+/**
+ * HTTP load test of the destination recommendation endpoint. Concurrent clients
+ * ask for the top destinations of random source entities and patient types,
+ * with and without a relationship type filter. The p99 of the sample time
+ * results is checked against the latency target in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(16)
+@Fork(1)
+public class RecommendationLoadBenchmark {
+
+    @Param({ "60" })
+    private int fanOut;
+
+    @Param({ "10" })
+    private int limit;
+
+    private static final PatientType[] PATIENT_TYPES = PatientType.values();
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private List<EntityModel> sources;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(FseApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:recommendations;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.open-in-view=false",
+                "--logging.level.root=WARN");
+
+        SyntheticGraph graph = SyntheticGraph.generate(200, 100, fanOut, PATIENT_TYPES.length, 42);
+        context.getBean(EntityRepository.class).saveAll(graph.getEntities());
+        context.getBean(EntityRelationshipRepository.class).saveAll(graph.getRelationships());
+        sources = graph.getSources();
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/fse/api/entity-relationships/recommendations/";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // load the graph and build the index before measuring
+        for (EntityModel source : sources) {
+            get(source.getId(), "");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private int get(Long sourceEntityId, String query) throws IOException, InterruptedException {
+        PatientType patientType = PATIENT_TYPES[ThreadLocalRandom.current().nextInt(PATIENT_TYPES.length)];
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + sourceEntityId + "?patientType="
+                + patientType + "&limit=" + limit + query)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private Long randomSource() {
+        return sources.get(ThreadLocalRandom.current().nextInt(sources.size())).getId();
+    }
+
+    @Benchmark
+    public int recommend() throws Exception {
+        return get(randomSource(), "");
+    }
+
+    @Benchmark
+    public int recommendTransport() throws Exception {
+        return get(randomSource(), "&relationshipTypes=TRANSPORT&destinationType=HOSPITAL");
+    }
+}
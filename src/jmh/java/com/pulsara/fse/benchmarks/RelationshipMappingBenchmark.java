@@ -0,0 +1,127 @@
+package com.pulsara.fse.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.EntitySummary;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.service.EntityRelationshipService;
+import com.pulsara.fse.service.RelationshipMetrics;
+import com.pulsara.fse.service.RequestCoalescer;
+
+/**
+ * Benchmarks of the in-memory part of the by-source hot path: mapping and
+ * grouping relationships into the response map, and serializing it with Jackson.
+ * The repository is an in-memory stub, so the legacy per-row patient lookup of
+ * mapRelationship is measured without database round trips.
+ * Run with -prof gc to report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelationshipMappingBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int fanOut;
+
+    @Param({ "2" })
+    private int patientsPerPair;
+
+    private EntityRelationshipService service;
+    private List<EntityRelationshipModel> relationships;
+    private RelationshipGraph graph;
+    private int sourceNode;
+    private Map<String, Map<String, List<RelationshipSummary>>> response;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        SyntheticGraph syntheticGraph = SyntheticGraph.generate(1, Math.max(1, fanOut / 3 + 1), fanOut,
+                patientsPerPair, 42);
+        EntityModel source = syntheticGraph.getSources().get(0);
+        relationships = syntheticGraph.getRelationships(source);
+        graph = syntheticGraph.toRelationshipGraph();
+        sourceNode = graph.indexOf(source.getId());
+
+        // stub answering the per-row lookup of mapRelationship from memory
+        Map<List<Object>, List<EntityRelationshipModel>> rowsByPair = relationships.stream()
+                .collect(Collectors.groupingBy(relationship -> List.of(relationship.getDestinationEntity().getId(),
+                        relationship.getRelationshipType())));
+        EntityRelationshipRepository repository = (EntityRelationshipRepository) Proxy.newProxyInstance(
+                EntityRelationshipRepository.class.getClassLoader(),
+                new Class<?>[] { EntityRelationshipRepository.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findBySourceEntityAndDestinationEntityAndRelationshipType")) {
+                        return rowsByPair.get(List.of(((EntityModel) args[1]).getId(), args[2]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        service = new EntityRelationshipService(repository, null, RelationshipMetrics.noop(),
+                RequestCoalescer.unmetered(), null, null, null);
+
+        response = Map.of("relationships", service.groupRelationships(relationships));
+        objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * The original controller grouping: one mapRelationship call, and one patient
+     * lookup, per row, deduplicated in a HashSet.
+     */
+    @Benchmark
+    public Map<String, Set<RelationshipSummary>> legacyGroupingByToSet() {
+        return relationships.stream()
+                .collect(Collectors.groupingBy(
+                        relationship -> relationship.getRelationshipType().name(),
+                        Collectors.mapping(this::mapRelationship, Collectors.toSet())));
+    }
+
+    @Benchmark
+    public Map<String, List<RelationshipSummary>> groupRelationships() {
+        return service.groupRelationships(relationships);
+    }
+
+    @Benchmark
+    public Map<String, List<RelationshipSummary>> groupRelationshipsFromGraph() {
+        return service.groupRelationships(graph, sourceNode, null);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * The per-row mapping of the original controller grouping, which looked up
+     * the patients of every row with one query.
+     */
+    private RelationshipSummary mapRelationship(EntityRelationshipModel relationship) {
+        return new RelationshipSummary(EntitySummary.of(relationship.getSourceEntity()),
+                EntitySummary.of(relationship.getDestinationEntity()),
+                service.getPatientsBySourceAndDestinationAndRelationshipType(relationship.getSourceEntity(),
+                        relationship.getDestinationEntity(), relationship.getRelationshipType()));
+    }
+}
@@ -0,0 +1,130 @@
+package com.pulsara.fse.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pulsara.fse.FseApplication;
+import com.pulsara.fse.dto.EntitySummary;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRepository;
+import com.pulsara.fse.service.EntityRelationshipCacheService;
+import com.pulsara.fse.service.EntityRelationshipService;
+
+/**
+ * Benchmarks of the by-source lookup through the Spring context against an
+ * embedded H2 database standing in for MySQL, comparing the original per-row
+ * patient lookup, the single query grouping and the cached lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelationshipRepositoryBenchmark {
+
+    @Param({ "10", "100" })
+    private int fanOut;
+
+    @Param({ "200" })
+    private int sourceCount;
+
+    private ConfigurableApplicationContext context;
+    private EntityRelationshipService service;
+    private EntityRelationshipCacheService cacheService;
+    private TransactionTemplate readOnlyTransaction;
+    private List<EntityModel> sources;
+    private int nextSource;
+
+    @Setup
+    public void setUp() {
+        // command line arguments override application.properties
+        context = new SpringApplicationBuilder(FseApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.open-in-view=false",
+                        "--logging.level.root=WARN");
+        service = context.getBean(EntityRelationshipService.class);
+        cacheService = context.getBean(EntityRelationshipCacheService.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        SyntheticGraph graph = SyntheticGraph.generate(sourceCount, Math.max(1, fanOut / 3 + 1), fanOut, 2, 42);
+        context.getBean(EntityRepository.class).saveAll(graph.getEntities());
+        context.getBean(EntityRelationshipRepository.class).saveAll(graph.getRelationships());
+        sources = graph.getSources();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private EntityModel nextSource() {
+        nextSource = (nextSource + 1) % sources.size();
+        return sources.get(nextSource);
+    }
+
+    /**
+     * The original by-source path: one query for the rows, then one patient query
+     * per row from mapRelationship, in one transaction as the associations are
+     * loaded lazily.
+     */
+    @Benchmark
+    public Map<String, Set<RelationshipSummary>> legacyBySource() {
+        return readOnlyTransaction.execute(status -> service.getRelationshipsBySourceEntity(nextSource()).stream()
+                .collect(Collectors.groupingBy(
+                        relationship -> relationship.getRelationshipType().name(),
+                        Collectors.mapping(this::mapRelationship, Collectors.toSet()))));
+    }
+
+    @Benchmark
+    public Map<String, List<RelationshipSummary>> groupedBySource() {
+        return service.getGroupedRelationshipsBySourceEntity(nextSource(), null);
+    }
+
+    @Benchmark
+    public Map<String, List<RelationshipSummary>> cachedBySource() {
+        return cacheService.getGroupedRelationshipsBySourceEntity(nextSource(), null);
+    }
+
+    /**
+     * The per-row mapping of the original controller grouping, which looked up
+     * the patients of every row with one query.
+     */
+    private RelationshipSummary mapRelationship(EntityRelationshipModel relationship) {
+        return new RelationshipSummary(EntitySummary.of(relationship.getSourceEntity()),
+                EntitySummary.of(relationship.getDestinationEntity()),
+                service.getPatientsBySourceAndDestinationAndRelationshipType(relationship.getSourceEntity(),
+                        relationship.getDestinationEntity(), relationship.getRelationshipType()));
+    }
+}
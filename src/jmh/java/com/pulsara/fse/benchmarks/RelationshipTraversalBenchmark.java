@@ -0,0 +1,73 @@
+package com.pulsara.fse.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pulsara.fse.graph.HopFilter;
+import com.pulsara.fse.graph.ReachableEntity;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.service.RelationshipTraversalService;
+
+/**
+ * Benchmarks of building the in-memory CSR relationship graph and of multi-hop
+ * traversals over it, on graphs with 100k+ relationship rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelationshipTraversalBenchmark {
+
+    @Param({ "5000" })
+    private int sourceCount;
+
+    @Param({ "20", "60" })
+    private int fanOut;
+
+    // hops are separated by ';' since JMH splits command line parameters on ','
+    @Param({ "TRANSPORT;TRANSFER:STROKE", "TRANSPORT|MUTUAL_AID;TRANSFER;TRANSFER:STEMI|STROKE" })
+    private String hops;
+
+    private SyntheticGraph syntheticGraph;
+    private RelationshipGraph graph;
+    private List<HopFilter> hopFilters;
+    private RelationshipTraversalService service;
+    private long nextSource;
+
+    @Setup
+    public void setUp() {
+        // hospitals transfer to each other, so traversals continue past the first hop
+        syntheticGraph = SyntheticGraph.generate(sourceCount, sourceCount / 10, fanOut, 1, 42)
+                .withTransfers(fanOut, 43);
+        graph = syntheticGraph.toRelationshipGraph();
+        hopFilters = Arrays.stream(hops.split(";")).map(HopFilter::parse).toList();
+        service = new RelationshipTraversalService(null);
+    }
+
+    @Benchmark
+    public RelationshipGraph buildGraph() {
+        return syntheticGraph.toRelationshipGraph();
+    }
+
+    @Benchmark
+    public List<ReachableEntity> traverse() {
+        nextSource = nextSource % sourceCount + 1;
+        return service.findReachableEntities(graph, nextSource, hopFilters, EntityType.HOSPITAL);
+    }
+}
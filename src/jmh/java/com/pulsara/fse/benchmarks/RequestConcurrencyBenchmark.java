@@ -0,0 +1,133 @@
+package com.pulsara.fse.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.pulsara.fse.FseApplication;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRepository;
+
+/**
+ * HTTP load test of the by-source endpoint on platform and virtual threads.
+ * A scaled down surge: the Tomcat worker pool and the Hikari pool are small, and
+ * the client runs more concurrent requests than there are workers. Database
+ * bound requests (keyset pages, never cached) run alongside cached requests,
+ * which never touch the database. On platform threads the workers fill up with
+ * requests waiting for a connection and cached requests queue behind them; on
+ * virtual threads only the database bound requests wait, on the connection
+ * limit. Compare the per-method throughput and latency percentiles of the two
+ * modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RequestConcurrencyBenchmark {
+
+    @Param({ "false", "true" })
+    private boolean virtualThreads;
+
+    @Param({ "16" })
+    private int tomcatThreads;
+
+    @Param({ "2" })
+    private int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private List<EntityModel> sources;
+
+    @Setup
+    public void setUp() throws Exception {
+        // command line arguments override application.properties
+        context = new SpringApplicationBuilder(FseApplication.class).run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--fse.db.connection-wait=30s",
+                "--spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.open-in-view=false",
+                "--logging.level.root=WARN");
+
+        SyntheticGraph graph = SyntheticGraph.generate(100, 40, 100, 2, 42);
+        context.getBean(EntityRepository.class).saveAll(graph.getEntities());
+        context.getBean(EntityRelationshipRepository.class).saveAll(graph.getRelationships());
+        sources = graph.getSources();
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/fse/api/entity-relationships/by-source/";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // warm the relationship cache of every source
+        for (EntityModel source : sources) {
+            get(source.getId(), "");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private int get(Long sourceEntityId, String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + sourceEntityId + query)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private Long randomSource() {
+        return sources.get(ThreadLocalRandom.current().nextInt(sources.size())).getId();
+    }
+
+    /**
+     * Database bound requests: a keyset page is always read from the database.
+     */
+    @Benchmark
+    @Group("surge")
+    @GroupThreads(48)
+    public int databaseBound() throws Exception {
+        return get(randomSource(), "?limit=1000");
+    }
+
+    /**
+     * Requests served from the relationship cache.
+     */
+    @Benchmark
+    @Group("surge")
+    @GroupThreads(16)
+    public int cached() throws Exception {
+        return get(randomSource(), "");
+    }
+}
@@ -0,0 +1,158 @@
+package com.pulsara.fse.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.pulsara.fse.graph.RelationshipEdgeRow;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+/**
+ * Generator of synthetic relationship graphs for benchmarks. Source entities are
+ * EMS agencies with IDs 1 to sourceCount, destination entities are hospitals with
+ * the following IDs. Every source entity has fanOut distinct (relationship type,
+ * destination) pairs, each stored as patientsPerPair rows with distinct patient
+ * types.
+ */
+public final class SyntheticGraph {
+
+    private final List<EntityModel> sources = new ArrayList<>();
+    private final List<EntityModel> destinations = new ArrayList<>();
+    private final Map<Long, List<EntityRelationshipModel>> relationshipsBySource = new LinkedHashMap<>();
+
+    private SyntheticGraph() {
+    }
+
+    /**
+     * Generates a synthetic graph.
+     *
+     * @param sourceCount      The number of source entities.
+     * @param destinationCount The number of destination entities.
+     * @param fanOut           The number of (relationship type, destination) pairs
+     *                         per source entity, at most 3 * destinationCount.
+     * @param patientsPerPair  The number of rows per pair, at most the number of
+     *                         patient types.
+     * @param seed             The random seed.
+     * @return The generated graph.
+     */
+    public static SyntheticGraph generate(int sourceCount, int destinationCount, int fanOut, int patientsPerPair,
+            long seed) {
+        SyntheticGraph graph = new SyntheticGraph();
+        Random random = new Random(seed);
+        RelationshipType[] relationshipTypes = RelationshipType.values();
+        PatientType[] patientTypes = PatientType.values();
+
+        for (long id = 1; id <= sourceCount; id++) {
+            graph.sources.add(entity(id, "EMS Agency " + id, EntityType.EMS));
+        }
+        for (long id = sourceCount + 1; id <= sourceCount + destinationCount; id++) {
+            graph.destinations.add(entity(id, "Hospital " + id, EntityType.HOSPITAL));
+        }
+
+        int pairCount = destinationCount * relationshipTypes.length;
+        for (EntityModel source : graph.sources) {
+            List<EntityRelationshipModel> relationships = new ArrayList<>(fanOut * patientsPerPair);
+            int first = random.nextInt(pairCount);
+            for (int i = 0; i < fanOut; i++) {
+                int pair = (first + i) % pairCount;
+                EntityModel destination = graph.destinations.get(pair / relationshipTypes.length);
+                RelationshipType relationshipType = relationshipTypes[pair % relationshipTypes.length];
+                for (int p = 0; p < patientsPerPair; p++) {
+                    EntityRelationshipModel relationship = new EntityRelationshipModel();
+                    relationship.setSourceEntity(source);
+                    relationship.setDestinationEntity(destination);
+                    relationship.setRelationshipType(relationshipType);
+                    Patient patient = new Patient();
+                    patient.setPatientType(patientTypes[p % patientTypes.length]);
+                    patient.setContactPhone("555-01" + (10 + random.nextInt(90)));
+                    patient.setInstructions("Call ahead");
+                    relationship.setPatient(patient);
+                    relationships.add(relationship);
+                }
+            }
+            graph.relationshipsBySource.put(source.getId(), relationships);
+        }
+        return graph;
+    }
+
+    /**
+     * Adds TRANSFER rows between destination entities, so that multi-hop
+     * traversals can continue past the first hop.
+     *
+     * @param transfersPerDestination The number of TRANSFER rows per destination.
+     * @param seed                    The random seed.
+     * @return This graph.
+     */
+    public SyntheticGraph withTransfers(int transfersPerDestination, long seed) {
+        Random random = new Random(seed);
+        PatientType[] patientTypes = PatientType.values();
+        for (EntityModel destination : destinations) {
+            List<EntityRelationshipModel> relationships = new ArrayList<>(transfersPerDestination);
+            for (int i = 0; i < transfersPerDestination; i++) {
+                EntityRelationshipModel relationship = new EntityRelationshipModel();
+                relationship.setSourceEntity(destination);
+                relationship.setDestinationEntity(destinations.get(random.nextInt(destinations.size())));
+                relationship.setRelationshipType(RelationshipType.TRANSFER);
+                Patient patient = new Patient();
+                patient.setPatientType(patientTypes[random.nextInt(patientTypes.length)]);
+                relationship.setPatient(patient);
+                relationships.add(relationship);
+            }
+            relationshipsBySource.put(destination.getId(), relationships);
+        }
+        return this;
+    }
+
+    private static EntityModel entity(long id, String name, EntityType entityType) {
+        EntityModel entity = new EntityModel();
+        entity.setId(id);
+        entity.setName(name);
+        entity.setEntityType(entityType);
+        return entity;
+    }
+
+    public List<EntityModel> getSources() {
+        return sources;
+    }
+
+    public List<EntityModel> getEntities() {
+        List<EntityModel> entities = new ArrayList<>(sources);
+        entities.addAll(destinations);
+        return entities;
+    }
+
+    public List<EntityRelationshipModel> getRelationships(EntityModel source) {
+        return relationshipsBySource.get(source.getId());
+    }
+
+    public List<EntityRelationshipModel> getRelationships() {
+        List<EntityRelationshipModel> relationships = new ArrayList<>();
+        relationshipsBySource.values().forEach(relationships::addAll);
+        return relationships;
+    }
+
+    /**
+     * Builds the in-memory CSR representation of this graph.
+     *
+     * @return The relationship graph.
+     */
+    public RelationshipGraph toRelationshipGraph() {
+        RelationshipGraph.Builder builder = new RelationshipGraph.Builder();
+        getEntities().forEach(builder::addEntity);
+        for (EntityRelationshipModel relationship : getRelationships()) {
+            Patient patient = relationship.getPatient();
+            builder.addRow(new RelationshipEdgeRow(relationship.getSourceEntity().getId(),
+                    relationship.getDestinationEntity().getId(), relationship.getRelationshipType(),
+                    patient.getPatientType(), patient.getContactPhone(), patient.getInstructions()));
+        }
+        return builder.build();
+    }
+}
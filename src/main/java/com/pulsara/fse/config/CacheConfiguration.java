@@ -0,0 +1,38 @@
+package com.pulsara.fse.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the in-process caches in front of the entity and entity relationship
+ * services. The caches themselves are Caffeine caches created by Spring Boot from
+ * the spring.cache.* properties, which bound their size (W-TinyLFU eviction) and
+ * time to live, and record the statistics published through the actuator.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    /**
+     * Cache of the grouped relationships of a source entity, keyed by the source
+     * entity ID.
+     */
+    public static final String RELATIONSHIPS_BY_SOURCE = "relationshipsBySource";
+
+    /**
+     * Cache of the grouped relationships into a destination entity, keyed by the
+     * destination entity ID.
+     */
+    public static final String RELATIONSHIPS_BY_DESTINATION = "relationshipsByDestination";
+
+    /**
+     * Cache of the relationship version stamps of source entities, keyed by the
+     * source entity ID.
+     */
+    public static final String RELATIONSHIP_VERSION_STAMPS = "relationshipVersionStamps";
+
+    /**
+     * Cache of entities, keyed by entity ID.
+     */
+    public static final String ENTITIES = "entities";
+}
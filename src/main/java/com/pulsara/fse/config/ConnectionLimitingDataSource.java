@@ -0,0 +1,143 @@
+package com.pulsara.fse.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource bounding the number of connections checked out concurrently.
+ * With virtual threads every request gets its own thread, so thousands of
+ * requests may reach the connection pool at once. Callers beyond the limit wait
+ * on a fair semaphore, which parks virtual threads without pinning their carrier
+ * thread, and fail fast once the wait exceeds the configured timeout instead of
+ * queueing in the pool until its own connection timeout.
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxConcurrentConnections;
+    private final long waitNanos;
+
+    /**
+     * Constructs a ConnectionLimitingDataSource.
+     *
+     * @param targetDataSource         The pooled DataSource to delegate to.
+     * @param maxConcurrentConnections The maximum number of connections checked out
+     *                                 concurrently, usually the pool size.
+     * @param maxWait                  The maximum time to wait for a permit.
+     */
+    public ConnectionLimitingDataSource(DataSource targetDataSource, int maxConcurrentConnections,
+            Duration maxWait) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConcurrentConnections, true);
+        this.maxConcurrentConnections = maxConcurrentConnections;
+        this.waitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Gets the maximum number of connections checked out concurrently.
+     *
+     * @return The connection limit.
+     */
+    public int getMaxConcurrentConnections() {
+        return maxConcurrentConnections;
+    }
+
+    /**
+     * Gets the number of connections that may still be checked out without
+     * waiting.
+     *
+     * @return The number of available permits.
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(waitNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Timed out waiting for one of "
+                        + maxConcurrentConnections + " database connections");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    /**
+     * Wraps a connection so that closing or aborting it releases its permit
+     * exactly once. Unwrapping to an interface the wrapper implements, such as
+     * Connection itself, returns the wrapper, so that a caller closing the
+     * unwrapped connection still releases the permit.
+     */
+    private Connection limited(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "unwrap":
+                            if (((Class<?>) args[0]).isInstance(proxy)) {
+                                return proxy;
+                            }
+                            return connection.unwrap((Class<?>) args[0]);
+                        case "isWrapperFor":
+                            return ((Class<?>) args[0]).isInstance(proxy)
+                                    || connection.isWrapperFor((Class<?>) args[0]);
+                        case "close":
+                        case "abort":
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            } finally {
+                                if (released.compareAndSet(false, true)) {
+                                    permits.release();
+                                }
+                            }
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                    }
+                });
+    }
+}
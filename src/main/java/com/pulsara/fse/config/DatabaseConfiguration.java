@@ -1,5 +1,7 @@
 package com.pulsara.fse.config;
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
@@ -12,6 +14,8 @@ import org.springframework.transaction.PlatformTransactionManager;
 import jakarta.persistence.EntityManagerFactory;
 
 import java.beans.BeanProperty;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -22,12 +26,18 @@ public class DatabaseConfiguration {
 
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory(
-            DataSource dataSource) {
+            DataSource dataSource, JpaProperties jpaProperties) {
         LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
         emf.setDataSource(dataSource);
         emf.setPackagesToScan("com.pulsara.fse.models");
         // Set JpaVendorAdapter with the desired persistence provider
         emf.setJpaVendorAdapter(jpaVendorAdapter());
+        // spring.jpa.properties.* take precedence over the vendor adapter defaults,
+        // e.g. to run against an embedded database with another dialect
+        Map<String, Object> properties = new HashMap<>(jpaProperties.getProperties());
+        // count the statements of each request, see MetricsConfiguration
+        properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountingStatementInspector());
+        emf.setJpaPropertyMap(properties);
         //emf.setPersistenceProviderClass("org.hibernate.jpa.HibernatePersistenceProvider");
         return emf;
     }
@@ -0,0 +1,133 @@
+package com.pulsara.fse.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Request level metrics complementing the per-stage relationship metrics and
+ * Spring Boot's http.server.requests timer:
+ * <ul>
+ * <li>{@value #QUERIES}, the number of SQL statements Hibernate prepared while
+ * serving a request, tagged with the URI template. Streaming responses load
+ * their rows on another thread and are not recorded.</li>
+ * <li>{@value #SERIALIZATION}, the time spent writing JSON response bodies,
+ * tagged with the URI template.</li>
+ * </ul>
+ * Histograms of these and the other fse.* meters are enabled with the
+ * management.metrics.distribution.* properties and scraped from
+ * /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+    /**
+     * Name of the distribution of SQL statements per request.
+     */
+    public static final String QUERIES = "fse.db.queries";
+
+    /**
+     * Name of the JSON response serialization timer.
+     */
+    public static final String SERIALIZATION = "fse.http.serialization";
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    public MetricsConfiguration(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryCountInterceptor(meterRegistry));
+    }
+
+    /**
+     * Replaces the JSON message converter of Spring Boot with one timing the
+     * serialization of response bodies.
+     *
+     * @param objectMapper The object mapper configured by Spring Boot.
+     * @return The message converter.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    sample.stop(Timer.builder(SERIALIZATION)
+                            .tag("uri", currentUri())
+                            .register(meterRegistry));
+                }
+            }
+        };
+    }
+
+    private static String currentUri() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object pattern = attributes == null ? null
+                : attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                        RequestAttributes.SCOPE_REQUEST);
+        return pattern == null ? UNKNOWN_URI : pattern.toString();
+    }
+
+    /**
+     * Records the number of SQL statements prepared while serving each request.
+     */
+    public static class QueryCountInterceptor implements HandlerInterceptor {
+
+        private final MeterRegistry meterRegistry;
+
+        public QueryCountInterceptor(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            QueryCountingStatementInspector.reset();
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                Exception ex) {
+            // the statements of an asynchronous response ran on another thread
+            if (request.getDispatcherType() == DispatcherType.ASYNC) {
+                return;
+            }
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder(QUERIES)
+                    .baseUnit("statements")
+                    .tag("uri", pattern == null ? UNKNOWN_URI : pattern.toString())
+                    .register(meterRegistry)
+                    .record(QueryCountingStatementInspector.count());
+        }
+    }
+}
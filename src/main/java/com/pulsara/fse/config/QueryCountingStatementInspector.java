@@ -0,0 +1,41 @@
+package com.pulsara.fse.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate StatementInspector counting the SQL statements prepared by the
+ * current thread, so that the statements issued while serving a request can be
+ * recorded and N+1 query regressions show up in the metrics. Statements issued
+ * through JdbcTemplate bypass Hibernate and are not counted.
+ *
+ * @see MetricsConfiguration
+ */
+public class QueryCountingStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Resets the statement count of the current thread.
+     */
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * Gets the number of statements prepared by the current thread since the last
+     * reset.
+     *
+     * @return The statement count.
+     */
+    public static long count() {
+        return COUNT.get()[0];
+    }
+}
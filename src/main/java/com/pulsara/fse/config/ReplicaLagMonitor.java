@@ -0,0 +1,184 @@
+package com.pulsara.fse.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.pulsara.fse.service.EntityRelationshipsChangedEvent;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+/**
+ * Tracks how far the read replica is behind the primary database.
+ * At every check the current time is written to TBL_REPLICATION_HEARTBEAT on
+ * the primary and the last replicated heartbeat is read back from the replica,
+ * so the lag is measured through replication itself, with the granularity of
+ * the check interval, and without relying on database specific replication
+ * status. The replica is usable while it answers, its lag is within the
+ * configured maximum, and it has replayed the last relationship change made
+ * through this instance, so that caches and indexes reloaded after a change see
+ * it. Checks start once the
+ * application context, including the schema migrations, has been initialized.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+public class ReplicaLagMonitor implements SmartLifecycle {
+
+    private static final String WRITE_HEARTBEAT_SQL = "UPDATE TBL_REPLICATION_HEARTBEAT SET beat_millis = ? WHERE id = 1";
+    private static final String READ_HEARTBEAT_SQL = "SELECT beat_millis FROM TBL_REPLICATION_HEARTBEAT WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private final Duration checkInterval;
+    private volatile long replicatedHeartbeatMillis;
+    private volatile long lagMillis = Long.MAX_VALUE;
+    private volatile long lastPrimaryWriteMillis;
+    private volatile boolean replicaAvailable;
+    private volatile boolean usable;
+    private ScheduledExecutorService scheduler;
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    /**
+     * Constructs a ReplicaLagMonitor. The replica is not used until the first
+     * check has found it in sync.
+     *
+     * @param primaryDataSource The DataSource of the primary database.
+     * @param replicaDataSource The DataSource of the read replica.
+     * @param maxLag            The maximum lag of a usable replica.
+     * @param checkInterval     The interval between two checks.
+     */
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource, Duration maxLag,
+            Duration checkInterval) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Starts checking the replica in the background at the check interval.
+     */
+    @Override
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                    .name("replica-lag-monitor").daemon().factory());
+            scheduler.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the background checks.
+     */
+    @Override
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Reads the replicated heartbeat from the replica, then writes a new one to
+     * the primary, and updates whether the replica is usable.
+     */
+    public void check() {
+        long now = System.currentTimeMillis();
+        try {
+            Long heartbeat = replica.queryForObject(READ_HEARTBEAT_SQL, Long.class);
+            replicatedHeartbeatMillis = heartbeat == null ? 0 : heartbeat;
+            lagMillis = Math.max(0, now - replicatedHeartbeatMillis);
+            replicaAvailable = true;
+        } catch (DataAccessException e) {
+            logger.warn("Unable to read the replication heartbeat from the replica: {}", e.getMessage());
+            replicaAvailable = false;
+        }
+        try {
+            primary.update(WRITE_HEARTBEAT_SQL, now);
+        } catch (DataAccessException e) {
+            logger.warn("Unable to write the replication heartbeat to the primary: {}", e.getMessage());
+        }
+        updateUsable();
+    }
+
+    /**
+     * Records that a write to the primary has been committed, so that reads are
+     * kept on the primary until the replica has replayed a heartbeat written
+     * after it.
+     */
+    public void recordPrimaryWrite() {
+        lastPrimaryWriteMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Keeps read-only transactions on the primary after relationships change,
+     * before the graph index and caches listening to the same event reload them.
+     *
+     * @param event The event describing the changed relationships.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onRelationshipsChanged(EntityRelationshipsChangedEvent event) {
+        if (!event.isEmpty()) {
+            recordPrimaryWrite();
+        }
+    }
+
+    /**
+     * Records that a connection to the replica could not be obtained, so that
+     * reads fall back to the primary until the next successful check.
+     */
+    public void recordReplicaFailure() {
+        replicaAvailable = false;
+        updateUsable();
+    }
+
+    /**
+     * Checks whether read-only work may be sent to the replica.
+     *
+     * @return True if the replica is available, within the maximum lag and has
+     *         replayed the last write of this instance.
+     */
+    public boolean isReplicaUsable() {
+        return usable && replicatedHeartbeatMillis > lastPrimaryWriteMillis;
+    }
+
+    /**
+     * Gets the replication lag measured by the last check.
+     *
+     * @return The lag in milliseconds, or Long.MAX_VALUE before the first check.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    private void updateUsable() {
+        boolean nowUsable = replicaAvailable && lagMillis <= maxLagMillis;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                logger.info("Routing read-only transactions to the replica, lag {} ms", lagMillis);
+            } else {
+                logger.warn("Routing read-only transactions to the primary, replica {}",
+                        replicaAvailable ? "lag " + lagMillis + " ms exceeds " + maxLagMillis + " ms"
+                                : "unavailable");
+            }
+            usable = nowUsable;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.pulsara.fse.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+/**
+ * Read replica routing, enabled with fse.datasource.replica.enabled.
+ * The primary pool is built from the spring.datasource properties as Spring Boot
+ * would, the replica pool from the fse.datasource.replica properties (jdbc-url,
+ * username, password and any Hikari setting), and the application DataSource
+ * routes the connections of read-only transactions to the replica while the
+ * {@link ReplicaLagMonitor} finds it within fse.datasource.replica.max-lag.
+ * Writes, migrations and everything else use the primary. After a relationship
+ * change read-only transactions stay on the primary until the replica has
+ * caught up with it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "fse.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("fse.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${fse.datasource.replica.max-lag:5s}") Duration maxLag,
+            @Value("${fse.datasource.replica.lag-check-interval:1s}") Duration checkInterval) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, maxLag, checkInterval);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReplicaLagMonitor replicaLagMonitor) {
+        return ReplicaRoutingDataSource.create(primaryDataSource, replicaDataSource, replicaLagMonitor);
+    }
+}
@@ -0,0 +1,84 @@
+package com.pulsara.fse.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource routing read-only connections to a read replica and everything else
+ * to the primary database.
+ * Connections are handed out by a {@link LazyConnectionDataSourceProxy}, so the
+ * physical connection is only chosen at the first statement, once the
+ * transaction manager has marked the connection of a
+ * {@code @Transactional(readOnly = true)} method read-only. Read-only
+ * connections go to the replica while the {@link ReplicaLagMonitor} finds it
+ * usable, and fall back to the primary when it lags, has not replayed a recent
+ * write of this instance, or cannot hand out a connection.
+ *
+ * @see ReplicaLagMonitor
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The databases connections are routed to.
+     */
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource primary;
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor) {
+        this.primary = primary;
+        this.replicaLagMonitor = replicaLagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Creates the DataSource used by the application, handing out lazy
+     * connections that are routed to the replica when read-only and to the
+     * primary otherwise.
+     *
+     * @param primary           The DataSource of the primary database.
+     * @param replica           The DataSource of the read replica.
+     * @param replicaLagMonitor The monitor deciding whether the replica is
+     *                          usable.
+     * @return The routing DataSource.
+     */
+    public static LazyConnectionDataSourceProxy create(DataSource primary, DataSource replica,
+            ReplicaLagMonitor replicaLagMonitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replica, replicaLagMonitor));
+        return dataSource;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return replicaLagMonitor.isReplicaUsable() ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Target.PRIMARY) {
+            return primary.getConnection();
+        }
+        try {
+            return determineTargetDataSource().getConnection();
+        } catch (SQLException e) {
+            logger.warn("Unable to connect to the replica, falling back to the primary: {}", e.getMessage());
+            replicaLagMonitor.recordReplicaFailure();
+            return primary.getConnection();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.pulsara.fse.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Logs a sample of the requests to the com.pulsara.fse.requests logger, with
+ * their method, URI, status and duration. A fraction fse.logging.request-sample-rate
+ * of the requests is logged, and server errors always are, so request logging
+ * stays cheap at high request rates. Sampling is disabled by default.
+ */
+@Component
+public class SampledRequestLoggingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger("com.pulsara.fse.requests");
+
+    private final double sampleRate;
+
+    /**
+     * Constructs a SampledRequestLoggingFilter.
+     *
+     * @param sampleRate The fraction of the requests to log, from 0 (only server
+     *                   errors) to 1 (every request).
+     */
+    public SampledRequestLoggingFilter(@Value("${fse.logging.request-sample-rate:0}") double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!logger.isInfoEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int status = response.getStatus();
+            if (sampled || status >= 500) {
+                logger.info("{} {} {} {} ms", request.getMethod(), request.getRequestURI(), status,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+    }
+}
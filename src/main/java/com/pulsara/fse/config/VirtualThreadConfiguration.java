@@ -0,0 +1,56 @@
+package com.pulsara.fse.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pool aware limits for the virtual thread execution mode.
+ * When spring.threads.virtual.enabled is true, Spring Boot serves requests,
+ * asynchronous (streaming) responses and task executors on virtual threads, so
+ * request concurrency is no longer bounded by the Tomcat worker pool. The
+ * DataSource is then wrapped in a {@link ConnectionLimitingDataSource} so the
+ * number of threads blocking on JDBC stays bounded by the Hikari pool size.
+ * The limit and the wait can be overridden with the fse.db.max-concurrent-connections
+ * and fse.db.connection-wait properties.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // the replica routing proxy only hands out connections of the pools it wraps,
+                // which are limited themselves
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource
+                        || bean instanceof LazyConnectionDataSourceProxy) {
+                    return bean;
+                }
+                int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+                int limit = environment.getProperty("fse.db.max-concurrent-connections", Integer.class, poolSize);
+                Duration maxWait = environment.getProperty("fse.db.connection-wait", Duration.class,
+                        Duration.ofSeconds(5));
+                logger.info("Limiting DataSource {} to {} concurrent connections for virtual threads", beanName,
+                        limit);
+                return new ConnectionLimitingDataSource(dataSource, limit, maxWait);
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.pulsara.fse.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.DestinationRecommendation;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.service.DestinationRecommendationService;
+import com.pulsara.fse.service.EntityService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/entity-relationships")
+public class DestinationRecommendationController {
+
+    private final DestinationRecommendationService destinationRecommendationService;
+    private final EntityService entityService;
+    private static final Logger logger = LoggerFactory.getLogger(DestinationRecommendationController.class);
+
+    @Autowired
+    public DestinationRecommendationController(DestinationRecommendationService destinationRecommendationService,
+            EntityService entityService) {
+        this.destinationRecommendationService = destinationRecommendationService;
+        this.entityService = entityService;
+    }
+
+    /**
+     * Retrieves the best destinations for a patient type from a source entity, in
+     * rank order, for example the hospitals an EMS agency should take a STEMI
+     * patient to.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param patientType       The patient type the destinations must accept.
+     * @param relationshipTypes An optional set of strings in the form of comma
+     *                          separated values representing relationship types
+     *                          of which a destination must be reached by one.
+     * @param destinationType   An optional entity type the destinations must
+     *                          have.
+     * @param limit             An optional maximum number of destinations, capped
+     *                          at {@value DestinationRecommendationService#MAX_LIMIT}.
+     * @return ResponseEntity containing the ranked destinations or an error
+     *         response.
+     */
+    @GetMapping("/recommendations/{sourceEntityId}")
+    public ResponseEntity<Map<String, List<DestinationRecommendation>>> getRecommendations(
+            @PathVariable Long sourceEntityId,
+            @RequestParam String patientType,
+            @RequestParam(required = false) Set<String> relationshipTypes,
+            @RequestParam(required = false) String destinationType,
+            @RequestParam(required = false) Integer limit) {
+
+        // validate and parse the request parameters
+        PatientType validPatientType;
+        Set<RelationshipType> validRelationshipTypes;
+        EntityType entityType;
+        try {
+            validPatientType = PatientType.valueOf(patientType);
+            validRelationshipTypes = relationshipTypes == null ? Collections.emptySet()
+                    : relationshipTypes.stream().map(RelationshipType::valueOf).collect(Collectors.toSet());
+            entityType = destinationType == null ? null : EntityType.valueOf(destinationType);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid patient, relationship or destination type", e);
+            return ResponseEntity.badRequest().body(null);
+        }
+        int maxResults = limit == null ? DestinationRecommendationService.DEFAULT_LIMIT : limit;
+        if (sourceEntityId <= 0 || maxResults < 1 || maxResults > DestinationRecommendationService.MAX_LIMIT) {
+            logger.error("Could not validate the request. Check the request parameters and try again");
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        // Check if the source entity exists
+        if (entityService.getEntityById(sourceEntityId) == null) {
+            logger.info("Could not find the provided source entity with ID {}", sourceEntityId);
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            return ResponseEntity.ok(Map.of("recommendations", destinationRecommendationService.recommend(
+                    sourceEntityId, validPatientType, validRelationshipTypes, entityType, maxResults)));
+        } catch (FSEServiceException e) {
+            logger.error("Unable to recommend destinations for source entity {}: {}", sourceEntityId,
+                    e.getMessage());
+            return ResponseEntity.status(e.getStatus()).build();
+        }
+    }
+}
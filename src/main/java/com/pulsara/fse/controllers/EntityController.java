@@ -1,28 +1,100 @@
 package com.pulsara.fse.controllers;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.pulsara.fse.models.EntityModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.repository.EntityRepositoryCustom;
 import com.pulsara.fse.service.EntityService;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/entities")
 public class EntityController {
 
     private final EntityService entityService;
+    private final ObjectMapper objectMapper;
+    private static final Logger logger = LoggerFactory.getLogger(EntityController.class);
 
     @Autowired
-    public EntityController(EntityService entityService) {
+    public EntityController(EntityService entityService, ObjectMapper objectMapper) {
         this.entityService = entityService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Retrieves all entities, or a keyset paginated page of entities when any of
+     * the paging parameters is provided.
+     *
+     * @param limit  An optional page size, capped at
+     *               {@value KeysetPage#MAX_PAGE_SIZE}.
+     * @param cursor An optional cursor returned as next_cursor by the previous
+     *               page.
+     * @param fields An optional set of strings in the form of comma separated
+     *               values representing the fields to return, among id, name and
+     *               entityType. The id is always returned.
+     * @return ResponseEntity containing all entities, a page of entities or an
+     *         error response.
+     */
     @GetMapping
-    public List<EntityModel> getAllEntities() {
-        return entityService.getAllEntities();
+    public ResponseEntity<?> getAllEntities(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Set<String> fields) {
+        if (limit == null && cursor == null && fields == null) {
+            return ResponseEntity.ok(entityService.getAllEntities());
+        }
+
+        // validate the paging parameters
+        Long afterId;
+        int pageSize;
+        try {
+            afterId = KeysetPage.decodeCursor(cursor);
+            pageSize = KeysetPage.pageSize(limit);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid page size or cursor", e);
+            return ResponseEntity.badRequest().body(null);
+        }
+        if (fields != null && !EntityRepositoryCustom.PROJECTABLE_FIELDS.containsAll(fields)) {
+            logger.error("Invalid fields {}", fields);
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        KeysetPage<List<Map<String, Object>>> page = entityService.getEntityPage(afterId, pageSize, fields);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("entities", page.content());
+        body.put("next_cursor", page.nextCursor());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Streams all entities as newline delimited JSON, one entity per line, read
+     * from a database cursor so memory use does not grow with the number of
+     * entities. Selected with an Accept: application/x-ndjson request header.
+     *
+     * @return ResponseEntity streaming every entity.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllEntities() {
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream);
+            entityService.streamAllEntities(writer::write);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 }
@@ -3,20 +3,49 @@ package com.pulsara.fse.controllers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.BatchRelationshipsRequest;
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.dto.RelationshipSnapshot;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.dto.StampedRelationships;
+import com.pulsara.fse.graph.HopFilter;
+import com.pulsara.fse.graph.ReachableEntity;
 import com.pulsara.fse.models.EntityModel;
-import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
 import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.service.EntityRelationshipCacheService;
 import com.pulsara.fse.service.EntityRelationshipService;
 import com.pulsara.fse.service.EntityService;
+import com.pulsara.fse.service.RelationshipMetrics;
+import com.pulsara.fse.service.RelationshipSnapshotService;
+import com.pulsara.fse.service.RelationshipTraversalService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,14 +55,36 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/entity-relationships")
 public class EntityRelationshipController {
 
+    /**
+     * The maximum number of source entities of a batch lookup.
+     */
+    public static final int MAX_BATCH_SOURCE_ENTITIES = 2000;
+
+    private final EntityRelationshipCacheService entityRelationshipCacheService;
     private final EntityRelationshipService entityRelationshipService;
+    private final RelationshipTraversalService relationshipTraversalService;
     private final EntityService entityService;
-    private static final Logger logger = LoggerFactory.getLogger(EntityRelationshipService.class);
+    private final RelationshipMetrics relationshipMetrics;
+    private final RelationshipSnapshotService relationshipSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final CacheControl relationshipsCacheControl;
+    private static final Logger logger = LoggerFactory.getLogger(EntityRelationshipController.class);
 
-    public EntityRelationshipController(EntityRelationshipService entityRelationshipService,
-            EntityService entityService) {
+    public EntityRelationshipController(EntityRelationshipCacheService entityRelationshipCacheService,
+            EntityRelationshipService entityRelationshipService,
+            RelationshipTraversalService relationshipTraversalService,
+            EntityService entityService, RelationshipMetrics relationshipMetrics,
+            RelationshipSnapshotService relationshipSnapshotService, ObjectMapper objectMapper,
+            @Value("${fse.http.relationships.shared-max-age:30s}") Duration sharedMaxAge) {
+        this.entityRelationshipCacheService = entityRelationshipCacheService;
         this.entityRelationshipService = entityRelationshipService;
+        this.relationshipTraversalService = relationshipTraversalService;
         this.entityService = entityService;
+        this.relationshipMetrics = relationshipMetrics;
+        this.relationshipSnapshotService = relationshipSnapshotService;
+        this.objectMapper = objectMapper;
+        // clients always revalidate, shared caches may serve a response for sharedMaxAge
+        this.relationshipsCacheControl = CacheControl.maxAge(Duration.ZERO).sMaxAge(sharedMaxAge).cachePublic();
     }
 
     /**
@@ -44,22 +95,42 @@ public class EntityRelationshipController {
      * @param relationshipTypes An optional set of strings in the form of comma
      *                          separated values representing relationship types to
      *                          filter.
-     * @return ResponseEntity containing a map of grouped relationships or an error
-     *         response.
+     * @param limit             An optional page size, capped at
+     *                          {@value KeysetPage#MAX_PAGE_SIZE}. Providing any of
+     *                          limit, cursor or fields returns a keyset paginated
+     *                          page with a next_cursor.
+     * @param cursor            An optional cursor returned as next_cursor by the
+     *                          previous page.
+     * @param fields            An optional set of strings in the form of comma
+     *                          separated values representing the fields of each
+     *                          relationship to return, among source, destination
+     *                          and patient_types.
+     * @param webRequest        The request, checked for an If-None-Match header.
+     * @return ResponseEntity containing a map of grouped relationships, or its
+     *         serialized snapshot if snapshots are enabled, a 304 response if the
+     *         ETag in If-None-Match is current, or an error response.
      */
     @GetMapping("/by-source/{sourceEntityId}")
-    public ResponseEntity<Map<String, Map<Object, Set<Map<String, Object>>>>> getRelationshipsBySourceEntity(
+    public ResponseEntity<?> getRelationshipsBySourceEntity(
             @PathVariable Long sourceEntityId,
-            @RequestParam(required = false) Set<String> relationshipTypes) {
+            @RequestParam(required = false) Set<String> relationshipTypes,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Set<String> fields,
+            WebRequest webRequest) {
 
         // validate the request parameters
         if (!validateRequest(sourceEntityId, relationshipTypes)) {
             logger.error("Could not validate the request. Check the request parameters and try again");
             return ResponseEntity.badRequest().body(null);
         }
+        boolean paged = limit != null || cursor != null || fields != null;
 
-        // Retrieve the source entity using the EntityService
-        EntityModel sourceEntity = entityService.getEntityById(sourceEntityId);
+        // Retrieve the source entity using the EntityService. This is answered from
+        // the entities cache for a known entity, and an unknown entity is not found
+        // even if a client still holds an ETag of its relationships
+        EntityModel sourceEntity = relationshipMetrics.observe(RelationshipMetrics.BY_SOURCE,
+                RelationshipMetrics.ENTITY_LOOKUP, () -> entityService.getEntityById(sourceEntityId));
 
         // Check if the source entity exists
         if (sourceEntity == null) {
@@ -68,27 +139,320 @@ public class EntityRelationshipController {
             return ResponseEntity.notFound().build();
         }
 
+        // Answer a conditional request from the version stamp alone, before any
+        // relationship lookup. A response body is sent with the ETag of the stamp
+        // it was read at
+        Set<RelationshipType> types = validateAndConvertRelationshipTypes(relationshipTypes);
+        String versionStamp = null;
+        String eTag = null;
+        if (!paged) {
+            versionStamp = entityRelationshipCacheService.getSourceVersionStamp(sourceEntityId);
+            eTag = relationshipsETag(sourceEntityId, types, versionStamp);
+            if (webRequest.checkNotModified(eTag)) {
+                // the ETag header is already set by checkNotModified
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .cacheControl(relationshipsCacheControl)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .build();
+            }
+
+            // Serve the serialized response as is if it is current
+            RelationshipSnapshot snapshot = relationshipSnapshotService.getSnapshot(sourceEntityId, types,
+                    versionStamp);
+            if (snapshot != null) {
+                return relationshipsResponse(eTag, snapshot);
+            }
+        }
+
+        if (paged) {
+            return getRelationshipPageBySourceEntity(sourceEntity, relationshipTypes, limit, cursor, fields);
+        }
+
+        if (relationshipSnapshotService.isEnabled()) {
+            RelationshipSnapshot snapshot = relationshipSnapshotService.buildSnapshot(sourceEntity, types,
+                    versionStamp);
+            return relationshipsResponse(relationshipsETag(sourceEntityId, types, snapshot.versionStamp()),
+                    snapshot);
+        }
+
         // Retrieve relationships based on the source entity and optional relationship
-        // types
-        List<EntityRelationshipModel> relationships;
-        if (relationshipTypes != null && !relationshipTypes.isEmpty()) {
-            // Filter relationships by provided relationship types
-            relationships = entityRelationshipService.getRelationshipsBySourceEntityAndRelTypes(
-                    sourceEntity, relationshipTypes);
-        } else {
-            // Retrieve all relationships if no types are provided
-            relationships = entityRelationshipService.getRelationshipsBySourceEntity(sourceEntity);
-        }
-
-        // Group relationships by relationship_type
-        Map<Object, Set<Map<String, Object>>> groupedRelationships = relationships.stream()
-                .collect(Collectors.groupingBy(
-                        relationship -> relationship.getRelationshipType().name(),
-                        Collectors.mapping(entityRelationshipService::mapRelationship, Collectors.toSet())));
+        // types, grouped by relationship_type and destination, from the cache
+        StampedRelationships groupedRelationships = entityRelationshipCacheService
+                .getStampedRelationshipsBySourceEntity(sourceEntity, types, versionStamp);
+
+        return relationshipsResponse(relationshipsETag(sourceEntityId, types, groupedRelationships.versionStamp()),
+                Map.of("relationships", groupedRelationships.relationships()));
+    }
+
+    /**
+     * Builds the response of the relationships of a source entity, validated with
+     * its ETag.
+     *
+     * @param eTag The quoted ETag.
+     * @param body The relationships or their serialized snapshot.
+     * @return ResponseEntity containing the relationships.
+     */
+    private ResponseEntity<Object> relationshipsResponse(String eTag, Object body) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(relationshipsCacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    /**
+     * Builds the strong ETag of the relationships of a source entity from its
+     * version stamp and the requested relationship types, without loading them.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param relationshipTypes The validated relationship types, empty for all.
+     * @param versionStamp      The relationship version stamp of the source
+     *                          entity.
+     * @return The quoted ETag.
+     */
+    private String relationshipsETag(Long sourceEntityId, Set<RelationshipType> relationshipTypes,
+            String versionStamp) {
+        int typesMask = 0;
+        for (RelationshipType relationshipType : relationshipTypes) {
+            typesMask |= 1 << relationshipType.ordinal();
+        }
+        return "\"" + sourceEntityId + "-" + versionStamp + "-" + typesMask + "\"";
+    }
+
+    /**
+     * Retrieves the relationships into a destination entity, such as the EMS
+     * agencies and facilities that can send patients to a hospital, based on the
+     * provided destination entity ID and optional relationship and patient types.
+     *
+     * @param destinationEntityId The ID of the destination entity.
+     * @param relationshipTypes   An optional set of strings in the form of comma
+     *                            separated values representing relationship types
+     *                            to filter.
+     * @param patientTypes        An optional set of strings in the form of comma
+     *                            separated values representing patient types to
+     *                            filter.
+     * @return ResponseEntity containing a map of grouped relationships or an error
+     *         response.
+     */
+    @GetMapping("/by-destination/{destinationEntityId}")
+    public ResponseEntity<Map<String, Object>> getRelationshipsByDestinationEntity(
+            @PathVariable Long destinationEntityId,
+            @RequestParam(required = false) Set<String> relationshipTypes,
+            @RequestParam(required = false) Set<String> patientTypes) {
+
+        // validate the request parameters
+        Set<PatientType> validPatientTypes = validateAndConvertPatientTypes(patientTypes);
+        if (!validateRequest(destinationEntityId, relationshipTypes) || validPatientTypes == null) {
+            logger.error("Could not validate the request. Check the request parameters and try again");
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        // Check if the destination entity exists
+        EntityModel destinationEntity = relationshipMetrics.observe(RelationshipMetrics.BY_DESTINATION,
+                RelationshipMetrics.ENTITY_LOOKUP, () -> entityService.getEntityById(destinationEntityId));
+        if (destinationEntity == null) {
+            logger.info("Could not find the provided destination entity with ID {}", destinationEntityId);
+            return ResponseEntity.notFound().build();
+        }
+
+        // Retrieve relationships grouped by relationship_type and source, from the
+        // cache
+        Map<String, List<RelationshipSummary>> groupedRelationships = entityRelationshipCacheService
+                .getGroupedRelationshipsByDestinationEntity(destinationEntity,
+                        validateAndConvertRelationshipTypes(relationshipTypes), validPatientTypes);
 
         return ResponseEntity.ok(Map.of("relationships", groupedRelationships));
     }
 
+    /**
+     * Retrieves a keyset paginated page of the relationships of a source entity.
+     *
+     * @param sourceEntity      The source entity.
+     * @param relationshipTypes The validated relationship types to filter, may be
+     *                          null.
+     * @param limit             The requested page size, may be null.
+     * @param cursor            The cursor of the page, may be null.
+     * @param fields            The fields to return, may be null.
+     * @return ResponseEntity containing the page of grouped relationships and the
+     *         next cursor, or an error response.
+     */
+    private ResponseEntity<Map<String, Object>> getRelationshipPageBySourceEntity(EntityModel sourceEntity,
+            Set<String> relationshipTypes, Integer limit, String cursor, Set<String> fields) {
+        Long afterId;
+        int pageSize;
+        try {
+            afterId = KeysetPage.decodeCursor(cursor);
+            pageSize = KeysetPage.pageSize(limit);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid page size or cursor", e);
+            return ResponseEntity.badRequest().body(null);
+        }
+        if (fields != null && !EntityRelationshipService.RELATIONSHIP_FIELDS.containsAll(fields)) {
+            logger.error("Invalid fields {}", fields);
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        KeysetPage<Map<String, List<RelationshipSummary>>> page = entityRelationshipService
+                .getRelationshipPageBySourceEntity(sourceEntity, validateAndConvertRelationshipTypes(relationshipTypes),
+                        afterId, pageSize, fields);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("relationships", page.content());
+        body.put("next_cursor", page.nextCursor());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Streams the relationships of a source entity as newline delimited JSON, one
+     * line per (relationship type, destination) pair holding the relationship type
+     * and the same source, destination and patient types as the by-source
+     * endpoint. Rows are read from a database cursor so memory use does not grow
+     * with the number of relationships. Selected with an Accept:
+     * application/x-ndjson request header.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param relationshipTypes An optional set of strings in the form of comma
+     *                          separated values representing relationship types to
+     *                          filter.
+     * @return ResponseEntity streaming the relationships or an error response.
+     */
+    @GetMapping(value = "/by-source/{sourceEntityId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRelationshipsBySourceEntity(
+            @PathVariable Long sourceEntityId,
+            @RequestParam(required = false) Set<String> relationshipTypes) {
+
+        // validate the request parameters
+        if (!validateRequest(sourceEntityId, relationshipTypes)) {
+            logger.error("Could not validate the request. Check the request parameters and try again");
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        // Check if the source entity exists
+        EntityModel sourceEntity = entityService.getEntityById(sourceEntityId);
+        if (sourceEntity == null) {
+            logger.info("Could not find the provided source entity with ID {}", sourceEntityId);
+            return ResponseEntity.notFound().build();
+        }
+
+        Set<RelationshipType> types = validateAndConvertRelationshipTypes(relationshipTypes);
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream);
+            entityRelationshipService.streamGroupedRelationshipsBySourceEntity(sourceEntity, types,
+                    (relationshipType, mappedRelationship) -> writer
+                            .write(new RelationshipLine(relationshipType, mappedRelationship)));
+            writer.flush();
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Line of the newline delimited JSON relationship stream, holding the
+     * relationship type followed by the fields of the relationship summary.
+     *
+     * @param relationshipType The relationship type name.
+     * @param relationship     The relationship summary.
+     */
+    private record RelationshipLine(@JsonProperty("relationship_type") String relationshipType,
+            @JsonUnwrapped RelationshipSummary relationship) {
+    }
+
+    /**
+     * Retrieves the relationships of many source entities in one call. The
+     * relationships are loaded with IN-list queries in chunks and streamed back as
+     * a JSON object of source entity IDs to grouped relationships, in the same
+     * shape as the by-source endpoint. Source entities that do not exist are
+     * omitted.
+     *
+     * @param request The source entity IDs, at most
+     *                {@value #MAX_BATCH_SOURCE_ENTITIES}, and optional relationship
+     *                types to filter.
+     * @return ResponseEntity streaming the grouped relationships of every source
+     *         entity or an error response.
+     */
+    @PostMapping("/by-sources")
+    public ResponseEntity<StreamingResponseBody> getRelationshipsBySourceEntities(
+            @RequestBody BatchRelationshipsRequest request) {
+
+        // validate the request parameters
+        List<Long> sourceEntityIds = request.sourceEntityIds();
+        Set<RelationshipType> relationshipTypes = validateAndConvertRelationshipTypes(request.relationshipTypes());
+        if (sourceEntityIds == null || sourceEntityIds.isEmpty()
+                || sourceEntityIds.size() > MAX_BATCH_SOURCE_ENTITIES
+                || sourceEntityIds.stream().anyMatch(id -> id == null || id <= 0)
+                || relationshipTypes == null) {
+            logger.error("Could not validate the request. Check the request parameters and try again");
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.createGenerator(outputStream);
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("relationships");
+            entityRelationshipCacheService.forEachGroupedRelationshipsBySourceEntityIds(sourceEntityIds,
+                    relationshipTypes, (sourceEntityId, groupedRelationships) -> {
+                        try {
+                            generator.writeFieldName(String.valueOf(sourceEntityId));
+                            generator.writeObject(groupedRelationships);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.flush();
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Retrieves the entities reachable from a source entity within a bounded
+     * number of hops, for example the hospitals reachable from an EMS agency via
+     * TRANSPORT then TRANSFER that accept STROKE patients. Only the entities
+     * reached by the last hop, along edges passing the filter of every hop, are
+     * returned.
+     *
+     * @param sourceEntityId  The ID of the source entity.
+     * @param hops            The filters of each hop in traversal order, in the
+     *                        form of comma separated values of
+     *                        TYPE[|TYPE...][:PATIENT_TYPE[|PATIENT_TYPE...]].
+     * @param destinationType An optional entity type the reachable entities must
+     *                        have.
+     * @return ResponseEntity containing the reachable entities or an error
+     *         response.
+     */
+    @GetMapping("/reachable/{sourceEntityId}")
+    public ResponseEntity<Map<String, List<ReachableEntity>>> getReachableEntities(
+            @PathVariable Long sourceEntityId,
+            @RequestParam List<String> hops,
+            @RequestParam(required = false) String destinationType) {
+
+        // validate and parse the request parameters
+        List<HopFilter> hopFilters;
+        EntityType entityType;
+        try {
+            hopFilters = hops.stream().map(HopFilter::parse).collect(Collectors.toList());
+            entityType = destinationType == null ? null : EntityType.valueOf(destinationType);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid hop or destination type", e);
+            return ResponseEntity.badRequest().body(null);
+        }
+        if (sourceEntityId <= 0 || hopFilters.isEmpty()
+                || hopFilters.size() > RelationshipTraversalService.MAX_HOPS) {
+            logger.error("Could not validate the request. Check the request parameters and try again");
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        // Check if the source entity exists
+        if (entityService.getEntityById(sourceEntityId) == null) {
+            logger.info("Could not find the provided source entity with ID {}", sourceEntityId);
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(Map.of("reachable",
+                relationshipTraversalService.findReachableEntities(sourceEntityId, hopFilters, entityType)));
+    }
+
     /**
      * Validates the request parameters for the entity relationships endpoint.
      *
@@ -135,4 +499,27 @@ public class EntityRelationshipController {
             return null; // Invalid relationship type found
         }
     }
+
+    /**
+     * Validates and converts a set of patient type strings to a set of PatientType
+     * enum values.
+     *
+     * @param patientTypes A set of strings representing patient types.
+     * @return A set of PatientType enum values if validation is successful, or null
+     *         if an invalid patient type is encountered.
+     */
+    private Set<PatientType> validateAndConvertPatientTypes(Set<String> patientTypes) {
+        if (patientTypes == null) {
+            return Collections.emptySet();
+        }
+
+        try {
+            return patientTypes.stream()
+                    .map(PatientType::valueOf)
+                    .collect(Collectors.toSet());
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid patient type", e);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package com.pulsara.fse.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes values to a response body as newline delimited JSON, one compact JSON
+ * document per line, flushing every {@value #FLUSH_INTERVAL} lines.
+ */
+class NdjsonWriter {
+
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private int pendingLines;
+
+    /**
+     * Constructs an NdjsonWriter.
+     *
+     * @param objectMapper The object mapper used to serialize values.
+     * @param outputStream The response body.
+     * @throws IOException If the generator cannot be created.
+     */
+    NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = writer.createGenerator(outputStream);
+    }
+
+    /**
+     * Writes a value as a single line.
+     *
+     * @param value The value to be written.
+     * @throws UncheckedIOException If the value cannot be written.
+     */
+    void write(Object value) {
+        try {
+            writer.writeValue(generator, value);
+            generator.writeRaw('\n');
+            if (++pendingLines == FLUSH_INTERVAL) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the written lines to the response body.
+     *
+     * @throws UncheckedIOException If the lines cannot be flushed.
+     */
+    void flush() {
+        try {
+            generator.flush();
+            pendingLines = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pulsara.fse.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.pulsara.fse.dto.RelationshipCsv;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.service.RelationshipBulkService;
+import com.pulsara.fse.service.RelationshipBulkService.Format;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/entity-relationships")
+public class RelationshipBulkController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final RelationshipBulkService relationshipBulkService;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipBulkController.class);
+
+    @Autowired
+    public RelationshipBulkController(RelationshipBulkService relationshipBulkService) {
+        this.relationshipBulkService = relationshipBulkService;
+    }
+
+    /**
+     * Imports relationship rows streamed in the request body, as CSV (Content-Type
+     * text/csv) or newline delimited JSON (Content-Type application/x-ndjson).
+     * Rows are written with batched inserts in chunked transactions.
+     *
+     * @param contentType The content type of the request body.
+     * @param body        The request body.
+     * @return ResponseEntity containing the number of imported rows, or an error
+     *         response with the failing line and the number of rows imported
+     *         before it.
+     */
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<?> importRelationships(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        Format format = MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV) ? Format.CSV
+                : Format.NDJSON;
+        try {
+            return ResponseEntity.ok(relationshipBulkService.importRelationships(body, format));
+        } catch (FSEServiceException e) {
+            logger.error("Relationship import failed: {}", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Streams every relationship row, read from a database cursor, as CSV with a
+     * header line or as newline delimited JSON. The output can be imported again
+     * as is.
+     *
+     * @param format The format of the export, csv (default) or ndjson.
+     * @return ResponseEntity streaming the relationship rows or an error response.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRelationships(
+            @RequestParam(defaultValue = "csv") String format) {
+        Format exportFormat;
+        try {
+            exportFormat = Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid export format {}", format);
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 65536);
+            if (exportFormat == Format.CSV) {
+                writer.write(RelationshipCsv.HEADER);
+                writer.write('\n');
+            }
+            relationshipBulkService.exportRelationships(row -> {
+                try {
+                    writer.write(relationshipBulkService.format(row, exportFormat));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+
+        MediaType mediaType = exportFormat == Format.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=relationships." + exportFormat.name().toLowerCase())
+                .body(body);
+    }
+}
@@ -0,0 +1,71 @@
+package com.pulsara.fse.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pulsara.fse.dto.ChangeFeedPage;
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.service.RelationshipChangeLogService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/entity-relationships")
+public class RelationshipChangeController {
+
+    private final RelationshipChangeLogService relationshipChangeLogService;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipChangeController.class);
+
+    @Autowired
+    public RelationshipChangeController(RelationshipChangeLogService relationshipChangeLogService) {
+        this.relationshipChangeLogService = relationshipChangeLogService;
+    }
+
+    /**
+     * Retrieves the relationships inserted since the last sync of a client, at
+     * most one change per relationship. Only the bulk import writes
+     * relationships, so relationships updated or deleted with plain SQL are only
+     * picked up by a sync from scratch.
+     *
+     * @param since          An optional token returned as next_token by the
+     *                       previous sync. Without it every relationship is
+     *                       returned as an insert.
+     * @param sourceEntityId An optional ID of the source entity whose
+     *                       relationships are synced.
+     * @param limit          An optional maximum number of change log entries
+     *                       read, capped at {@value KeysetPage#MAX_PAGE_SIZE}.
+     *                       Clients fetch the next page with next_token while
+     *                       has_more is true.
+     * @return ResponseEntity containing the changes and the next token, or an
+     *         error response. A 410 response means the token cannot be resumed
+     *         and the client has to sync from scratch.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Long sourceEntityId,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize;
+        try {
+            pageSize = KeysetPage.pageSize(limit);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid page size", e);
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        try {
+            ChangeFeedPage page = relationshipChangeLogService.getChanges(since, sourceEntityId, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (FSEServiceException e) {
+            logger.error("Unable to read relationship changes since {}: {}", since, e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
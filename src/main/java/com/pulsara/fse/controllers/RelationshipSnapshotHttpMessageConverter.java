@@ -0,0 +1,54 @@
+package com.pulsara.fse.controllers;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import com.pulsara.fse.dto.RelationshipSnapshot;
+
+/**
+ * Writes relationship snapshots to responses as application/json, copying the
+ * serialized bytes to the response stream without going through Jackson.
+ * Registered ahead of the Jackson converter as a bean.
+ *
+ * @since 1.0
+ */
+@Component
+public class RelationshipSnapshotHttpMessageConverter extends AbstractHttpMessageConverter<RelationshipSnapshot> {
+
+    public RelationshipSnapshotHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return RelationshipSnapshot.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected RelationshipSnapshot readInternal(Class<? extends RelationshipSnapshot> clazz,
+            HttpInputMessage inputMessage) throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("Relationship snapshots cannot be read", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(RelationshipSnapshot snapshot, MediaType contentType) {
+        return (long) snapshot.length();
+    }
+
+    @Override
+    protected void writeInternal(RelationshipSnapshot snapshot, HttpOutputMessage outputMessage)
+            throws IOException {
+        snapshot.writeTo(outputMessage.getBody());
+    }
+}
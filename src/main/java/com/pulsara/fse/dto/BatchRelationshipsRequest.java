@@ -0,0 +1,13 @@
+package com.pulsara.fse.dto;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Request body of the batch relationship lookup.
+ *
+ * @param sourceEntityIds   The IDs of the source entities.
+ * @param relationshipTypes An optional set of relationship types to filter.
+ */
+public record BatchRelationshipsRequest(List<Long> sourceEntityIds, Set<String> relationshipTypes) {
+}
@@ -0,0 +1,22 @@
+package com.pulsara.fse.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/**
+ * Page of the relationship change feed.
+ *
+ * @param changes   The changes of the page, at most one per relationship, in
+ *                  the order they were made.
+ * @param nextToken The opaque watermark to pass as since to fetch the changes
+ *                  after this page. Always present, so that a client can store
+ *                  it even when nothing changed.
+ * @param hasMore   Whether more changes are available after this page.
+ */
+@JsonPropertyOrder({ "changes", "next_token", "has_more" })
+public record ChangeFeedPage(List<RelationshipChange> changes,
+        @JsonProperty("next_token") String nextToken,
+        @JsonProperty("has_more") boolean hasMore) {
+}
@@ -0,0 +1,27 @@
+package com.pulsara.fse.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityType;
+
+/**
+ * Entity as returned in relationship responses, serialized as
+ * {"id", "name", "type"}.
+ *
+ * @param id   The ID of the entity.
+ * @param name The name of the entity.
+ * @param type The type of the entity.
+ */
+@JsonPropertyOrder({ "id", "name", "type" })
+public record EntitySummary(Long id, String name, EntityType type) {
+
+    /**
+     * Creates the summary of an entity.
+     *
+     * @param entity The entity.
+     * @return The summary of the entity.
+     */
+    public static EntitySummary of(EntityModel entity) {
+        return new EntitySummary(entity.getId(), entity.getName(), entity.getEntityType());
+    }
+}
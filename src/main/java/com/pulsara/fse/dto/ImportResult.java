@@ -0,0 +1,11 @@
+package com.pulsara.fse.dto;
+
+/**
+ * Outcome of a bulk relationship import.
+ *
+ * @param importedRows  The number of rows written.
+ * @param chunks        The number of committed chunks.
+ * @param elapsedMillis The duration of the import in milliseconds.
+ */
+public record ImportResult(long importedRows, int chunks, long elapsedMillis) {
+}
@@ -0,0 +1,67 @@
+package com.pulsara.fse.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Page of a keyset (seek) paginated listing.
+ *
+ * @param content    The content of the page.
+ * @param nextCursor The opaque cursor of the next page, or null if this is the
+ *                   last page.
+ * @param <T>        The type of the content.
+ */
+public record KeysetPage<T>(T content, String nextCursor) {
+
+    /**
+     * The number of rows of a page when no page size is requested.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * The maximum number of rows of a page.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Encodes the ID of the last row of a page as an opaque cursor.
+     *
+     * @param lastId The ID of the last row of the page.
+     * @return The cursor of the next page.
+     */
+    public static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a cursor into the ID after which the next page starts.
+     *
+     * @param cursor The cursor, may be null for the first page.
+     * @return The ID after which the page starts, or null for the first page.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Resolves a requested page size against the default and maximum page sizes.
+     *
+     * @param limit The requested page size, may be null.
+     * @return The page size to use.
+     * @throws IllegalArgumentException If the requested page size is not positive.
+     */
+    public static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+}
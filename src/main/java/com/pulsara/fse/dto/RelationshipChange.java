@@ -0,0 +1,60 @@
+package com.pulsara.fse.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.pulsara.fse.models.ChangeOperation;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipChangeModel;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.time.Instant;
+
+/**
+ * A relationship inserted since a change feed watermark. Changes of the other
+ * operations would carry the values after the change, and deleted relationships
+ * their last known values, so that clients can find the local copy to remove.
+ * Null values are omitted from the JSON.
+ *
+ * @param relationshipId      The ID of the relationship.
+ * @param operation           The kind of change.
+ * @param version             The version of the relationship after the change.
+ * @param sourceEntityId      The ID of the source entity.
+ * @param destinationEntityId The ID of the destination entity.
+ * @param relationshipType    The relationship type.
+ * @param patientType         The patient type, may be null.
+ * @param contactPhone        The contact phone, may be null.
+ * @param instructions        The instructions, may be null.
+ * @param changedAt           The time of the change.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({ "relationship_id", "operation", "version", "source_entity_id", "destination_entity_id",
+        "relationship_type", "patient_type", "contact_phone", "instructions", "changed_at" })
+public record RelationshipChange(
+        @JsonProperty("relationship_id") Long relationshipId,
+        ChangeOperation operation,
+        Long version,
+        @JsonProperty("source_entity_id") Long sourceEntityId,
+        @JsonProperty("destination_entity_id") Long destinationEntityId,
+        @JsonProperty("relationship_type") RelationshipType relationshipType,
+        @JsonProperty("patient_type") PatientType patientType,
+        @JsonProperty("contact_phone") String contactPhone,
+        String instructions,
+        @JsonProperty("changed_at") Instant changedAt) {
+
+    /**
+     * Creates the change described by a change log entry.
+     *
+     * @param change The change log entry.
+     * @return The relationship change.
+     */
+    public static RelationshipChange of(RelationshipChangeModel change) {
+        boolean hasPatient = change.getPatient() != null;
+        return new RelationshipChange(change.getRelationshipId(), change.getOperation(), change.getVersion(),
+                change.getSourceEntityId(), change.getDestinationEntityId(), change.getRelationshipType(),
+                hasPatient ? change.getPatient().getPatientType() : null,
+                hasPatient ? change.getPatient().getContactPhone() : null,
+                hasPatient ? change.getPatient().getInstructions() : null,
+                change.getChangedAt());
+    }
+}
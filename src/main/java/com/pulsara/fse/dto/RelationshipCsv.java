@@ -0,0 +1,130 @@
+package com.pulsara.fse.dto;
+
+import com.pulsara.fse.graph.RelationshipEdgeRow;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV format of relationship rows used by bulk import and export. Every line
+ * holds the columns of {@link #HEADER}; values containing a comma, quote or line
+ * break are quoted, and empty values are read as null.
+ */
+public final class RelationshipCsv {
+
+    /**
+     * The header line of a relationship CSV file.
+     */
+    public static final String HEADER = "source_entity_id,destination_entity_id,relationship_type,patient_type,"
+            + "contact_phone,instructions";
+
+    private static final int COLUMN_COUNT = 6;
+
+    private RelationshipCsv() {
+    }
+
+    /**
+     * Formats a relationship row as a CSV line, without line terminator.
+     *
+     * @param row The relationship row.
+     * @return The CSV line.
+     */
+    public static String format(RelationshipEdgeRow row) {
+        StringBuilder line = new StringBuilder(64);
+        line.append(row.sourceEntityId()).append(',')
+                .append(row.destinationEntityId()).append(',')
+                .append(row.relationshipType()).append(',');
+        if (row.patientType() != null) {
+            line.append(row.patientType());
+        }
+        line.append(',');
+        appendQuoted(line, row.contactPhone());
+        line.append(',');
+        appendQuoted(line, row.instructions());
+        return line.toString();
+    }
+
+    private static void appendQuoted(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Parses a CSV line into a relationship row.
+     *
+     * @param line The CSV line, without line terminator.
+     * @return The relationship row.
+     * @throws IllegalArgumentException If the line does not have the expected
+     *                                  columns or holds an invalid value.
+     */
+    public static RelationshipEdgeRow parse(String line) {
+        List<String> values = split(line);
+        if (values.size() != COLUMN_COUNT) {
+            throw new IllegalArgumentException("Expected " + COLUMN_COUNT + " columns but found " + values.size());
+        }
+        if (values.get(0) == null || values.get(1) == null || values.get(2) == null) {
+            throw new IllegalArgumentException("source_entity_id, destination_entity_id and relationship_type "
+                    + "are required");
+        }
+        return new RelationshipEdgeRow(
+                Long.valueOf(values.get(0).trim()),
+                Long.valueOf(values.get(1).trim()),
+                RelationshipType.valueOf(values.get(2).trim()),
+                values.get(3) == null ? null : PatientType.valueOf(values.get(3).trim()),
+                values.get(4),
+                values.get(5));
+    }
+
+    /**
+     * Checks whether a line is the header line.
+     *
+     * @param line The line.
+     * @return True if the line is the header line.
+     */
+    public static boolean isHeader(String line) {
+        return line.trim().equalsIgnoreCase(HEADER);
+    }
+
+    private static List<String> split(String line) {
+        List<String> values = new ArrayList<>(COLUMN_COUNT);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                values.add(value.length() == 0 && !wasQuoted ? null : value.toString());
+                value.setLength(0);
+                wasQuoted = false;
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(value.length() == 0 && !wasQuoted ? null : value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,65 @@
+package com.pulsara.fse.dto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Set;
+
+import com.pulsara.fse.models.RelationshipType;
+
+/**
+ * Serialized JSON response of the relationships of a source entity, held off
+ * the Java heap and written to responses as is.
+ *
+ * @param sourceEntityId    The ID of the source entity.
+ * @param relationshipTypes The relationship types of the response, empty for
+ *                          all.
+ * @param versionStamp      The relationship version stamp of the source entity
+ *                          the response was built at.
+ * @param body              The JSON bytes, in a read-only direct buffer.
+ */
+public record RelationshipSnapshot(long sourceEntityId, Set<RelationshipType> relationshipTypes,
+        String versionStamp, ByteBuffer body) {
+
+    /**
+     * Creates a snapshot, copying the JSON bytes off the heap.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param relationshipTypes The relationship types of the response.
+     * @param versionStamp      The relationship version stamp of the source
+     *                          entity.
+     * @param json              The JSON bytes.
+     * @return The snapshot.
+     */
+    public static RelationshipSnapshot of(long sourceEntityId, Set<RelationshipType> relationshipTypes,
+            String versionStamp, byte[] json) {
+        ByteBuffer body = ByteBuffer.allocateDirect(json.length).put(json).flip();
+        return new RelationshipSnapshot(sourceEntityId, Set.copyOf(relationshipTypes), versionStamp,
+                body.asReadOnlyBuffer());
+    }
+
+    /**
+     * Gets the length of the JSON bytes.
+     *
+     * @return The length in bytes.
+     */
+    public int length() {
+        return body.capacity();
+    }
+
+    /**
+     * Writes the JSON bytes to an output stream. Safe to call concurrently.
+     *
+     * @param outputStream The stream to write to, not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        ByteBuffer bytes = body.duplicate();
+        WritableByteChannel channel = Channels.newChannel(outputStream);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
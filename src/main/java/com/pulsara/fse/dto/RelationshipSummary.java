@@ -0,0 +1,27 @@
+package com.pulsara.fse.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.pulsara.fse.models.Patient;
+
+import java.util.List;
+
+/**
+ * Relationships of a source entity to a destination entity for one
+ * relationship type, serialized as {"source", "destination", "patient_types"}.
+ * Components left null by a field projection are omitted from the JSON.
+ * Relationships are grouped by (relationship type, destination) before they are
+ * mapped, so summaries are never deduplicated by value and the shared source
+ * summary and patient list are not copied.
+ *
+ * @param source       The source entity, or null if not projected.
+ * @param destination  The destination entity, or null if not projected.
+ * @param patientTypes The patients of every merged relationship row, or null if
+ *                     not projected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({ "source", "destination", "patient_types" })
+public record RelationshipSummary(EntitySummary source, EntitySummary destination,
+        @JsonProperty("patient_types") List<Patient> patientTypes) {
+}
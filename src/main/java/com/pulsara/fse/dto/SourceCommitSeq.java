@@ -0,0 +1,11 @@
+package com.pulsara.fse.dto;
+
+/**
+ * Commit sequence number of the last logged relationship change of a source
+ * entity, read without materializing change log entries.
+ *
+ * @param sourceEntityId The ID of the source entity.
+ * @param commitSeq      The commit sequence number of its last logged change.
+ */
+public record SourceCommitSeq(Long sourceEntityId, Long commitSeq) {
+}
@@ -0,0 +1,13 @@
+package com.pulsara.fse.dto;
+
+import java.time.Instant;
+
+/**
+ * Time the relationship summary of a source entity was last written, read
+ * without the summary itself.
+ *
+ * @param sourceEntityId The ID of the source entity.
+ * @param updatedAt      The last modification time of its summary.
+ */
+public record SourceUpdatedAt(Long sourceEntityId, Instant updatedAt) {
+}
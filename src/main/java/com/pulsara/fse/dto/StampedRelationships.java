@@ -0,0 +1,16 @@
+package com.pulsara.fse.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grouped relationships of a source entity together with the relationship
+ * version stamp they were read at.
+ *
+ * @param versionStamp  The relationship version stamp of the source entity,
+ *                      read in the transaction that loaded the relationships,
+ *                      or null if it was not read.
+ * @param relationships The relationships grouped by relationship type.
+ */
+public record StampedRelationships(String versionStamp, Map<String, List<RelationshipSummary>> relationships) {
+}
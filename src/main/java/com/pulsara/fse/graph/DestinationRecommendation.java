@@ -0,0 +1,29 @@
+package com.pulsara.fse.graph;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.List;
+
+/**
+ * Destination recommended for a patient type from a source entity, serialized
+ * as {"rank", "id", "name", "type", "relationship_types", "contact_phone",
+ * "instructions"}.
+ *
+ * @param rank              The rank of the destination, starting at 1.
+ * @param id                The ID of the destination entity.
+ * @param name              The name of the destination entity.
+ * @param type              The type of the destination entity.
+ * @param relationshipTypes The relationship types from the source entity to the
+ *                          destination entity accepting the patient type.
+ * @param contactPhone      The contact phone for the patient type, may be null.
+ * @param instructions      The instructions for the patient type, may be null.
+ */
+@JsonPropertyOrder({ "rank", "id", "name", "type", "relationship_types", "contact_phone", "instructions" })
+public record DestinationRecommendation(int rank, Long id, String name, EntityType type,
+        @JsonProperty("relationship_types") List<RelationshipType> relationshipTypes,
+        @JsonProperty("contact_phone") String contactPhone,
+        String instructions) {
+}
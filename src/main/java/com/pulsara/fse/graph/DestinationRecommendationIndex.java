@@ -0,0 +1,235 @@
+package com.pulsara.fse.graph;
+
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable inverted index of a {@link RelationshipGraph} from a patient type
+ * and a source entity to the destinations accepting that patient type, in rank
+ * order. Every (source, destination) pair appears once per patient type, however
+ * many relationship types and rows connect them. Destinations are ranked by:
+ * <ol>
+ * <li>the most direct relationship type accepting the patient type, in
+ * {@link RelationshipType} order, so TRANSPORT before TRANSFER before
+ * MUTUAL_AID;</li>
+ * <li>the number of relationship types accepting the patient type, most
+ * first;</li>
+ * <li>whether a contact phone or instructions are given for the patient
+ * type;</li>
+ * <li>the destination name, then ID.</li>
+ * </ol>
+ * The ranking does not depend on the filters of a query, which only skip
+ * destinations, so a top-K query reads at most K entries past the skipped ones
+ * and never sorts.
+ *
+ * @see RelationshipGraph
+ * @since 1.0
+ */
+public final class DestinationRecommendationIndex {
+
+    private static final RelationshipType[] RELATIONSHIP_TYPES = RelationshipType.values();
+    private static final PatientType[] PATIENT_TYPES = PatientType.values();
+
+    private final RelationshipGraph graph;
+
+    // entry ranges, indexed by patient type ordinal * node count + source node
+    private final int[] offsets;
+
+    // entry data, indexed by entry
+    private final int[] destinations;
+    private final int[] relationshipMasks;
+    private final Patient[] patients;
+
+    private DestinationRecommendationIndex(RelationshipGraph graph, int[] offsets, int[] destinations,
+            int[] relationshipMasks, Patient[] patients) {
+        this.graph = graph;
+        this.offsets = offsets;
+        this.destinations = destinations;
+        this.relationshipMasks = relationshipMasks;
+        this.patients = patients;
+    }
+
+    /**
+     * Builds the index of a relationship graph.
+     *
+     * @param graph The relationship graph.
+     * @return The index.
+     */
+    public static DestinationRecommendationIndex build(RelationshipGraph graph) {
+        int nodeCount = graph.nodeCount();
+        int[] offsets = new int[PATIENT_TYPES.length * nodeCount + 1];
+        int[] destinations = new int[16];
+        int[] relationshipMasks = new int[16];
+        Patient[] patients = new Patient[16];
+        int entryCount = 0;
+
+        // slot of every destination node among the entries of the current source,
+        // reset after each source
+        int[] slots = new int[nodeCount];
+        Arrays.fill(slots, -1);
+
+        for (PatientType patientType : PATIENT_TYPES) {
+            for (int source = 0; source < nodeCount; source++) {
+                int first = entryCount;
+                offsets[patientType.ordinal() * nodeCount + source] = first;
+                // relationship types are visited in rank order, so the first
+                // relationship type and patient of a destination are its best ones
+                for (RelationshipType relationshipType : RELATIONSHIP_TYPES) {
+                    int end = graph.edgeEnd(source, relationshipType);
+                    for (int edge = graph.edgeStart(source, relationshipType); edge < end; edge++) {
+                        if (!graph.accepts(edge, patientType)) {
+                            continue;
+                        }
+                        int target = graph.target(edge);
+                        int entry = slots[target];
+                        if (entry < 0) {
+                            if (entryCount == destinations.length) {
+                                int capacity = entryCount * 2;
+                                destinations = Arrays.copyOf(destinations, capacity);
+                                relationshipMasks = Arrays.copyOf(relationshipMasks, capacity);
+                                patients = Arrays.copyOf(patients, capacity);
+                            }
+                            entry = entryCount++;
+                            slots[target] = entry;
+                            destinations[entry] = target;
+                        }
+                        relationshipMasks[entry] |= 1 << relationshipType.ordinal();
+                        if (patients[entry] == null) {
+                            patients[entry] = contactOf(graph.patients(edge), patientType);
+                        }
+                    }
+                }
+                for (int entry = first; entry < entryCount; entry++) {
+                    slots[destinations[entry]] = -1;
+                }
+                sortEntries(graph, destinations, relationshipMasks, patients, first, entryCount);
+            }
+        }
+        offsets[offsets.length - 1] = entryCount;
+
+        return new DestinationRecommendationIndex(graph, offsets, Arrays.copyOf(destinations, entryCount),
+                Arrays.copyOf(relationshipMasks, entryCount), Arrays.copyOf(patients, entryCount));
+    }
+
+    /**
+     * Gets the patient of a merged edge giving contact details for a patient type.
+     *
+     * @param edgePatients The patients of the rows merged into the edge.
+     * @param patientType  The patient type.
+     * @return The first patient of the patient type with a contact phone or
+     *         instructions, or null if there is none.
+     */
+    private static Patient contactOf(List<Patient> edgePatients, PatientType patientType) {
+        for (Patient patient : edgePatients) {
+            if (patient != null && patient.getPatientType() == patientType
+                    && (patient.getContactPhone() != null || patient.getInstructions() != null)) {
+                return patient;
+            }
+        }
+        return null;
+    }
+
+    private static void sortEntries(RelationshipGraph graph, int[] destinations, int[] relationshipMasks,
+            Patient[] patients, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        Integer[] order = new Integer[to - from];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = from + i;
+        }
+        Arrays.sort(order, Comparator
+                .<Integer>comparingInt(entry -> Integer.numberOfTrailingZeros(relationshipMasks[entry]))
+                .thenComparingInt(entry -> -Integer.bitCount(relationshipMasks[entry]))
+                .thenComparing(entry -> patients[entry] == null)
+                .thenComparing(entry -> graph.name(destinations[entry]),
+                        Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingLong(entry -> graph.entityId(destinations[entry])));
+
+        int[] sortedDestinations = new int[order.length];
+        int[] sortedMasks = new int[order.length];
+        Patient[] sortedPatients = new Patient[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedDestinations[i] = destinations[order[i]];
+            sortedMasks[i] = relationshipMasks[order[i]];
+            sortedPatients[i] = patients[order[i]];
+        }
+        System.arraycopy(sortedDestinations, 0, destinations, from, order.length);
+        System.arraycopy(sortedMasks, 0, relationshipMasks, from, order.length);
+        System.arraycopy(sortedPatients, 0, patients, from, order.length);
+    }
+
+    /**
+     * Gets the relationship graph this index was built from.
+     *
+     * @return The relationship graph.
+     */
+    public RelationshipGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Gets the number of (patient type, source, destination) entries of the index.
+     *
+     * @return The number of entries.
+     */
+    public int entryCount() {
+        return destinations.length;
+    }
+
+    /**
+     * Gets the top ranked destinations accepting a patient type from a source
+     * entity.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param patientType       The patient type.
+     * @param relationshipMask  The bitset of relationship type ordinals of which a
+     *                          destination must be reached by at least one, or 0
+     *                          for any relationship type.
+     * @param destinationType   The entity type of the destinations, or null for
+     *                          any type.
+     * @param limit             The maximum number of destinations.
+     * @return The destinations in rank order, ranked from 1 after filtering.
+     */
+    public List<DestinationRecommendation> recommend(long sourceEntityId, PatientType patientType,
+            int relationshipMask, EntityType destinationType, int limit) {
+        int source = graph.indexOf(sourceEntityId);
+        if (source < 0) {
+            return List.of();
+        }
+        int bucket = patientType.ordinal() * graph.nodeCount() + source;
+        int end = offsets[bucket + 1];
+        List<DestinationRecommendation> recommendations = new ArrayList<>(Math.min(limit, end - offsets[bucket]));
+        for (int entry = offsets[bucket]; entry < end && recommendations.size() < limit; entry++) {
+            int destination = destinations[entry];
+            if ((relationshipMask != 0 && (relationshipMasks[entry] & relationshipMask) == 0)
+                    || (destinationType != null && graph.entityType(destination) != destinationType)) {
+                continue;
+            }
+            Patient patient = patients[entry];
+            recommendations.add(new DestinationRecommendation(recommendations.size() + 1,
+                    graph.entityId(destination), graph.name(destination), graph.entityType(destination),
+                    relationshipTypesOf(relationshipMasks[entry]),
+                    patient == null ? null : patient.getContactPhone(),
+                    patient == null ? null : patient.getInstructions()));
+        }
+        return recommendations;
+    }
+
+    private static List<RelationshipType> relationshipTypesOf(int mask) {
+        List<RelationshipType> relationshipTypes = new ArrayList<>(Integer.bitCount(mask));
+        for (RelationshipType relationshipType : RELATIONSHIP_TYPES) {
+            if ((mask & (1 << relationshipType.ordinal())) != 0) {
+                relationshipTypes.add(relationshipType);
+            }
+        }
+        return relationshipTypes;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pulsara.fse.graph;
+
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Filter applied to a single hop of a multi-hop traversal of the relationship
+ * graph.
+ *
+ * @param relationshipTypes The relationship types an edge of this hop may have.
+ * @param patientMask       The bitset of patient types of which an edge of this
+ *                          hop must accept at least one, or 0 to accept any edge.
+ */
+public record HopFilter(Set<RelationshipType> relationshipTypes, int patientMask) {
+
+    /**
+     * Parses a hop filter of the form TYPE[|TYPE...][:PATIENT_TYPE[|PATIENT_TYPE...]],
+     * for example TRANSPORT or TRANSPORT|TRANSFER:STROKE.
+     *
+     * @param hop The hop filter to be parsed.
+     * @return The parsed hop filter.
+     * @throws IllegalArgumentException If the hop filter contains an unknown
+     *                                  relationship or patient type.
+     */
+    public static HopFilter parse(String hop) {
+        String[] parts = hop.split(":", 2);
+
+        Set<RelationshipType> relationshipTypes = EnumSet.noneOf(RelationshipType.class);
+        for (String relationshipType : parts[0].split("\\|")) {
+            relationshipTypes.add(RelationshipType.valueOf(relationshipType.trim()));
+        }
+
+        int patientMask = 0;
+        if (parts.length > 1) {
+            for (String patientType : parts[1].split("\\|")) {
+                patientMask |= RelationshipGraph.maskOf(PatientType.valueOf(patientType.trim()));
+            }
+        }
+        return new HopFilter(relationshipTypes, patientMask);
+    }
+
+    /**
+     * Checks whether an edge of the graph passes the patient type filter of this
+     * hop.
+     *
+     * @param graph The relationship graph.
+     * @param edge  The edge index.
+     * @return True if the edge accepts one of the patient types of this hop.
+     */
+    public boolean accepts(RelationshipGraph graph, int edge) {
+        return patientMask == 0 || (graph.patientMask(edge) & patientMask) != 0;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pulsara.fse.graph;
+
+import com.pulsara.fse.models.EntityType;
+
+import java.util.List;
+
+/**
+ * Entity reached by a multi-hop traversal of the relationship graph.
+ *
+ * @param id   The ID of the reached entity.
+ * @param name The name of the reached entity.
+ * @param type The type of the reached entity.
+ * @param hops The number of hops from the source entity.
+ * @param path The IDs of the entities on the path from the source entity to the
+ *             reached entity, both included.
+ */
+public record ReachableEntity(Long id, String name, EntityType type, int hops, List<Long> path) {
+}
@@ -0,0 +1,24 @@
+package com.pulsara.fse.graph;
+
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+/**
+ * Scalar projection of a single row of TBL_ENTITY_RELATIONSHIPS, used to load
+ * the relationship graph without materializing JPA entities.
+ *
+ * @param sourceEntityId      The ID of the source entity.
+ * @param destinationEntityId The ID of the destination entity.
+ * @param relationshipType    The relationship type.
+ * @param patientType         The patient type, may be null.
+ * @param contactPhone        The contact phone, may be null.
+ * @param instructions        The instructions, may be null.
+ */
+public record RelationshipEdgeRow(
+        Long sourceEntityId,
+        Long destinationEntityId,
+        RelationshipType relationshipType,
+        PatientType patientType,
+        String contactPhone,
+        String instructions) {
+}
@@ -0,0 +1,475 @@
+package com.pulsara.fse.graph;
+
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compressed sparse row (CSR) representation of the whole entity
+ * relationship graph.
+ * Entities are addressed by a dense node index obtained from their primitive
+ * entity ID. The outgoing edges of every node are bucketed by
+ * {@link RelationshipType} ordinal and sorted by destination, and all rows
+ * sharing the same (source, relationship type, destination) are merged into a
+ * single edge carrying a bitset of the accepted {@link PatientType} ordinals and
+ * references to the distinct patient records of the merged rows. A reverse index
+ * lists the incoming edges of every node, bucketed the same way and sorted by
+ * source, for lookups by destination.
+ *
+ * @see Builder
+ * @since 1.0
+ */
+public final class RelationshipGraph {
+
+    private static final RelationshipType[] RELATIONSHIP_TYPES = RelationshipType.values();
+    private static final PatientType[] PATIENT_TYPES = PatientType.values();
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+    private static final int TYPE_COUNT = RELATIONSHIP_TYPES.length;
+
+    // node data, indexed by node
+    private final long[] nodeIds;
+    private final String[] names;
+    private final byte[] entityTypes;
+
+    // edge ranges, indexed by node * TYPE_COUNT + relationship type ordinal
+    private final int[] offsets;
+
+    // edge data, indexed by edge
+    private final int[] targets;
+    private final int[] patientMasks;
+    private final int[] patientOffsets;
+
+    // patient references, indexed by patientOffsets, into the shared patient pool
+    private final int[] patientRefs;
+    private final Patient[] patientPool;
+
+    // incoming edge ranges, indexed by node * TYPE_COUNT + relationship type
+    // ordinal, holding the source node and forward edge of every incoming edge
+    private final int[] reverseOffsets;
+    private final int[] reverseSources;
+    private final int[] reverseEdges;
+
+    private RelationshipGraph(long[] nodeIds, String[] names, byte[] entityTypes, int[] offsets, int[] targets,
+            int[] patientMasks, int[] patientOffsets, int[] patientRefs, Patient[] patientPool,
+            int[] reverseOffsets, int[] reverseSources, int[] reverseEdges) {
+        this.nodeIds = nodeIds;
+        this.names = names;
+        this.entityTypes = entityTypes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.patientMasks = patientMasks;
+        this.patientOffsets = patientOffsets;
+        this.patientRefs = patientRefs;
+        this.patientPool = patientPool;
+        this.reverseOffsets = reverseOffsets;
+        this.reverseSources = reverseSources;
+        this.reverseEdges = reverseEdges;
+    }
+
+    /**
+     * Gets the number of nodes (entities) in the graph.
+     *
+     * @return The number of nodes.
+     */
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    /**
+     * Gets the number of merged edges in the graph.
+     *
+     * @return The number of edges.
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Gets the node index of an entity.
+     *
+     * @param entityId The ID of the entity.
+     * @return The node index, or -1 if the entity is not part of the graph.
+     */
+    public int indexOf(long entityId) {
+        int index = Arrays.binarySearch(nodeIds, entityId);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Gets the entity ID of a node.
+     *
+     * @param node The node index.
+     * @return The entity ID.
+     */
+    public long entityId(int node) {
+        return nodeIds[node];
+    }
+
+    /**
+     * Gets the entity name of a node.
+     *
+     * @param node The node index.
+     * @return The entity name.
+     */
+    public String name(int node) {
+        return names[node];
+    }
+
+    /**
+     * Gets the entity type of a node.
+     *
+     * @param node The node index.
+     * @return The entity type, or null if the entity has no type.
+     */
+    public EntityType entityType(int node) {
+        byte ordinal = entityTypes[node];
+        return ordinal < 0 ? null : ENTITY_TYPES[ordinal];
+    }
+
+    /**
+     * Gets the first edge of a node for a relationship type.
+     *
+     * @param node             The node index.
+     * @param relationshipType The relationship type.
+     * @return The index of the first edge, inclusive.
+     */
+    public int edgeStart(int node, RelationshipType relationshipType) {
+        return offsets[node * TYPE_COUNT + relationshipType.ordinal()];
+    }
+
+    /**
+     * Gets the end of the edges of a node for a relationship type.
+     *
+     * @param node             The node index.
+     * @param relationshipType The relationship type.
+     * @return The index after the last edge, exclusive.
+     */
+    public int edgeEnd(int node, RelationshipType relationshipType) {
+        return offsets[node * TYPE_COUNT + relationshipType.ordinal() + 1];
+    }
+
+    /**
+     * Gets the first incoming edge of a node for a relationship type.
+     *
+     * @param node             The node index.
+     * @param relationshipType The relationship type.
+     * @return The position of the first incoming edge in the reverse index,
+     *         inclusive.
+     */
+    public int reverseEdgeStart(int node, RelationshipType relationshipType) {
+        return reverseOffsets[node * TYPE_COUNT + relationshipType.ordinal()];
+    }
+
+    /**
+     * Gets the end of the incoming edges of a node for a relationship type.
+     *
+     * @param node             The node index.
+     * @param relationshipType The relationship type.
+     * @return The position after the last incoming edge in the reverse index,
+     *         exclusive.
+     */
+    public int reverseEdgeEnd(int node, RelationshipType relationshipType) {
+        return reverseOffsets[node * TYPE_COUNT + relationshipType.ordinal() + 1];
+    }
+
+    /**
+     * Gets the source node of an incoming edge.
+     *
+     * @param position The position of the incoming edge in the reverse index.
+     * @return The source node index.
+     */
+    public int reverseSource(int position) {
+        return reverseSources[position];
+    }
+
+    /**
+     * Gets the edge of an incoming edge, for its patients and patient types.
+     *
+     * @param position The position of the incoming edge in the reverse index.
+     * @return The edge index.
+     */
+    public int reverseEdge(int position) {
+        return reverseEdges[position];
+    }
+
+    /**
+     * Gets the destination node of an edge.
+     *
+     * @param edge The edge index.
+     * @return The destination node index.
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Gets the bitset of patient type ordinals accepted by an edge.
+     *
+     * @param edge The edge index.
+     * @return The patient type bitset.
+     */
+    public int patientMask(int edge) {
+        return patientMasks[edge];
+    }
+
+    /**
+     * Checks whether an edge accepts a patient type.
+     *
+     * @param edge        The edge index.
+     * @param patientType The patient type.
+     * @return True if any merged row of the edge has the patient type.
+     */
+    public boolean accepts(int edge, PatientType patientType) {
+        return (patientMasks[edge] & maskOf(patientType)) != 0;
+    }
+
+    /**
+     * Gets the patient records of the rows merged into an edge, in row order.
+     * Rows without any patient column have a null patient.
+     *
+     * @param edge The edge index.
+     * @return The patients of the edge.
+     */
+    public List<Patient> patients(int edge) {
+        int start = patientOffsets[edge];
+        int end = patientOffsets[edge + 1];
+        List<Patient> patients = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            patients.add(patientPool[patientRefs[i]]);
+        }
+        return patients;
+    }
+
+    /**
+     * Gets the bitset mask of a patient type.
+     *
+     * @param patientType The patient type.
+     * @return The mask with only the bit of the patient type set.
+     */
+    public static int maskOf(PatientType patientType) {
+        return 1 << patientType.ordinal();
+    }
+
+    /**
+     * Gets the patient types of a patient type bitset.
+     *
+     * @param mask The patient type bitset.
+     * @return The patient types in ordinal order.
+     */
+    public static List<PatientType> patientTypesOf(int mask) {
+        List<PatientType> patientTypes = new ArrayList<>(Integer.bitCount(mask));
+        for (PatientType patientType : PATIENT_TYPES) {
+            if ((mask & maskOf(patientType)) != 0) {
+                patientTypes.add(patientType);
+            }
+        }
+        return patientTypes;
+    }
+
+    /**
+     * Builder collecting entities and relationship rows into a
+     * {@link RelationshipGraph}. Rows referencing entities that were not added are
+     * ignored.
+     */
+    public static final class Builder {
+
+        private final Map<Long, Integer> nodeIndexById = new HashMap<>();
+        private final List<EntityModel> entities = new ArrayList<>();
+
+        private int rowCount;
+        private long[] sourceIds = new long[1024];
+        private long[] destinationIds = new long[1024];
+        private byte[] relationshipTypes = new byte[1024];
+        private int[] patientRefs = new int[1024];
+
+        private final Map<List<Object>, Integer> patientIndex = new HashMap<>();
+        private final List<Patient> patientPool = new ArrayList<>();
+
+        /**
+         * Adds an entity as a node of the graph.
+         *
+         * @param entity The entity to be added.
+         * @return This builder.
+         */
+        public Builder addEntity(EntityModel entity) {
+            if (entity.getId() != null && nodeIndexById.putIfAbsent(entity.getId(), entities.size()) == null) {
+                entities.add(entity);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a relationship row as an edge of the graph.
+         *
+         * @param row The relationship row to be added.
+         * @return This builder.
+         */
+        public Builder addRow(RelationshipEdgeRow row) {
+            if (row.sourceEntityId() == null || row.destinationEntityId() == null
+                    || row.relationshipType() == null) {
+                return this;
+            }
+            if (rowCount == sourceIds.length) {
+                int capacity = rowCount * 2;
+                sourceIds = Arrays.copyOf(sourceIds, capacity);
+                destinationIds = Arrays.copyOf(destinationIds, capacity);
+                relationshipTypes = Arrays.copyOf(relationshipTypes, capacity);
+                patientRefs = Arrays.copyOf(patientRefs, capacity);
+            }
+            sourceIds[rowCount] = row.sourceEntityId();
+            destinationIds[rowCount] = row.destinationEntityId();
+            relationshipTypes[rowCount] = (byte) row.relationshipType().ordinal();
+            patientRefs[rowCount] = internPatient(row);
+            rowCount++;
+            return this;
+        }
+
+        private int internPatient(RelationshipEdgeRow row) {
+            List<Object> key = Arrays.asList(row.patientType(), row.contactPhone(), row.instructions());
+            return patientIndex.computeIfAbsent(key, k -> {
+                patientPool.add(patientOf(row));
+                return patientPool.size() - 1;
+            });
+        }
+
+        /**
+         * Maps the patient columns of a row like the embedded {@link Patient} of a
+         * loaded relationship, which is null when every column is null, so that
+         * the index serves the same JSON as a query.
+         */
+        private static Patient patientOf(RelationshipEdgeRow row) {
+            if (row.patientType() == null && row.contactPhone() == null && row.instructions() == null) {
+                return null;
+            }
+            Patient patient = new Patient();
+            patient.setPatientType(row.patientType());
+            patient.setContactPhone(row.contactPhone());
+            patient.setInstructions(row.instructions());
+            return patient;
+        }
+
+        /**
+         * Builds the graph.
+         *
+         * @return The immutable relationship graph.
+         */
+        public RelationshipGraph build() {
+            int nodeCount = entities.size();
+
+            // sort nodes by entity id so they can be located by binary search
+            long[] nodeIds = new long[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                nodeIds[i] = entities.get(i).getId();
+            }
+            Arrays.sort(nodeIds);
+            String[] names = new String[nodeCount];
+            byte[] entityTypes = new byte[nodeCount];
+            for (EntityModel entity : entities) {
+                int node = Arrays.binarySearch(nodeIds, entity.getId());
+                names[node] = entity.getName();
+                entityTypes[node] = entity.getEntityType() == null ? -1 : (byte) entity.getEntityType().ordinal();
+            }
+
+            // counting sort of the rows into (source node, relationship type) buckets
+            int bucketCount = nodeCount * TYPE_COUNT;
+            int[] bucketStarts = new int[bucketCount + 1];
+            int[] rowSources = new int[rowCount];
+            int[] rowTargets = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                int source = Arrays.binarySearch(nodeIds, sourceIds[row]);
+                int target = Arrays.binarySearch(nodeIds, destinationIds[row]);
+                if (source < 0 || target < 0) {
+                    rowSources[row] = -1;
+                    continue;
+                }
+                rowSources[row] = source;
+                rowTargets[row] = target;
+                bucketStarts[source * TYPE_COUNT + relationshipTypes[row] + 1]++;
+            }
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                bucketStarts[bucket + 1] += bucketStarts[bucket];
+            }
+            int validRows = bucketStarts[bucketCount];
+            long[] sorted = new long[validRows];
+            int[] cursor = Arrays.copyOf(bucketStarts, bucketCount);
+            for (int row = 0; row < rowCount; row++) {
+                if (rowSources[row] >= 0) {
+                    int bucket = rowSources[row] * TYPE_COUNT + relationshipTypes[row];
+                    sorted[cursor[bucket]++] = ((long) rowTargets[row] << 32) | row;
+                }
+            }
+
+            // sort each bucket by destination (then row) and merge rows sharing a
+            // destination into a single edge
+            int[] offsets = new int[bucketCount + 1];
+            int[] targets = new int[validRows];
+            int[] patientMasks = new int[validRows];
+            int[] patientOffsets = new int[validRows + 1];
+            int[] refs = new int[validRows];
+            int edgeCount = 0;
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                offsets[bucket] = edgeCount;
+                int from = bucketStarts[bucket];
+                int to = bucketStarts[bucket + 1];
+                Arrays.sort(sorted, from, to);
+                int previousTarget = -1;
+                for (int i = from; i < to; i++) {
+                    int target = (int) (sorted[i] >>> 32);
+                    int row = (int) sorted[i];
+                    if (target != previousTarget) {
+                        targets[edgeCount] = target;
+                        patientOffsets[edgeCount] = i;
+                        edgeCount++;
+                        previousTarget = target;
+                    }
+                    refs[i] = patientRefs[row];
+                    Patient patient = patientPool.get(patientRefs[row]);
+                    if (patient != null && patient.getPatientType() != null) {
+                        patientMasks[edgeCount - 1] |= maskOf(patient.getPatientType());
+                    }
+                }
+            }
+            offsets[bucketCount] = edgeCount;
+            patientOffsets[edgeCount] = validRows;
+
+            // counting sort of the edges into (target node, relationship type)
+            // buckets; edges are visited in source order, so every bucket of the
+            // reverse index is sorted by source
+            int[] reverseOffsets = new int[bucketCount + 1];
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                int type = bucket % TYPE_COUNT;
+                for (int edge = offsets[bucket]; edge < offsets[bucket + 1]; edge++) {
+                    reverseOffsets[targets[edge] * TYPE_COUNT + type + 1]++;
+                }
+            }
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                reverseOffsets[bucket + 1] += reverseOffsets[bucket];
+            }
+            int[] reverseSources = new int[edgeCount];
+            int[] reverseEdges = new int[edgeCount];
+            int[] reverseCursor = Arrays.copyOf(reverseOffsets, bucketCount);
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                int source = bucket / TYPE_COUNT;
+                int type = bucket % TYPE_COUNT;
+                for (int edge = offsets[bucket]; edge < offsets[bucket + 1]; edge++) {
+                    int position = reverseCursor[targets[edge] * TYPE_COUNT + type]++;
+                    reverseSources[position] = source;
+                    reverseEdges[position] = edge;
+                }
+            }
+
+            return new RelationshipGraph(nodeIds, names, entityTypes, offsets,
+                    Arrays.copyOf(targets, edgeCount), Arrays.copyOf(patientMasks, edgeCount),
+                    Arrays.copyOf(patientOffsets, edgeCount + 1), refs,
+                    patientPool.toArray(new Patient[0]), reverseOffsets, reverseSources, reverseEdges);
+        }
+    }
+}
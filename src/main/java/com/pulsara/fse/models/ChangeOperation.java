@@ -0,0 +1,12 @@
+package com.pulsara.fse.models;
+
+/**
+ * The kind of change recorded in the relationship change log. The bulk import
+ * records INSERT; UPDATE and DELETE are kept for write paths that update or
+ * delete relationships.
+ */
+public enum ChangeOperation {
+    INSERT,
+    UPDATE,
+    DELETE
+}
@@ -1,16 +1,29 @@
 package com.pulsara.fse.models;
 
+import java.time.Instant;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SourceType;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * Represents an Entity
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "TBL_ENTITIES")
 public class EntityModel {
 
@@ -23,6 +36,13 @@ public class EntityModel {
     @Column(name = "entity_type")
     private EntityType entityType;
 
+    @Version
+    private Long version;
+
+    @UpdateTimestamp(source = SourceType.DB)
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     // getters and setters
 
     /**
@@ -52,8 +72,35 @@ public class EntityModel {
         return entityType;
     }
 
-    public void setId(long l) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setId'");
+    /**
+     * Gets the version of the Entity, incremented on every update.
+     *
+     * @return The version of the Entity.
+     */
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the time the Entity was last inserted or updated.
+     *
+     * @return The last modification time of the Entity.
+     */
+    @JsonIgnore
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setEntityType(EntityType entityType) {
+        this.entityType = entityType;
     }
 }
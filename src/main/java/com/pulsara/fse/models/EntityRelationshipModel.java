@@ -1,24 +1,42 @@
 package com.pulsara.fse.models;
 
+import java.time.Instant;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SourceType;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.pulsara.fse.repository.EntityRelationshipRepository;
 import com.pulsara.fse.service.EntityRelationshipService;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * Represents an entity relationship between two entities.
  * This class defines the structure and behavior of entity relationships.
+ * <p>
+ * The source and destination entities are loaded lazily. Finders that return
+ * relationships whose entities are read name one of the entity graphs below, so
+ * that exactly the associations they map are fetched in the same select.
  *
  * @see EntityModel
  * @see RelationshipType
@@ -29,19 +47,46 @@ import jakarta.persistence.Table;
  */
 
 @Entity
-@Table(name = "TBL_ENTITY_RELATIONSHIPS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "TBL_ENTITY_RELATIONSHIPS", indexes = {
+        @Index(name = "idx_relationships_source_type_destination",
+                columnList = "source_entity_id, relationship_type, destination_entity_id"),
+        @Index(name = "idx_relationships_destination_type", columnList = "destination_entity_id, relationship_type")
+})
+@NamedEntityGraph(name = EntityRelationshipModel.WITH_SOURCE,
+        attributeNodes = @NamedAttributeNode("sourceEntity"))
+@NamedEntityGraph(name = EntityRelationshipModel.WITH_DESTINATION,
+        attributeNodes = @NamedAttributeNode("destinationEntity"))
+@NamedEntityGraph(name = EntityRelationshipModel.WITH_ENTITIES,
+        attributeNodes = { @NamedAttributeNode("sourceEntity"), @NamedAttributeNode("destinationEntity") })
 @JsonPropertyOrder({ "sourceEntity", "destinationEntity" })
 public class EntityRelationshipModel {
 
+    /**
+     * Name of the entity graph fetching the source entity.
+     */
+    public static final String WITH_SOURCE = "EntityRelationshipModel.withSource";
+
+    /**
+     * Name of the entity graph fetching the destination entity.
+     */
+    public static final String WITH_DESTINATION = "EntityRelationshipModel.withDestination";
+
+    /**
+     * Name of the entity graph fetching the source and destination entities.
+     */
+    public static final String WITH_ENTITIES = "EntityRelationshipModel.withEntities";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "source_entity_id", referencedColumnName = "id")
     private EntityModel sourceEntity;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "destination_entity_id", referencedColumnName = "id")
     private EntityModel destinationEntity;
 
@@ -52,6 +97,13 @@ public class EntityRelationshipModel {
     @Embedded
     private Patient patient;
 
+    @Version
+    private Long version;
+
+    @UpdateTimestamp(source = SourceType.DB)
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     // Other properties...
 
     // Getters and setters
@@ -120,6 +172,30 @@ public class EntityRelationshipModel {
         return patient;
     }
 
+    /**
+     * Gets the version of the entity relationship.
+     * The version is incremented on every update and used for optimistic locking
+     * and by the change feed.
+     *
+     * @return The version of the entity relationship.
+     * @since 1.0
+     */
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the time the entity relationship was last inserted or updated.
+     *
+     * @return The last modification time of the entity relationship.
+     * @since 1.0
+     */
+    @JsonIgnore
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
     public void setSourceEntity(EntityModel sourceEntity) {
         this.sourceEntity = sourceEntity;
     }
@@ -131,4 +207,8 @@ public class EntityRelationshipModel {
     public void setRelationshipType(RelationshipType relationshipType) {
         this.relationshipType = relationshipType;
     }
+
+    public void setPatient(Patient patient) {
+        this.patient = patient;
+    }
 }
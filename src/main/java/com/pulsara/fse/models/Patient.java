@@ -30,4 +30,16 @@ public class Patient {
     public String getInstructions() {
         return instructions;
     }
+
+    public void setPatientType(PatientType patientType) {
+        this.patientType = patientType;
+    }
+
+    public void setContactPhone(String contactPhone) {
+        this.contactPhone = contactPhone;
+    }
+
+    public void setInstructions(String instructions) {
+        this.instructions = instructions;
+    }
 }
@@ -0,0 +1,156 @@
+package com.pulsara.fse.models;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Represents an entry of the append-only relationship change log.
+ * Every entry keeps a copy of the relationship as it was after the change, or
+ * before it for deletes, so that deleted relationships can still be reported.
+ * Entries are written with plain SQL in the transaction of the change and are
+ * only updated once, right before that transaction commits, to stamp their
+ * commit sequence number.
+ *
+ * @see ChangeOperation
+ * @see EntityRelationshipModel
+ * @since 1.0
+ */
+@Entity
+@Immutable
+@Table(name = "TBL_RELATIONSHIP_CHANGES", indexes = {
+        @Index(name = "idx_relationship_changes_commit_seq", columnList = "commit_seq", unique = true),
+        @Index(name = "idx_relationship_changes_source_commit_seq", columnList = "source_entity_id, commit_seq")
+})
+public class RelationshipChangeModel {
+
+    @Id
+    private Long id;
+
+    @Column(name = "commit_seq")
+    private Long commitSeq;
+
+    @Column(name = "relationship_id")
+    private Long relationshipId;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeOperation operation;
+
+    private Long version;
+
+    @Column(name = "source_entity_id")
+    private Long sourceEntityId;
+
+    @Column(name = "destination_entity_id")
+    private Long destinationEntityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "relationship_type")
+    private RelationshipType relationshipType;
+
+    @Embedded
+    private Patient patient;
+
+    @Column(name = "changed_at")
+    private Instant changedAt;
+
+    /**
+     * Gets the ID of the change, increasing in the order changes are logged.
+     *
+     * @return The ID of the change.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the commit sequence number of the change, increasing in the order the
+     * transactions of the changes committed. Used as the change feed watermark.
+     *
+     * @return The commit sequence number of the change.
+     */
+    public Long getCommitSeq() {
+        return commitSeq;
+    }
+
+    /**
+     * Gets the ID of the changed relationship.
+     *
+     * @return The ID of the relationship.
+     */
+    public Long getRelationshipId() {
+        return relationshipId;
+    }
+
+    /**
+     * Gets the kind of change.
+     *
+     * @return The operation of the change.
+     */
+    public ChangeOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the version of the relationship after the change.
+     *
+     * @return The version of the relationship.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the ID of the source entity of the relationship.
+     *
+     * @return The ID of the source entity.
+     */
+    public Long getSourceEntityId() {
+        return sourceEntityId;
+    }
+
+    /**
+     * Gets the ID of the destination entity of the relationship.
+     *
+     * @return The ID of the destination entity.
+     */
+    public Long getDestinationEntityId() {
+        return destinationEntityId;
+    }
+
+    /**
+     * Gets the relationship type of the relationship.
+     *
+     * @return The relationship type.
+     */
+    public RelationshipType getRelationshipType() {
+        return relationshipType;
+    }
+
+    /**
+     * Gets the patient information of the relationship.
+     *
+     * @return The patient information, may be null.
+     */
+    public Patient getPatient() {
+        return patient;
+    }
+
+    /**
+     * Gets the time of the change.
+     *
+     * @return The time the relationship was changed.
+     */
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+}
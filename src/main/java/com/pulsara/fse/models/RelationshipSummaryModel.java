@@ -0,0 +1,129 @@
+package com.pulsara.fse.models;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Represents the precomputed by-source relationships of a source entity.
+ * The summary holds the relationships of the source entity grouped by
+ * relationship type and destination, serialized as JSON, together with the
+ * relationship count, highest relationship ID and sum of relationship versions
+ * it was built from, and the sum of the versions and latest modification time
+ * of the entities it names. Summaries are written with plain SQL in the transaction of
+ * every relationship write and are never updated through JPA.
+ *
+ * @see EntityRelationshipModel
+ * @see com.pulsara.fse.service.RelationshipSummaryService
+ * @since 1.0
+ */
+@Entity
+@Immutable
+@Table(name = "TBL_RELATIONSHIP_SUMMARIES")
+public class RelationshipSummaryModel {
+
+    @Id
+    @Column(name = "source_entity_id")
+    private Long sourceEntityId;
+
+    @Column(name = "relationship_count")
+    private long relationshipCount;
+
+    @Column(name = "max_relationship_id")
+    private long maxRelationshipId;
+
+    @Column(name = "version_sum")
+    private long versionSum;
+
+    @Column(name = "entity_version_sum")
+    private long entityVersionSum;
+
+    @Column(name = "entity_updated_at")
+    private Instant entityUpdatedAt;
+
+    private String summary;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    /**
+     * Gets the ID of the source entity of the summary.
+     *
+     * @return The ID of the source entity.
+     */
+    public Long getSourceEntityId() {
+        return sourceEntityId;
+    }
+
+    /**
+     * Gets the number of relationships the summary was built from.
+     *
+     * @return The number of relationships.
+     */
+    public long getRelationshipCount() {
+        return relationshipCount;
+    }
+
+    /**
+     * Gets the highest ID of the relationships the summary was built from.
+     *
+     * @return The highest relationship ID.
+     */
+    public long getMaxRelationshipId() {
+        return maxRelationshipId;
+    }
+
+    /**
+     * Gets the sum of the versions of the relationships the summary was built
+     * from.
+     *
+     * @return The sum of the relationship versions.
+     */
+    public long getVersionSum() {
+        return versionSum;
+    }
+
+    /**
+     * Gets the sum of the versions of the source entity and the destination
+     * entities the summary names.
+     *
+     * @return The sum of the entity versions.
+     */
+    public long getEntityVersionSum() {
+        return entityVersionSum;
+    }
+
+    /**
+     * Gets the latest modification time of the source entity and the
+     * destination entities the summary names.
+     *
+     * @return The latest entity modification time.
+     */
+    public Instant getEntityUpdatedAt() {
+        return entityUpdatedAt;
+    }
+
+    /**
+     * Gets the relationships of the source entity grouped by relationship type,
+     * as a JSON object of relationship type names to relationship summaries.
+     *
+     * @return The serialized relationships.
+     */
+    public String getSummary() {
+        return summary;
+    }
+
+    /**
+     * Gets the time the summary was last written.
+     *
+     * @return The last modification time of the summary.
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
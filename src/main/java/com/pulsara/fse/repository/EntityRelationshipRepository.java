@@ -1,12 +1,22 @@
 package com.pulsara.fse.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+
+import com.pulsara.fse.graph.RelationshipEdgeRow;
 import com.pulsara.fse.models.EntityModel;
 import com.pulsara.fse.models.EntityRelationshipModel;
 import com.pulsara.fse.models.RelationshipType;
@@ -14,12 +24,18 @@ import com.pulsara.fse.models.RelationshipType;
 /**
  * Repository interface for managing entity relationships.
  * This repository provides methods to interact with the entity relationships
- * stored in the database.
+ * stored in the database. The results of the by-source and by-destination
+ * finder queries are kept in the Hibernate query cache.
+ * <p>
+ * The entity associations of a relationship are lazy, and each finder names the
+ * entity graph of the associations its callers map, so that they are fetched
+ * by the finder's own select instead of one select per row.
  *
  * @see JpaRepository
  * @since 1.0
  */
-public interface EntityRelationshipRepository extends JpaRepository<EntityRelationshipModel, Long> {
+public interface EntityRelationshipRepository extends JpaRepository<EntityRelationshipModel, Long>,
+                EntityRelationshipRepositoryCustom {
 
         /**
          * Finds entity relationships based on the source entity.
@@ -27,8 +43,9 @@ public interface EntityRelationshipRepository extends JpaRepository<EntityRelati
          * @param sourceEntity The source entity for which relationships are to be
          *                     retrieved.
          * @return A list of entity relationships associated with the provided source
-         *         entity.
+         *         entity, with their source and destination entities initialized.
          */
+        @EntityGraph(value = EntityRelationshipModel.WITH_ENTITIES, type = EntityGraphType.FETCH)
         List<EntityRelationshipModel> findBySourceEntity(EntityModel sourceEntity);
 
         /**
@@ -37,13 +54,16 @@ public interface EntityRelationshipRepository extends JpaRepository<EntityRelati
          * @param relationshipType The relationship type for which relationships are to
          *                         be retrieved.
          * @return A list of entity relationships associated with the provided
-         *         relationship type.
+         *         relationship type, with their source and destination entities
+         *         initialized.
          */
+        @EntityGraph(value = EntityRelationshipModel.WITH_ENTITIES, type = EntityGraphType.FETCH)
         List<EntityRelationshipModel> findByRelationshipType(RelationshipType relationshipType);
 
         /**
          * Finds entity relationships based on the source entity, destination entity,
-         * and relationship type.
+         * and relationship type. The entities of the relationships are not fetched,
+         * as callers already hold them.
          *
          * @param sourceEntity      The source entity for which relationships are to be
          *                          retrieved.
@@ -66,11 +86,164 @@ public interface EntityRelationshipRepository extends JpaRepository<EntityRelati
          * @param relationshipTypes A collection of relationship types for which
          *                          relationships are to be retrieved.
          * @return A list of entity relationships associated with the provided source
-         *         entity and relationship types.
+         *         entity and relationship types, with their source and destination
+         *         entities initialized.
          */
+        @EntityGraph(value = EntityRelationshipModel.WITH_ENTITIES, type = EntityGraphType.FETCH)
         @Query("SELECT er FROM EntityRelationshipModel er WHERE er.sourceEntity = :sourceEntity AND er.relationshipType IN :relationshipTypes")
         List<EntityRelationshipModel> findBySourceEntityAndRelationshipTypes(
                         @Param("sourceEntity") EntityModel sourceEntity,
                         @Param("relationshipTypes") Set<RelationshipType> relationshipTypes);
 
+        /**
+         * Finds all entity relationships of a source entity in a single query,
+         * fetching the destination entity of every row in the same select.
+         *
+         * @param sourceEntity The source entity for which relationships are to be
+         *                     retrieved.
+         * @return A list of entity relationships associated with the provided source
+         *         entity, with their destination entities initialized.
+         */
+        @EntityGraph(value = EntityRelationshipModel.WITH_DESTINATION, type = EntityGraphType.FETCH)
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+        @Query("SELECT er FROM EntityRelationshipModel er WHERE er.sourceEntity = :sourceEntity")
+        List<EntityRelationshipModel> findWithDestinationBySourceEntity(
+                        @Param("sourceEntity") EntityModel sourceEntity);
+
+        /**
+         * Finds the entity relationships of a source entity restricted to a
+         * collection of relationship types in a single query, fetching the
+         * destination entity of every row in the same select.
+         *
+         * @param sourceEntity      The source entity for which relationships are to be
+         *                          retrieved.
+         * @param relationshipTypes A collection of relationship types for which
+         *                          relationships are to be retrieved.
+         * @return A list of entity relationships associated with the provided source
+         *         entity and relationship types, with their destination entities
+         *         initialized.
+         */
+        @EntityGraph(value = EntityRelationshipModel.WITH_DESTINATION, type = EntityGraphType.FETCH)
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+        @Query("SELECT er FROM EntityRelationshipModel er WHERE er.sourceEntity = :sourceEntity AND er.relationshipType IN :relationshipTypes")
+        List<EntityRelationshipModel> findWithDestinationBySourceEntityAndRelationshipTypes(
+                        @Param("sourceEntity") EntityModel sourceEntity,
+                        @Param("relationshipTypes") Set<RelationshipType> relationshipTypes);
+
+        /**
+         * Finds all entity relationships into a destination entity in a single
+         * query, fetching the source entity of every row in the same select. Served
+         * by the (destination_entity_id, relationship_type) index.
+         *
+         * @param destinationEntity The destination entity for which relationships are
+         *                          to be retrieved.
+         * @return A list of entity relationships into the provided destination
+         *         entity, with their source entities initialized.
+         */
+        @EntityGraph(value = EntityRelationshipModel.WITH_SOURCE, type = EntityGraphType.FETCH)
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+        @Query("SELECT er FROM EntityRelationshipModel er WHERE er.destinationEntity = :destinationEntity")
+        List<EntityRelationshipModel> findWithSourceByDestinationEntity(
+                        @Param("destinationEntity") EntityModel destinationEntity);
+
+        /**
+         * Finds the entity relationships into a destination entity restricted to a
+         * collection of relationship types in a single query, fetching the source
+         * entity of every row in the same select.
+         *
+         * @param destinationEntity The destination entity for which relationships are
+         *                          to be retrieved.
+         * @param relationshipTypes A collection of relationship types for which
+         *                          relationships are to be retrieved.
+         * @return A list of entity relationships into the provided destination entity
+         *         with the provided relationship types, with their source entities
+         *         initialized.
+         */
+        @EntityGraph(value = EntityRelationshipModel.WITH_SOURCE, type = EntityGraphType.FETCH)
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+        @Query("SELECT er FROM EntityRelationshipModel er WHERE er.destinationEntity = :destinationEntity AND er.relationshipType IN :relationshipTypes")
+        List<EntityRelationshipModel> findWithSourceByDestinationEntityAndRelationshipTypes(
+                        @Param("destinationEntity") EntityModel destinationEntity,
+                        @Param("relationshipTypes") Set<RelationshipType> relationshipTypes);
+
+        /**
+         * Finds the entity relationships of a collection of source entities in a
+         * single query, fetching the destination entity of every row in the same
+         * select.
+         *
+         * @param sourceEntityIds The IDs of the source entities for which
+         *                        relationships are to be retrieved.
+         * @return A list of entity relationships associated with the provided source
+         *         entities, with their destination entities initialized.
+         */
+        @EntityGraph(value = EntityRelationshipModel.WITH_DESTINATION, type = EntityGraphType.FETCH)
+        @Query("SELECT er FROM EntityRelationshipModel er WHERE er.sourceEntity.id IN :sourceEntityIds")
+        List<EntityRelationshipModel> findWithDestinationBySourceEntityIds(
+                        @Param("sourceEntityIds") Collection<Long> sourceEntityIds);
+
+        /**
+         * Streams the entity relationships of a source entity ordered by
+         * relationship type and destination entity, so that rows sharing a
+         * relationship type and destination are adjacent. Must be consumed within a
+         * transaction and closed afterwards.
+         *
+         * @param sourceEntity The source entity for which relationships are to be
+         *                     retrieved.
+         * @return A stream of the entity relationships of the source entity, with
+         *         their destination entities initialized.
+         */
+        @EntityGraph(value = EntityRelationshipModel.WITH_DESTINATION, type = EntityGraphType.FETCH)
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+        @Query("SELECT er FROM EntityRelationshipModel er WHERE er.sourceEntity = :sourceEntity "
+                        + "ORDER BY er.relationshipType, er.destinationEntity.id")
+        Stream<EntityRelationshipModel> streamWithDestinationBySourceEntity(
+                        @Param("sourceEntity") EntityModel sourceEntity);
+
+        /**
+         * Streams the entity relationships of a source entity restricted to a
+         * collection of relationship types, ordered by relationship type and
+         * destination entity, so that rows sharing a relationship type and
+         * destination are adjacent. Must be consumed within a transaction and
+         * closed afterwards.
+         *
+         * @param sourceEntity      The source entity for which relationships are to
+         *                          be retrieved.
+         * @param relationshipTypes A collection of relationship types for which
+         *                          relationships are to be retrieved.
+         * @return A stream of the entity relationships of the source entity with the
+         *         provided relationship types, with their destination entities
+         *         initialized.
+         */
+        @EntityGraph(value = EntityRelationshipModel.WITH_DESTINATION, type = EntityGraphType.FETCH)
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+        @Query("SELECT er FROM EntityRelationshipModel er WHERE er.sourceEntity = :sourceEntity "
+                        + "AND er.relationshipType IN :relationshipTypes "
+                        + "ORDER BY er.relationshipType, er.destinationEntity.id")
+        Stream<EntityRelationshipModel> streamWithDestinationBySourceEntityAndRelationshipTypes(
+                        @Param("sourceEntity") EntityModel sourceEntity,
+                        @Param("relationshipTypes") Set<RelationshipType> relationshipTypes);
+
+        /**
+         * Finds the IDs of the source entities with the most relationships, in
+         * descending order of relationship count.
+         *
+         * @param pageable The number of source entities to return.
+         * @return The IDs of the source entities with the most relationships.
+         */
+        @Query("SELECT er.sourceEntity.id FROM EntityRelationshipModel er GROUP BY er.sourceEntity.id "
+                        + "ORDER BY COUNT(er) DESC, er.sourceEntity.id")
+        List<Long> findSourceEntityIdsByRelationshipCount(Pageable pageable);
+
+        /**
+         * Streams every entity relationship as a scalar row, without materializing
+         * entities. Must be consumed within a transaction and closed afterwards.
+         *
+         * @return A stream of all relationship rows.
+         */
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+        @Query("SELECT new com.pulsara.fse.graph.RelationshipEdgeRow(er.sourceEntity.id, er.destinationEntity.id, "
+                        + "er.relationshipType, er.patient.patientType, er.patient.contactPhone, er.patient.instructions) "
+                        + "FROM EntityRelationshipModel er")
+        Stream<RelationshipEdgeRow> streamAllEdgeRows();
+
 }
@@ -0,0 +1,56 @@
+package com.pulsara.fse.repository;
+
+import java.util.List;
+import java.util.Set;
+
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+/**
+ * Custom repository methods for entity relationships that select only requested
+ * columns.
+ *
+ * @see EntityRelationshipRepositoryImpl
+ */
+public interface EntityRelationshipRepositoryCustom {
+
+    /**
+     * Finds a page of the relationships of a source entity ordered by relationship
+     * ID. The destination entity is only joined when its details are requested and
+     * the patient columns are only selected when requested.
+     *
+     * @param sourceEntityId     The ID of the source entity.
+     * @param relationshipTypes  The relationship types to filter on, or null or
+     *                           empty for all relationship types.
+     * @param afterId            The relationship ID after which the page starts,
+     *                           or null for the first page.
+     * @param limit              The maximum number of relationships of the page.
+     * @param destinationDetails Whether to select the name and type of the
+     *                           destination entity.
+     * @param patients           Whether to select the patient columns.
+     * @return The projected relationships of the page, in ID order.
+     */
+    List<ProjectedRelationship> findProjectedPageBySourceEntityId(Long sourceEntityId,
+            Set<RelationshipType> relationshipTypes, Long afterId, int limit, boolean destinationDetails,
+            boolean patients);
+
+    /**
+     * Relationship row with the columns selected by
+     * {@link #findProjectedPageBySourceEntityId}. Columns that were not selected
+     * are null.
+     *
+     * @param id                  The ID of the relationship.
+     * @param relationshipType    The relationship type.
+     * @param destinationEntityId The ID of the destination entity.
+     * @param destinationName     The name of the destination entity.
+     * @param destinationType     The type of the destination entity.
+     * @param patientType         The patient type.
+     * @param contactPhone        The contact phone.
+     * @param instructions        The instructions.
+     */
+    record ProjectedRelationship(Long id, RelationshipType relationshipType, Long destinationEntityId,
+            String destinationName, EntityType destinationType, PatientType patientType, String contactPhone,
+            String instructions) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.pulsara.fse.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Criteria based implementation of {@link EntityRelationshipRepositoryCustom}.
+ */
+public class EntityRelationshipRepositoryImpl implements EntityRelationshipRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProjectedRelationship> findProjectedPageBySourceEntityId(Long sourceEntityId,
+            Set<RelationshipType> relationshipTypes, Long afterId, int limit, boolean destinationDetails,
+            boolean patients) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<EntityRelationshipModel> relationship = query.from(EntityRelationshipModel.class);
+
+        // the foreign key columns are read without joining the entity table
+        Path<Long> id = relationship.get("id");
+        Path<RelationshipType> relationshipType = relationship.get("relationshipType");
+        Path<Long> destinationEntityId = relationship.get("destinationEntity").get("id");
+        List<Selection<?>> selections = new ArrayList<>(List.of(id, relationshipType, destinationEntityId));
+
+        Path<String> destinationName = null;
+        Path<EntityType> destinationType = null;
+        if (destinationDetails) {
+            // left joined, so that selecting the destination never drops rows from the page
+            Join<EntityRelationshipModel, EntityModel> destination = relationship.join("destinationEntity",
+                    JoinType.LEFT);
+            destinationName = destination.get("name");
+            destinationType = destination.get("entityType");
+            selections.add(destinationName);
+            selections.add(destinationType);
+        }
+
+        Path<PatientType> patientType = null;
+        Path<String> contactPhone = null;
+        Path<String> instructions = null;
+        if (patients) {
+            Path<?> patient = relationship.get("patient");
+            patientType = patient.get("patientType");
+            contactPhone = patient.get("contactPhone");
+            instructions = patient.get("instructions");
+            selections.add(patientType);
+            selections.add(contactPhone);
+            selections.add(instructions);
+        }
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.equal(relationship.get("sourceEntity").get("id"), sourceEntityId));
+        if (relationshipTypes != null && !relationshipTypes.isEmpty()) {
+            predicates.add(relationshipType.in(relationshipTypes));
+        }
+        if (afterId != null) {
+            predicates.add(builder.greaterThan(id, afterId));
+        }
+        query.multiselect(selections).where(predicates.toArray(new Predicate[0])).orderBy(builder.asc(id));
+
+        List<ProjectedRelationship> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            rows.add(new ProjectedRelationship(
+                    tuple.get(id),
+                    tuple.get(relationshipType),
+                    tuple.get(destinationEntityId),
+                    destinationName == null ? null : tuple.get(destinationName),
+                    destinationType == null ? null : tuple.get(destinationType),
+                    patientType == null ? null : tuple.get(patientType),
+                    contactPhone == null ? null : tuple.get(contactPhone),
+                    instructions == null ? null : tuple.get(instructions)));
+        }
+        return rows;
+    }
+}
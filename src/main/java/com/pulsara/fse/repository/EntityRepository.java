@@ -1,11 +1,21 @@
 package com.pulsara.fse.repository;
 
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.pulsara.fse.models.EntityModel;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface EntityRepository extends JpaRepository<EntityModel, Long> {
+public interface EntityRepository extends JpaRepository<EntityModel, Long>, EntityRepositoryCustom {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT e FROM EntityModel e ORDER BY e.id")
+    Stream<EntityModel> streamAll();
 }
@@ -0,0 +1,32 @@
+package com.pulsara.fse.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom repository methods for entities that select only requested columns.
+ *
+ * @see EntityRepositoryImpl
+ */
+public interface EntityRepositoryCustom {
+
+    /**
+     * The entity fields that may be projected, in output order.
+     */
+    List<String> PROJECTABLE_FIELDS = List.of("id", "name", "entityType");
+
+    /**
+     * Finds a page of entities ordered by ID, selecting only the requested
+     * columns.
+     *
+     * @param afterId The ID after which the page starts, or null for the first
+     *                page.
+     * @param limit   The maximum number of entities of the page.
+     * @param fields  The fields to select, a subset of
+     *                {@link #PROJECTABLE_FIELDS}. The ID is always selected.
+     * @return The entities of the page as maps of field names to values, in ID
+     *         order.
+     */
+    List<Map<String, Object>> findProjectedPage(Long afterId, int limit, Collection<String> fields);
+}
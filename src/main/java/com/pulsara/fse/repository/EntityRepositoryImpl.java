@@ -0,0 +1,56 @@
+package com.pulsara.fse.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pulsara.fse.models.EntityModel;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Criteria based implementation of {@link EntityRepositoryCustom}.
+ */
+public class EntityRepositoryImpl implements EntityRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findProjectedPage(Long afterId, int limit, Collection<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<EntityModel> entity = query.from(EntityModel.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(entity.get("id").alias("id"));
+        for (String field : fields) {
+            if (!"id".equals(field)) {
+                selections.add(entity.get(field).alias(field));
+            }
+        }
+        query.multiselect(selections).orderBy(builder.asc(entity.get("id")));
+        if (afterId != null) {
+            query.where(builder.greaterThan(entity.get("id"), afterId));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                row.put(element.getAlias(), tuple.get(element));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,99 @@
+package com.pulsara.fse.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.pulsara.fse.dto.SourceCommitSeq;
+import com.pulsara.fse.models.RelationshipChangeModel;
+
+/**
+ * Repository interface for reading the relationship change log.
+ * Entries are read in commit sequence order after a watermark, a range scan of
+ * the commit_seq index or, per source entity, of the (source_entity_id,
+ * commit_seq) index.
+ *
+ * @see RelationshipChangeModel
+ * @since 1.0
+ */
+public interface RelationshipChangeRepository extends JpaRepository<RelationshipChangeModel, Long> {
+
+        /**
+         * Finds the changes logged after a watermark.
+         *
+         * @param afterSeq The commit sequence number of the last change already
+         *                 seen.
+         * @param limit    The maximum number of changes.
+         * @return The changes after the watermark, in commit sequence order.
+         */
+        @Query("SELECT c FROM RelationshipChangeModel c WHERE c.commitSeq > :afterSeq ORDER BY c.commitSeq")
+        List<RelationshipChangeModel> findAfter(@Param("afterSeq") long afterSeq, Limit limit);
+
+        /**
+         * Finds the changes to the relationships of a source entity logged after a
+         * watermark.
+         *
+         * @param sourceEntityId The ID of the source entity.
+         * @param afterSeq       The commit sequence number of the last change
+         *                       already seen.
+         * @param limit          The maximum number of changes.
+         * @return The changes after the watermark, in commit sequence order.
+         */
+        @Query("SELECT c FROM RelationshipChangeModel c WHERE c.sourceEntityId = :sourceEntityId "
+                        + "AND c.commitSeq > :afterSeq ORDER BY c.commitSeq")
+        List<RelationshipChangeModel> findBySourceEntityIdAfter(@Param("sourceEntityId") long sourceEntityId,
+                        @Param("afterSeq") long afterSeq, Limit limit);
+
+        /**
+         * Finds the commit sequence number of the last committed change.
+         *
+         * @return The commit sequence number of the last change, or 0 if no change
+         *         has been logged.
+         */
+        @Query("SELECT COALESCE(MAX(c.commitSeq), 0) FROM RelationshipChangeModel c")
+        long findLatestCommitSeq();
+
+        /**
+         * Finds the commit sequence number of the last committed change to the
+         * relationships of a source entity.
+         *
+         * @param sourceEntityId The ID of the source entity.
+         * @return The commit sequence number of the last change, or 0 if no change
+         *         of the source entity has been logged.
+         */
+        @Query("SELECT COALESCE(MAX(c.commitSeq), 0) FROM RelationshipChangeModel c "
+                        + "WHERE c.sourceEntityId = :sourceEntityId")
+        long findLatestCommitSeqBySourceEntityId(@Param("sourceEntityId") long sourceEntityId);
+
+        /**
+         * Finds the commit sequence number of the last logged change of several
+         * source entities, with one range scan of the (source_entity_id,
+         * commit_seq) index per source entity.
+         *
+         * @param sourceEntityIds The IDs of the source entities.
+         * @return The last commit sequence number of every source entity with a
+         *         logged change, source entities without one are left out.
+         */
+        @Query("SELECT new com.pulsara.fse.dto.SourceCommitSeq(c.sourceEntityId, MAX(c.commitSeq)) "
+                        + "FROM RelationshipChangeModel c WHERE c.sourceEntityId IN :sourceEntityIds "
+                        + "GROUP BY c.sourceEntityId")
+        List<SourceCommitSeq> findLatestCommitSeqsBySourceEntityIds(
+                        @Param("sourceEntityIds") Collection<Long> sourceEntityIds);
+
+        /**
+         * Finds the source entities whose relationships changed in a range of
+         * commit sequence numbers.
+         *
+         * @param afterSeq The commit sequence number of the last change already
+         *                 seen.
+         * @param upToSeq  The commit sequence number of the last change to include.
+         * @return The distinct IDs of the source entities of the changes.
+         */
+        @Query("SELECT DISTINCT c.sourceEntityId FROM RelationshipChangeModel c "
+                        + "WHERE c.commitSeq > :afterSeq AND c.commitSeq <= :upToSeq")
+        List<Long> findSourceEntityIdsBetween(@Param("afterSeq") long afterSeq, @Param("upToSeq") long upToSeq);
+}
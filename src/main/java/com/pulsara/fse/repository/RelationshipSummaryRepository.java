@@ -0,0 +1,44 @@
+package com.pulsara.fse.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.pulsara.fse.dto.SourceUpdatedAt;
+import com.pulsara.fse.models.RelationshipSummaryModel;
+
+/**
+ * Repository interface for reading the precomputed by-source relationships.
+ * A summary is read with a primary key lookup on the ID of its source entity.
+ *
+ * @see RelationshipSummaryModel
+ * @since 1.0
+ */
+public interface RelationshipSummaryRepository extends JpaRepository<RelationshipSummaryModel, Long> {
+
+    /**
+     * Finds the time the summary of a source entity was last written, without
+     * reading the summary itself.
+     *
+     * @param sourceEntityId The ID of the source entity.
+     * @return The last modification time, or empty if there is no summary.
+     */
+    @Query("SELECT s.updatedAt FROM RelationshipSummaryModel s WHERE s.sourceEntityId = :sourceEntityId")
+    Optional<Instant> findUpdatedAtBySourceEntityId(@Param("sourceEntityId") Long sourceEntityId);
+
+    /**
+     * Finds the times the summaries of several source entities were last written,
+     * without reading the summaries themselves.
+     *
+     * @param sourceEntityIds The IDs of the source entities.
+     * @return The last modification time of every source entity with a summary.
+     */
+    @Query("SELECT new com.pulsara.fse.dto.SourceUpdatedAt(s.sourceEntityId, s.updatedAt) "
+            + "FROM RelationshipSummaryModel s WHERE s.sourceEntityId IN :sourceEntityIds")
+    List<SourceUpdatedAt> findUpdatedAtBySourceEntityIds(@Param("sourceEntityIds") Collection<Long> sourceEntityIds);
+}
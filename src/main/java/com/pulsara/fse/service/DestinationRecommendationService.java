@@ -0,0 +1,119 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.DestinationRecommendation;
+import com.pulsara.fse.graph.DestinationRecommendationIndex;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service recommending the best destinations for a patient type from a source
+ * entity, such as the hospitals an EMS agency should take a STEMI patient to.
+ * Recommendations are read from a {@link DestinationRecommendationIndex} of the
+ * in-memory relationship graph, rebuilt on first use after the graph is
+ * reloaded, and never query the database.
+ *
+ * @see RelationshipGraphIndexService
+ * @since 1.0
+ */
+@Service
+public class DestinationRecommendationService {
+
+    /**
+     * The default number of recommended destinations.
+     */
+    public static final int DEFAULT_LIMIT = 10;
+
+    /**
+     * The maximum number of recommended destinations.
+     */
+    public static final int MAX_LIMIT = 100;
+
+    private final RelationshipGraphIndexService relationshipGraphIndexService;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile DestinationRecommendationIndex index;
+    private static final Logger logger = LoggerFactory.getLogger(DestinationRecommendationService.class);
+
+    /**
+     * Constructs a DestinationRecommendationService.
+     *
+     * @param relationshipGraphIndexService The service holding the in-memory
+     *                                      relationship graph.
+     */
+    @Autowired
+    public DestinationRecommendationService(RelationshipGraphIndexService relationshipGraphIndexService) {
+        this.relationshipGraphIndexService = relationshipGraphIndexService;
+    }
+
+    /**
+     * Recommends the top ranked destinations accepting a patient type from a
+     * source entity.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param patientType       The patient type.
+     * @param relationshipTypes The relationship types a destination must be
+     *                          reached by one of, or empty for any relationship
+     *                          type.
+     * @param destinationType   The entity type of the destinations, or null for
+     *                          any type.
+     * @param limit             The maximum number of destinations, at most
+     *                          {@value #MAX_LIMIT}.
+     * @return The recommended destinations in rank order.
+     * @throws FSEServiceException If the limit is invalid or the graph is not
+     *                             available.
+     */
+    public List<DestinationRecommendation> recommend(long sourceEntityId, PatientType patientType,
+            Set<RelationshipType> relationshipTypes, EntityType destinationType, int limit) {
+        if (patientType == null || limit < 1 || limit > MAX_LIMIT) {
+            throw new FSEServiceException("A patient type and a limit between 1 and " + MAX_LIMIT
+                    + " must be provided", HttpStatus.BAD_REQUEST);
+        }
+        int relationshipMask = 0;
+        for (RelationshipType relationshipType : relationshipTypes) {
+            relationshipMask |= 1 << relationshipType.ordinal();
+        }
+        return requireIndex().recommend(sourceEntityId, patientType, relationshipMask, destinationType, limit);
+    }
+
+    /**
+     * Gets the index of the current relationship graph, building it first if the
+     * graph has been reloaded since the index was last built.
+     *
+     * @return The recommendation index.
+     * @throws FSEServiceException If the graph is not available.
+     */
+    private DestinationRecommendationIndex requireIndex() {
+        RelationshipGraph graph = relationshipGraphIndexService.requireGraph();
+        DestinationRecommendationIndex current = index;
+        if (current != null && current.graph() == graph) {
+            return current;
+        }
+        rebuildLock.lock();
+        try {
+            graph = relationshipGraphIndexService.requireGraph();
+            current = index;
+            if (current == null || current.graph() != graph) {
+                long start = System.nanoTime();
+                current = DestinationRecommendationIndex.build(graph);
+                index = current;
+                logger.info("Built destination recommendation index with {} entries in {} ms",
+                        current.entryCount(), (System.nanoTime() - start) / 1_000_000);
+            }
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.pulsara.fse.config.CacheConfiguration;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.dto.StampedRelationships;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * Caching layer in front of {@link EntityRelationshipService}.
+ * The grouped relationships of every source entity, and of every destination
+ * entity, are cached once for all relationship types, and requests for a subset
+ * of relationship or patient types are served by filtering the cached adjacency
+ * list. Entries are evicted by size and time to
+ * live, and invalidated when an {@link EntityRelationshipsChangedEvent} is
+ * published. Every source entity also has a version stamp, from which HTTP
+ * validators are derived without loading the relationships. Stamps are derived
+ * from the database on a cold miss, so every instance derives the same stamp,
+ * and then kept in memory until an event or the
+ * {@link RelationshipVersionStampPoller} of changes made through other
+ * instances evicts them. Cached by-source relationships carry the stamp they
+ * were read at, so a lookup at a newer stamp reloads them.
+ *
+ * @see CacheConfiguration#RELATIONSHIPS_BY_SOURCE
+ * @see CacheConfiguration#RELATIONSHIPS_BY_DESTINATION
+ * @since 1.0
+ */
+@Service
+public class EntityRelationshipCacheService {
+
+    private final EntityRelationshipService entityRelationshipService;
+    private final EntityService entityService;
+    private final Cache relationshipsBySource;
+    private final Cache relationshipsByDestination;
+    private final Cache versionStamps;
+    private final int batchChunkSize;
+    private static final Logger logger = LoggerFactory.getLogger(EntityRelationshipCacheService.class);
+
+    /**
+     * Constructs an EntityRelationshipCacheService.
+     *
+     * @param entityRelationshipService The service used to load relationships on a
+     *                                  cache miss.
+     * @param entityService             The service used to load source entities on
+     *                                  a cache miss of a batch lookup.
+     * @param cacheManager              The cache manager holding the relationship
+     *                                  caches.
+     * @param batchChunkSize            The maximum number of source entities loaded
+     *                                  per query by batch lookups.
+     */
+    @Autowired
+    public EntityRelationshipCacheService(EntityRelationshipService entityRelationshipService,
+            EntityService entityService, CacheManager cacheManager,
+            @Value("${fse.batch.chunk-size:500}") int batchChunkSize) {
+        this.entityRelationshipService = entityRelationshipService;
+        this.entityService = entityService;
+        this.relationshipsBySource = cacheManager.getCache(CacheConfiguration.RELATIONSHIPS_BY_SOURCE);
+        this.relationshipsByDestination = cacheManager.getCache(CacheConfiguration.RELATIONSHIPS_BY_DESTINATION);
+        this.versionStamps = cacheManager.getCache(CacheConfiguration.RELATIONSHIP_VERSION_STAMPS);
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    /**
+     * Retrieves the relationships of the provided source entity grouped by
+     * relationship type, loading and caching the full adjacency list of the source
+     * entity on a cache miss. Concurrent misses of the same source entity share a
+     * single load.
+     *
+     * @param sourceEntity      The source entity for which relationships are to be
+     *                          retrieved.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @return A map of relationship type names to the mapped relationships of that
+     *         type.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public Map<String, List<RelationshipSummary>> getGroupedRelationshipsBySourceEntity(EntityModel sourceEntity,
+            Set<RelationshipType> relationshipTypes) {
+        return getStampedRelationshipsBySourceEntity(sourceEntity, relationshipTypes, null).relationships();
+    }
+
+    /**
+     * Retrieves the relationships of the provided source entity grouped by
+     * relationship type, with the version stamp they were read at, loading and
+     * caching the full adjacency list of the source entity on a cache miss.
+     * Cached relationships whose stamp differs from the stamp read by the caller
+     * are reloaded.
+     *
+     * @param sourceEntity      The source entity for which relationships are to be
+     *                          retrieved.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @param versionStamp      The current version stamp read by the caller, or
+     *                          null to accept any stamped cached relationships.
+     * @return The grouped relationships of the requested types and the version
+     *         stamp they were read at.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public StampedRelationships getStampedRelationshipsBySourceEntity(EntityModel sourceEntity,
+            Set<RelationshipType> relationshipTypes, String versionStamp) {
+        if (sourceEntity == null) {
+            logger.error("sourceEntity is null");
+            throw new FSEServiceException("Source entity not found", HttpStatus.NOT_FOUND);
+        }
+
+        Callable<StampedRelationships> loader =
+                () -> entityRelationshipService.getStampedRelationshipsBySourceEntity(sourceEntity);
+        StampedRelationships stamped = relationshipsBySource.get(sourceEntity.getId(), loader);
+        if (versionStamp != null && !versionStamp.equals(stamped.versionStamp())) {
+            // cached before a change this instance was not told about. Reload through the cache rather than putting the result, so that a
+            // concurrent eviction is never overwritten by relationships read before it
+            relationshipsBySource.evict(sourceEntity.getId());
+            stamped = relationshipsBySource.get(sourceEntity.getId(), loader);
+        }
+        return new StampedRelationships(stamped.versionStamp(),
+                filter(stamped.relationships(), relationshipTypes, null));
+    }
+
+    /**
+     * Retrieves the relationships into the provided destination entity grouped by
+     * relationship type, loading and caching the full inbound adjacency list of the
+     * destination entity on a cache miss. Concurrent misses of the same destination
+     * entity share a single load.
+     *
+     * @param destinationEntity The destination entity for which relationships are
+     *                          to be retrieved.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @param patientTypes      The patient types to filter on, or null or empty to
+     *                          retrieve all patient types. Only the patients of the
+     *                          requested types are kept, and relationships without
+     *                          any are left out.
+     * @return A map of relationship type names to the relationship summaries of
+     *         that type.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public Map<String, List<RelationshipSummary>> getGroupedRelationshipsByDestinationEntity(
+            EntityModel destinationEntity, Set<RelationshipType> relationshipTypes, Set<PatientType> patientTypes) {
+        if (destinationEntity == null) {
+            logger.error("destinationEntity is null");
+            throw new FSEServiceException("Destination entity not found", HttpStatus.NOT_FOUND);
+        }
+
+        Map<String, List<RelationshipSummary>> adjacency = relationshipsByDestination.get(destinationEntity.getId(),
+                () -> entityRelationshipService.getGroupedRelationshipsByDestinationEntity(destinationEntity, null));
+        return filter(adjacency, relationshipTypes, patientTypes);
+    }
+
+    /**
+     * Retrieves the grouped relationships of several source entities and passes
+     * them to a consumer one source entity at a time. Source entities cached at
+     * their current version stamp are served from the cache, the others are
+     * loaded in chunks of at most fse.batch.chunk-size source entities with one
+     * IN-list query per chunk for the entities, two for their version stamps and
+     * one for their relationships, and then cached with their stamps. Stamps not
+     * in memory are read for the whole chunk at once. Source entity IDs that do
+     * not exist are skipped.
+     *
+     * @param sourceEntityIds   The IDs of the source entities, duplicates are
+     *                          ignored.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @param consumer          The consumer receiving each source entity ID and its
+     *                          grouped relationships, cached ones first within a
+     *                          chunk.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public void forEachGroupedRelationshipsBySourceEntityIds(Collection<Long> sourceEntityIds,
+            Set<RelationshipType> relationshipTypes,
+            BiConsumer<Long, Map<String, List<RelationshipSummary>>> consumer) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(sourceEntityIds));
+        for (int from = 0; from < distinctIds.size(); from += batchChunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + batchChunkSize, distinctIds.size()));
+
+            Map<Long, StampedRelationships> current = getCurrent(chunk);
+            List<Long> misses = new ArrayList<>();
+            for (Long sourceEntityId : chunk) {
+                StampedRelationships cached = current.get(sourceEntityId);
+                if (cached != null) {
+                    consumer.accept(sourceEntityId, filter(cached.relationships(), relationshipTypes, null));
+                } else {
+                    misses.add(sourceEntityId);
+                }
+            }
+            if (misses.isEmpty()) {
+                continue;
+            }
+
+            List<EntityModel> sourceEntities = entityService.getEntitiesByIds(misses);
+            entityRelationshipService.getStampedRelationshipsBySourceEntities(sourceEntities)
+                    .forEach((sourceEntityId, stamped) -> {
+                        // never overwrite an entry loaded or evicted since the cache was read
+                        relationshipsBySource.putIfAbsent(sourceEntityId, stamped);
+                        consumer.accept(sourceEntityId, filter(stamped.relationships(), relationshipTypes, null));
+                    });
+        }
+    }
+
+    /**
+     * Gets the cached relationships of several source entities that were read at
+     * the current version stamp of their source entity, without loading them.
+     * Entries read at an older stamp are evicted. Stamps not in memory are read
+     * with a single batch lookup, and not cached, so that a stamp read before a
+     * concurrent change never outlives its eviction.
+     *
+     * @param sourceEntityIds The IDs of the source entities.
+     * @return The current cached relationships by source entity ID, source
+     *         entities without any are left out.
+     */
+    private Map<Long, StampedRelationships> getCurrent(Collection<Long> sourceEntityIds) {
+        Map<Long, StampedRelationships> cached = new LinkedHashMap<>();
+        Map<Long, String> versionStamps = new HashMap<>();
+        List<Long> unknownStamps = new ArrayList<>();
+        for (Long sourceEntityId : sourceEntityIds) {
+            StampedRelationships stamped = relationshipsBySource.get(sourceEntityId, StampedRelationships.class);
+            if (stamped == null) {
+                continue;
+            }
+            cached.put(sourceEntityId, stamped);
+            String versionStamp = this.versionStamps.get(sourceEntityId, String.class);
+            if (versionStamp != null) {
+                versionStamps.put(sourceEntityId, versionStamp);
+            } else {
+                unknownStamps.add(sourceEntityId);
+            }
+        }
+        if (!unknownStamps.isEmpty()) {
+            versionStamps.putAll(entityRelationshipService.getSourceVersionStamps(unknownStamps));
+        }
+
+        Map<Long, StampedRelationships> current = new LinkedHashMap<>();
+        cached.forEach((sourceEntityId, stamped) -> {
+            if (stamped.versionStamp() != null && stamped.versionStamp().equals(versionStamps.get(sourceEntityId))) {
+                current.put(sourceEntityId, stamped);
+            } else {
+                relationshipsBySource.evict(sourceEntityId);
+            }
+        });
+        return current;
+    }
+
+    /**
+     * Restricts a cached adjacency list to a set of relationship and patient types.
+     *
+     * @param adjacency         The grouped relationships of an entity.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to keep all relationship types.
+     * @param patientTypes      The patient types to filter on, or null or empty to
+     *                          keep all patient types.
+     * @return The grouped relationships of the requested types.
+     */
+    private Map<String, List<RelationshipSummary>> filter(Map<String, List<RelationshipSummary>> adjacency,
+            Set<RelationshipType> relationshipTypes, Set<PatientType> patientTypes) {
+        boolean allRelationshipTypes = relationshipTypes == null || relationshipTypes.isEmpty();
+        boolean allPatientTypes = patientTypes == null || patientTypes.isEmpty();
+        if (allRelationshipTypes && allPatientTypes) {
+            return adjacency;
+        }
+
+        Map<String, List<RelationshipSummary>> filtered = new LinkedHashMap<>();
+        for (Map.Entry<String, List<RelationshipSummary>> entry : adjacency.entrySet()) {
+            if (!allRelationshipTypes && !relationshipTypes.contains(RelationshipType.valueOf(entry.getKey()))) {
+                continue;
+            }
+            List<RelationshipSummary> relationships = allPatientTypes ? entry.getValue()
+                    : filterPatients(entry.getValue(), patientTypes);
+            if (!relationships.isEmpty()) {
+                filtered.put(entry.getKey(), relationships);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Keeps the patients of the requested patient types in a list of relationship
+     * summaries, reusing the summaries whose patients all match.
+     *
+     * @param relationships The relationship summaries.
+     * @param patientTypes  The patient types to keep.
+     * @return The relationship summaries with at least one patient of the
+     *         requested types.
+     */
+    private static List<RelationshipSummary> filterPatients(List<RelationshipSummary> relationships,
+            Set<PatientType> patientTypes) {
+        List<RelationshipSummary> filtered = new ArrayList<>();
+        for (RelationshipSummary relationship : relationships) {
+            List<Patient> patients = relationship.patientTypes();
+            int matching = 0;
+            for (Patient patient : patients) {
+                if (patient != null && patientTypes.contains(patient.getPatientType())) {
+                    matching++;
+                }
+            }
+            if (matching == patients.size()) {
+                filtered.add(relationship);
+            } else if (matching > 0) {
+                List<Patient> matchingPatients = new ArrayList<>(matching);
+                for (Patient patient : patients) {
+                    if (patient != null && patientTypes.contains(patient.getPatientType())) {
+                        matchingPatients.add(patient);
+                    }
+                }
+                filtered.add(new RelationshipSummary(relationship.source(), relationship.destination(),
+                        matchingPatients));
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Gets the version stamp of the relationships of a source entity, without
+     * loading them. The stamp is served from memory and only read from the
+     * database when it is not cached, so a conditional request for unchanged
+     * relationships does not reach the database.
+     *
+     * @param sourceEntityId The ID of the source entity.
+     * @return The version stamp of the relationships of the source entity.
+     * @see EntityRelationshipService#getSourceVersionStamp
+     */
+    public String getSourceVersionStamp(Long sourceEntityId) {
+        return versionStamps.get(sourceEntityId,
+                () -> entityRelationshipService.getSourceVersionStamp(sourceEntityId));
+    }
+
+    /**
+     * Evicts the version stamps of source entities, so that they are read from
+     * the database again, for example after they were changed through another
+     * instance.
+     *
+     * @param sourceEntityIds The IDs of the source entities.
+     */
+    public void evictVersionStamps(Collection<Long> sourceEntityIds) {
+        sourceEntityIds.forEach(versionStamps::evict);
+    }
+
+    /**
+     * Evicts the cached relationships of a source entity.
+     *
+     * @param sourceEntityId The ID of the source entity.
+     */
+    public void evict(Long sourceEntityId) {
+        relationshipsBySource.evict(sourceEntityId);
+    }
+
+    /**
+     * Evicts the cached relationships into a destination entity.
+     *
+     * @param destinationEntityId The ID of the destination entity.
+     */
+    public void evictDestination(Long destinationEntityId) {
+        relationshipsByDestination.evict(destinationEntityId);
+    }
+
+    /**
+     * Evicts the cached relationships of every source and destination entity.
+     */
+    public void evictAll() {
+        versionStamps.clear();
+        relationshipsBySource.clear();
+        relationshipsByDestination.clear();
+    }
+
+    /**
+     * Invalidates cached relationships when relationships change.
+     *
+     * @param event The event describing the changed relationships.
+     */
+    @EventListener
+    public void onRelationshipsChanged(EntityRelationshipsChangedEvent event) {
+        if (event.isGlobal()) {
+            logger.debug("Evicting all cached relationships");
+            versionStamps.clear();
+            relationshipsBySource.clear();
+        } else {
+            logger.debug("Evicting cached relationships of source entities {}", event.sourceEntityIds());
+            evictVersionStamps(event.sourceEntityIds());
+            event.sourceEntityIds().forEach(this::evict);
+        }
+        if (event.affectsAllDestinations()) {
+            relationshipsByDestination.clear();
+        } else {
+            logger.debug("Evicting cached relationships of destination entities {}", event.destinationEntityIds());
+            event.destinationEntityIds().forEach(this::evictDestination);
+        }
+    }
+}
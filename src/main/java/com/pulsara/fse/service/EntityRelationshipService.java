@@ -5,20 +5,42 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.pulsara.fse.dto.EntitySummary;
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.dto.StampedRelationships;
 import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.RelationshipGraph;
 import com.pulsara.fse.models.EntityModel;
 import com.pulsara.fse.models.EntityRelationshipModel;
 import com.pulsara.fse.models.Patient;
 import com.pulsara.fse.models.RelationshipType;
 import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRelationshipRepositoryCustom.ProjectedRelationship;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 /**
  * Service class for managing entity relationships.
@@ -30,19 +52,65 @@ import java.util.stream.Collectors;
 @Service
 public class EntityRelationshipService {
 
+    /**
+     * The fields of a mapped relationship that may be projected.
+     */
+    public static final List<String> RELATIONSHIP_FIELDS = List.of("source", "destination", "patient_types");
+
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
     private final EntityRelationshipRepository entityRelationshipRepository;
+    private final RelationshipGraphIndexService relationshipGraphIndexService;
+    private final RelationshipMetrics relationshipMetrics;
+    private final RequestCoalescer requestCoalescer;
+    private final TransactionTemplate readOnlyTransaction;
+    private final RelationshipSummaryService relationshipSummaryService;
+    private final RelationshipChangeRepository relationshipChangeRepository;
     private static final Logger logger = LoggerFactory.getLogger(EntityRelationshipService.class);
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
-     * Constructs an EntityRelationshipService with the specified
-     * EntityRelationshipRepository.
+     * Constructs an EntityRelationshipService.
      *
-     * @param entityRelationshipRepository The repository used for accessing entity
-     *                                     relationships.
+     * @param entityRelationshipRepository  The repository used for accessing entity
+     *                                      relationships.
+     * @param relationshipGraphIndexService The service holding the optional
+     *                                      in-memory relationship graph, may be
+     *                                      null.
+     * @param relationshipMetrics           The instrumentation of the grouped
+     *                                      relationship lookups.
+     * @param requestCoalescer              The single-flight executor of the
+     *                                      uncached relationship lookups.
+     * @param transactionManager            The transaction manager of the grouped
+     *                                      relationship lookups, may be null to run
+     *                                      them outside of a transaction.
+     * @param relationshipSummaryService    The service reading the relationship
+     *                                      summaries, may be null to query every
+     *                                      lookup.
+     * @param relationshipChangeRepository  The repository of the relationship
+     *                                      change log, read for version stamps,
+     *                                      may be null if changes are not logged.
      */
     @Autowired
-    public EntityRelationshipService(EntityRelationshipRepository entityRelationshipRepository) {
+    public EntityRelationshipService(EntityRelationshipRepository entityRelationshipRepository,
+            RelationshipGraphIndexService relationshipGraphIndexService, RelationshipMetrics relationshipMetrics,
+            RequestCoalescer requestCoalescer, PlatformTransactionManager transactionManager,
+            RelationshipSummaryService relationshipSummaryService,
+            RelationshipChangeRepository relationshipChangeRepository) {
         this.entityRelationshipRepository = entityRelationshipRepository;
+        this.relationshipGraphIndexService = relationshipGraphIndexService;
+        this.relationshipMetrics = relationshipMetrics;
+        this.requestCoalescer = requestCoalescer;
+        if (transactionManager == null) {
+            this.readOnlyTransaction = null;
+        } else {
+            this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+            this.readOnlyTransaction.setReadOnly(true);
+        }
+        this.relationshipSummaryService = relationshipSummaryService;
+        this.relationshipChangeRepository = relationshipChangeRepository;
     }
 
     /**
@@ -54,7 +122,7 @@ public class EntityRelationshipService {
      *         entity.
      * @throws FSEServiceException If an error occurs during the retrieval process.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<EntityRelationshipModel> getRelationshipsBySourceEntity(EntityModel sourceEntity) {
         try {
             // Validate sourceEntity
@@ -82,7 +150,7 @@ public class EntityRelationshipService {
      *         entity and relationship types.
      * @throws FSEServiceException If an error occurs during the retrieval process.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<EntityRelationshipModel> getRelationshipsBySourceEntityAndRelationshipTypes(EntityModel sourceEntity,
             Set<RelationshipType> relationshipTypes) {
         try {
@@ -119,7 +187,7 @@ public class EntityRelationshipService {
      * @return A list of patients associated with the provided source entity,
      *         destination entity, and relationship type.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Patient> getPatientsBySourceAndDestinationAndRelationshipType(
             EntityModel sourceEntity, EntityModel destinationEntity, RelationshipType relationshipType) {
         List<EntityRelationshipModel> relationships = entityRelationshipRepository
@@ -133,35 +201,717 @@ public class EntityRelationshipService {
     }
 
     /**
-     * Maps an entity relationship to a structured map with source, destination, and
-     * patient types.
+     * Retrieves the relationships of the provided source entity grouped by
+     * relationship type, with one relationship summary per destination entity.
+     * All rows are loaded with a single query and the patients of each
+     * (destination, relationship type) pair are collected in memory, so the
+     * number of queries does not grow with the number of relationships. When the
+     * in-memory relationship graph index is loaded, the relationships are served
+     * from it without querying the database. Otherwise the precomputed summary of
+     * the source entity is read with a single primary key lookup, and only source
+     * entities without a summary are queried. Lookups are not coalesced here, as
+     * callers go through the relationship caches, whose concurrent misses of the
+     * same source entity already share a single load.
+     *
+     * @param sourceEntity      The source entity for which relationships are to be
+     *                          retrieved.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @return A map of relationship type names to the mapped relationships of that
+     *         type.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public Map<String, List<RelationshipSummary>> getGroupedRelationshipsBySourceEntity(EntityModel sourceEntity,
+            Set<RelationshipType> relationshipTypes) {
+        return readOnly(() -> loadGroupedRelationshipsBySourceEntity(sourceEntity, relationshipTypes, 0));
+    }
+
+    /**
+     * Retrieves all relationships of the provided source entity grouped like
+     * {@link #getGroupedRelationshipsBySourceEntity}, together with the version
+     * stamp of {@link #getSourceVersionStamp} read in the same read-only
+     * transaction, so that the stamp describes the relationships returned with
+     * it. The in-memory relationship graph is only used if it was loaded after
+     * the last logged change of the source entity.
+     *
+     * @param sourceEntity The source entity for which relationships are to be
+     *                     retrieved.
+     * @return The grouped relationships and their version stamp.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public StampedRelationships getStampedRelationshipsBySourceEntity(EntityModel sourceEntity) {
+        return readOnly(() -> {
+            Long sourceEntityId = sourceEntity == null ? null : sourceEntity.getId();
+            long commitSeq = findLatestCommitSeq(sourceEntityId);
+            String versionStamp = versionStamp(commitSeq, findSummaryUpdatedAt(sourceEntityId));
+            return new StampedRelationships(versionStamp,
+                    loadGroupedRelationshipsBySourceEntity(sourceEntity, null, commitSeq));
+        });
+    }
+
+    /**
+     * Gets the version stamp of the relationships of a source entity without
+     * loading them. The stamp is derived from the database, from the commit
+     * sequence number of the last logged change of the source entity and the
+     * time its relationship summary was last written, so it is the same on every
+     * instance and across restarts, and changes with every relationship write and
+     * every summary repaired by the reconciliation job.
+     *
+     * @param sourceEntityId The ID of the source entity.
+     * @return The version stamp of the relationships of the source entity.
+     */
+    public String getSourceVersionStamp(Long sourceEntityId) {
+        return readOnly(() -> versionStamp(findLatestCommitSeq(sourceEntityId),
+                findSummaryUpdatedAt(sourceEntityId)));
+    }
+
+    /**
+     * Gets the version stamps of several source entities like
+     * {@link #getSourceVersionStamp}, with one query for their last logged
+     * changes and one for their summaries.
      *
-     * @param relationship The entity relationship to be mapped.
-     * @return A structured map representing the entity relationship.
+     * @param sourceEntityIds The IDs of the source entities.
+     * @return A map of every provided source entity ID to its version stamp.
      */
-    public Map<String, Object> mapRelationship(EntityRelationshipModel relationship) {
-        Map<String, Object> mappedRelationship = new LinkedHashMap<>();
-        mappedRelationship.put("source", mapEntity(relationship.getSourceEntity()));
-        mappedRelationship.put("destination", mapEntity(relationship.getDestinationEntity()));
-        mappedRelationship.put("patient_types", this.getPatientsBySourceAndDestinationAndRelationshipType(
-                relationship.getSourceEntity(),
-                relationship.getDestinationEntity(),
-                relationship.getRelationshipType()));
-        return mappedRelationship;
+    public Map<Long, String> getSourceVersionStamps(Collection<Long> sourceEntityIds) {
+        return readOnly(() -> versionStamps(sourceEntityIds, findLatestCommitSeqs(sourceEntityIds)));
+    }
+
+    private Map<Long, Long> findLatestCommitSeqs(Collection<Long> sourceEntityIds) {
+        Map<Long, Long> commitSeqs = new HashMap<>();
+        if (relationshipChangeRepository != null && !sourceEntityIds.isEmpty()) {
+            relationshipChangeRepository.findLatestCommitSeqsBySourceEntityIds(sourceEntityIds)
+                    .forEach(row -> commitSeqs.put(row.sourceEntityId(), row.commitSeq()));
+        }
+        return commitSeqs;
+    }
+
+    private Map<Long, String> versionStamps(Collection<Long> sourceEntityIds, Map<Long, Long> commitSeqs) {
+        Map<Long, Instant> summariesUpdatedAt = relationshipSummaryService == null || sourceEntityIds.isEmpty()
+                ? Map.of()
+                : relationshipSummaryService.getUpdatedAt(sourceEntityIds);
+        Map<Long, String> versionStamps = new HashMap<>();
+        for (Long sourceEntityId : sourceEntityIds) {
+            versionStamps.put(sourceEntityId, versionStamp(commitSeqs.getOrDefault(sourceEntityId, 0L),
+                    summariesUpdatedAt.get(sourceEntityId)));
+        }
+        return versionStamps;
+    }
+
+    private long findLatestCommitSeq(Long sourceEntityId) {
+        return relationshipChangeRepository == null || sourceEntityId == null ? 0
+                : relationshipChangeRepository.findLatestCommitSeqBySourceEntityId(sourceEntityId);
+    }
+
+    private Instant findSummaryUpdatedAt(Long sourceEntityId) {
+        return relationshipSummaryService == null || sourceEntityId == null ? null
+                : relationshipSummaryService.getUpdatedAt(sourceEntityId);
+    }
+
+    private static String versionStamp(long commitSeq, Instant summaryUpdatedAt) {
+        long updatedAtMicros = summaryUpdatedAt == null ? 0
+                : ChronoUnit.MICROS.between(Instant.EPOCH, summaryUpdatedAt);
+        return Long.toString(commitSeq, 36) + "." + Long.toString(updatedAtMicros, 36);
+    }
+
+    private Map<String, List<RelationshipSummary>> loadGroupedRelationshipsBySourceEntity(EntityModel sourceEntity,
+            Set<RelationshipType> relationshipTypes, long commitSeq) {
+        if (sourceEntity == null) {
+            logger.error("sourceEntity is null");
+            throw new FSEServiceException("Source entity not found", HttpStatus.NOT_FOUND);
+        }
+
+        RelationshipGraph graph = getIndexedGraphForSource(sourceEntity.getId(), commitSeq);
+        if (graph != null) {
+            int node = graph.indexOf(sourceEntity.getId());
+            if (node >= 0) {
+                Map<String, List<RelationshipSummary>> grouped = relationshipMetrics.observe(
+                        RelationshipMetrics.BY_SOURCE, RelationshipMetrics.INDEX,
+                        () -> groupRelationships(graph, node, relationshipTypes));
+                relationshipMetrics.recordResultSize(RelationshipMetrics.BY_SOURCE, grouped);
+                return grouped;
+            }
+        }
+
+        // source entities without a summary yet are queried
+        if (relationshipSummaryService != null && sourceEntity.getId() != null) {
+            Map<String, List<RelationshipSummary>> grouped = relationshipMetrics.observe(
+                    RelationshipMetrics.BY_SOURCE, RelationshipMetrics.SUMMARY,
+                    () -> relationshipSummaryService.getGroupedRelationships(sourceEntity.getId(),
+                            relationshipTypes));
+            if (grouped != null) {
+                relationshipMetrics.recordResultSize(RelationshipMetrics.BY_SOURCE, grouped);
+                return grouped;
+            }
+        }
+
+        List<EntityRelationshipModel> relationships;
+        try {
+            relationships = relationshipMetrics.observe(RelationshipMetrics.BY_SOURCE, RelationshipMetrics.QUERY,
+                    () -> relationshipTypes == null || relationshipTypes.isEmpty()
+                            ? entityRelationshipRepository.findWithDestinationBySourceEntity(sourceEntity)
+                            : entityRelationshipRepository.findWithDestinationBySourceEntityAndRelationshipTypes(
+                                    sourceEntity, relationshipTypes));
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+            throw new FSEServiceException("Unable to retrieve relationships at this time. Please try again!",
+                    HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        Map<String, List<RelationshipSummary>> grouped = relationshipMetrics.observe(RelationshipMetrics.BY_SOURCE,
+                RelationshipMetrics.GROUP, () -> groupRelationships(relationships, sourceEntity, false));
+        relationshipMetrics.recordResultSize(RelationshipMetrics.BY_SOURCE, grouped);
+        return grouped;
+    }
+
+    /**
+     * Retrieves the relationships into the provided destination entity grouped by
+     * relationship type, with one relationship summary per source entity, in the
+     * shape of {@link #getGroupedRelationshipsBySourceEntity}. All rows are loaded
+     * with a single query on the destination index, or served from the reverse
+     * index of the in-memory relationship graph when it is loaded. Like by-source
+     * lookups, they are not coalesced here but behind the relationship caches.
+     *
+     * @param destinationEntity The destination entity for which relationships are
+     *                          to be retrieved.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @return A map of relationship type names to the relationship summaries of
+     *         that type.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public Map<String, List<RelationshipSummary>> getGroupedRelationshipsByDestinationEntity(
+            EntityModel destinationEntity, Set<RelationshipType> relationshipTypes) {
+        return readOnly(() -> loadGroupedRelationshipsByDestinationEntity(destinationEntity, relationshipTypes));
+    }
+
+    private Map<String, List<RelationshipSummary>> loadGroupedRelationshipsByDestinationEntity(
+            EntityModel destinationEntity, Set<RelationshipType> relationshipTypes) {
+        if (destinationEntity == null) {
+            logger.error("destinationEntity is null");
+            throw new FSEServiceException("Destination entity not found", HttpStatus.NOT_FOUND);
+        }
+
+        RelationshipGraph graph = getIndexedGraphForDestination(destinationEntity.getId());
+        if (graph != null) {
+            int node = graph.indexOf(destinationEntity.getId());
+            if (node >= 0) {
+                Map<String, List<RelationshipSummary>> grouped = relationshipMetrics.observe(
+                        RelationshipMetrics.BY_DESTINATION, RelationshipMetrics.INDEX,
+                        () -> groupInboundRelationships(graph, node, relationshipTypes));
+                relationshipMetrics.recordResultSize(RelationshipMetrics.BY_DESTINATION, grouped);
+                return grouped;
+            }
+        }
+
+        List<EntityRelationshipModel> relationships;
+        try {
+            relationships = relationshipMetrics.observe(RelationshipMetrics.BY_DESTINATION,
+                    RelationshipMetrics.QUERY,
+                    () -> relationshipTypes == null || relationshipTypes.isEmpty()
+                            ? entityRelationshipRepository.findWithSourceByDestinationEntity(destinationEntity)
+                            : entityRelationshipRepository.findWithSourceByDestinationEntityAndRelationshipTypes(
+                                    destinationEntity, relationshipTypes));
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+            throw new FSEServiceException("Unable to retrieve relationships at this time. Please try again!",
+                    HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        Map<String, List<RelationshipSummary>> grouped = relationshipMetrics.observe(
+                RelationshipMetrics.BY_DESTINATION, RelationshipMetrics.GROUP,
+                () -> groupRelationships(relationships, destinationEntity, true));
+        relationshipMetrics.recordResultSize(RelationshipMetrics.BY_DESTINATION, grouped);
+        return grouped;
+    }
+
+    /**
+     * Retrieves the relationships of several source entities, grouped per source
+     * entity as by {@link #getGroupedRelationshipsBySourceEntity}. All rows are
+     * loaded with a single IN-list query, so callers are expected to pass the
+     * source entities in bounded chunks.
+     *
+     * @param sourceEntities The source entities for which relationships are to be
+     *                       retrieved.
+     * @return A map of source entity IDs to the grouped relationships of that
+     *         source entity, with an entry for every provided source entity.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<String, List<RelationshipSummary>>> getGroupedRelationshipsBySourceEntities(
+            Collection<EntityModel> sourceEntities) {
+        return loadGroupedRelationshipsBySourceEntities(sourceEntities, Map.of());
+    }
+
+    /**
+     * Retrieves the relationships of several source entities like
+     * {@link #getGroupedRelationshipsBySourceEntities}, each together with the
+     * version stamp of {@link #getSourceVersionStamps} read in the same read-only
+     * transaction, as {@link #getStampedRelationshipsBySourceEntity} does for a
+     * single source entity.
+     *
+     * @param sourceEntities The source entities for which relationships are to be
+     *                       retrieved.
+     * @return A map of source entity IDs to the grouped relationships and version
+     *         stamp of that source entity, with an entry for every provided source
+     *         entity.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public Map<Long, StampedRelationships> getStampedRelationshipsBySourceEntities(
+            Collection<EntityModel> sourceEntities) {
+        return readOnly(() -> {
+            List<Long> sourceEntityIds = sourceEntities.stream().map(EntityModel::getId).toList();
+            Map<Long, Long> commitSeqs = findLatestCommitSeqs(sourceEntityIds);
+            Map<Long, String> versionStamps = versionStamps(sourceEntityIds, commitSeqs);
+            Map<Long, StampedRelationships> stampedBySource = new LinkedHashMap<>();
+            loadGroupedRelationshipsBySourceEntities(sourceEntities, commitSeqs).forEach(
+                    (sourceEntityId, grouped) -> stampedBySource.put(sourceEntityId,
+                            new StampedRelationships(versionStamps.get(sourceEntityId), grouped)));
+            return stampedBySource;
+        });
+    }
+
+    private Map<Long, Map<String, List<RelationshipSummary>>> loadGroupedRelationshipsBySourceEntities(
+            Collection<EntityModel> sourceEntities, Map<Long, Long> commitSeqs) {
+        Map<Long, Map<String, List<RelationshipSummary>>> groupedBySource = new LinkedHashMap<>();
+        if (sourceEntities.isEmpty()) {
+            return groupedBySource;
+        }
+
+        Map<Long, EntityModel> unindexedEntities = new LinkedHashMap<>();
+        for (EntityModel sourceEntity : sourceEntities) {
+            RelationshipGraph graph = getIndexedGraphForSource(sourceEntity.getId(),
+                    commitSeqs.getOrDefault(sourceEntity.getId(), 0L));
+            int node = graph == null ? -1 : graph.indexOf(sourceEntity.getId());
+            if (node >= 0) {
+                Map<String, List<RelationshipSummary>> grouped = relationshipMetrics.observe(
+                        RelationshipMetrics.BY_SOURCES, RelationshipMetrics.INDEX,
+                        () -> groupRelationships(graph, node, null));
+                relationshipMetrics.recordResultSize(RelationshipMetrics.BY_SOURCES, grouped);
+                groupedBySource.put(sourceEntity.getId(), grouped);
+            } else {
+                unindexedEntities.put(sourceEntity.getId(), sourceEntity);
+            }
+        }
+        if (unindexedEntities.isEmpty()) {
+            return groupedBySource;
+        }
+        List<Long> unindexedIds = new ArrayList<>(unindexedEntities.keySet());
+
+        List<EntityRelationshipModel> relationships;
+        try {
+            relationships = relationshipMetrics.observe(RelationshipMetrics.BY_SOURCES, RelationshipMetrics.QUERY,
+                    () -> entityRelationshipRepository.findWithDestinationBySourceEntityIds(unindexedIds));
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+            throw new FSEServiceException("Unable to retrieve relationships at this time. Please try again!",
+                    HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        relationshipMetrics.observe(RelationshipMetrics.BY_SOURCES, RelationshipMetrics.GROUP, () -> {
+            Map<Long, List<EntityRelationshipModel>> relationshipsBySource = relationships.stream()
+                    .collect(Collectors.groupingBy(relationship -> relationship.getSourceEntity().getId()));
+            unindexedEntities.forEach((sourceEntityId, sourceEntity) -> groupedBySource.put(sourceEntityId,
+                    groupRelationships(relationshipsBySource.getOrDefault(sourceEntityId, List.of()), sourceEntity,
+                            false)));
+            return groupedBySource;
+        });
+        for (Long sourceEntityId : unindexedIds) {
+            relationshipMetrics.recordResultSize(RelationshipMetrics.BY_SOURCES, groupedBySource.get(sourceEntityId));
+        }
+        return groupedBySource;
+    }
+
+    /**
+     * Streams the relationships of the provided source entity to a consumer, one
+     * mapped relationship per (relationship type, destination) pair, in the shape
+     * of {@link #getGroupedRelationshipsBySourceEntity}. Rows are read from a
+     * database cursor ordered by relationship type and destination, so memory use
+     * does not grow with the number of relationships.
+     *
+     * @param sourceEntity      The source entity for which relationships are to be
+     *                          retrieved.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @param consumer          The consumer receiving the relationship type name and
+     *                          the mapped relationship of every group.
+     * @throws FSEServiceException If the source entity is null.
+     */
+    @Transactional(readOnly = true)
+    public void streamGroupedRelationshipsBySourceEntity(EntityModel sourceEntity,
+            Set<RelationshipType> relationshipTypes, BiConsumer<String, RelationshipSummary> consumer) {
+        if (sourceEntity == null) {
+            logger.error("sourceEntity is null");
+            throw new FSEServiceException("Source entity not found", HttpStatus.NOT_FOUND);
+        }
+
+        EntitySummary mappedSource = EntitySummary.of(sourceEntity);
+        RelationshipType currentType = null;
+        Long currentDestinationId = null;
+        RelationshipSummary current = null;
+        int rows = 0;
+
+        // the type filter is applied by the query, so skipped rows are never fetched
+        try (Stream<EntityRelationshipModel> relationships = relationshipTypes == null || relationshipTypes.isEmpty()
+                ? entityRelationshipRepository.streamWithDestinationBySourceEntity(sourceEntity)
+                : entityRelationshipRepository.streamWithDestinationBySourceEntityAndRelationshipTypes(sourceEntity,
+                        relationshipTypes)) {
+            Iterator<EntityRelationshipModel> iterator = relationships.iterator();
+            while (iterator.hasNext()) {
+                EntityRelationshipModel relationship = iterator.next();
+                Long destinationId = relationship.getDestinationEntity().getId();
+                if (relationship.getRelationshipType() != currentType || !destinationId.equals(currentDestinationId)) {
+                    if (current != null) {
+                        consumer.accept(currentType.name(), current);
+                    }
+                    currentType = relationship.getRelationshipType();
+                    currentDestinationId = destinationId;
+                    current = new RelationshipSummary(mappedSource,
+                            EntitySummary.of(relationship.getDestinationEntity()), new ArrayList<>());
+                }
+                current.patientTypes().add(relationship.getPatient());
+
+                // keep the persistence context from growing with the result set
+                if (entityManager != null && ++rows % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        if (current != null) {
+            consumer.accept(currentType.name(), current);
+        }
+    }
+
+    /**
+     * Retrieves a keyset paginated page of the relationships of the provided source
+     * entity, grouped like {@link #getGroupedRelationshipsBySourceEntity} and
+     * holding only the requested fields. Pages are cut on relationship IDs, so the
+     * patients of a (relationship type, destination) pair may continue on the next
+     * page. Only the columns backing the requested fields are selected. Identical
+     * concurrent calls share a single query.
+     *
+     * @param sourceEntity      The source entity for which relationships are to be
+     *                          retrieved.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @param afterId           The relationship ID after which the page starts, or
+     *                          null for the first page.
+     * @param pageSize          The maximum number of relationships of the page.
+     * @param fields            The fields of each mapped relationship, a subset of
+     *                          {@link #RELATIONSHIP_FIELDS}, or null or empty for
+     *                          all fields.
+     * @return The page of grouped relationships.
+     * @throws FSEServiceException If an error occurs during the retrieval process.
+     */
+    public KeysetPage<Map<String, List<RelationshipSummary>>> getRelationshipPageBySourceEntity(
+            EntityModel sourceEntity, Set<RelationshipType> relationshipTypes, Long afterId, int pageSize,
+            Collection<String> fields) {
+        return coalesce(RelationshipMetrics.BY_SOURCE_PAGE, sourceEntity,
+                Arrays.asList(typesKey(relationshipTypes), afterId, pageSize,
+                        fields == null ? Set.of() : Set.copyOf(fields)),
+                () -> loadRelationshipPageBySourceEntity(sourceEntity, relationshipTypes, afterId, pageSize, fields));
+    }
+
+    private KeysetPage<Map<String, List<RelationshipSummary>>> loadRelationshipPageBySourceEntity(
+            EntityModel sourceEntity, Set<RelationshipType> relationshipTypes, Long afterId, int pageSize,
+            Collection<String> fields) {
+        if (sourceEntity == null) {
+            logger.error("sourceEntity is null");
+            throw new FSEServiceException("Source entity not found", HttpStatus.NOT_FOUND);
+        }
+        boolean allFields = fields == null || fields.isEmpty();
+        boolean withSource = allFields || fields.contains("source");
+        boolean withDestination = allFields || fields.contains("destination");
+        boolean withPatients = allFields || fields.contains("patient_types");
+
+        // fetch one extra row to find out whether there is a next page
+        List<ProjectedRelationship> rows;
+        try {
+            rows = entityRelationshipRepository.findProjectedPageBySourceEntityId(sourceEntity.getId(),
+                    relationshipTypes, afterId, pageSize + 1, withDestination, withPatients);
+        } catch (Exception e) {
+            logger.error("An error occurred", e);
+            throw new FSEServiceException("Unable to retrieve relationships at this time. Please try again!",
+                    HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = KeysetPage.encodeCursor(rows.get(pageSize - 1).id());
+        }
+
+        EntitySummary mappedSource = withSource ? EntitySummary.of(sourceEntity) : null;
+        Map<String, Map<Long, RelationshipSummary>> byTypeAndDestination = new LinkedHashMap<>();
+        for (ProjectedRelationship row : rows) {
+            RelationshipSummary mappedRelationship = byTypeAndDestination
+                    .computeIfAbsent(row.relationshipType().name(), type -> new LinkedHashMap<>())
+                    .computeIfAbsent(row.destinationEntityId(), destinationId -> new RelationshipSummary(
+                            mappedSource,
+                            withDestination && destinationId != null
+                                    ? new EntitySummary(destinationId, row.destinationName(), row.destinationType())
+                                    : null,
+                            withPatients ? new ArrayList<>() : null));
+            if (withPatients) {
+                mappedRelationship.patientTypes().add(toPatient(row));
+            }
+        }
+
+        Map<String, List<RelationshipSummary>> groupedRelationships = new LinkedHashMap<>();
+        byTypeAndDestination.forEach((type, byDestination) -> groupedRelationships.put(type,
+                new ArrayList<>(byDestination.values())));
+        return new KeysetPage<>(groupedRelationships, nextCursor);
+    }
+
+    /**
+     * Runs a lookup of the relationships of an entity in a read-only transaction,
+     * or waits for the identical lookup in flight. Waiting callers do not hold a
+     * database connection.
+     *
+     * @param <T>        The type of the result.
+     * @param operation  The lookup, such as {@value RelationshipMetrics#BY_SOURCE}.
+     * @param entity     The entity the relationships are looked up for.
+     * @param parameters The other parameters of the lookup.
+     * @param load       The lookup.
+     * @return The result of the lookup.
+     */
+    private <T> T coalesce(String operation, EntityModel entity, List<Object> parameters, Supplier<T> load) {
+        if (entity == null || entity.getId() == null) {
+            // rejected or not coalescible, the lookup reports the error
+            return readOnly(load);
+        }
+        List<Object> key = new ArrayList<>(parameters.size() + 1);
+        key.add(entity.getId());
+        key.addAll(parameters);
+        return requestCoalescer.execute(operation, key, () -> readOnly(load));
+    }
+
+    /**
+     * Runs a lookup in a read-only transaction, or as is without a transaction
+     * manager.
+     *
+     * @param <T>  The type of the result.
+     * @param load The lookup.
+     * @return The result of the lookup.
+     */
+    private <T> T readOnly(Supplier<T> load) {
+        return readOnlyTransaction == null ? load.get() : readOnlyTransaction.execute(status -> load.get());
+    }
+
+    /**
+     * Gets the relationship types of a lookup in a form with value based equality,
+     * treating null as empty.
+     *
+     * @param relationshipTypes The relationship types, may be null.
+     * @return The relationship types.
+     */
+    private static Set<RelationshipType> typesKey(Set<RelationshipType> relationshipTypes) {
+        return relationshipTypes == null || relationshipTypes.isEmpty() ? Set.of() : Set.copyOf(relationshipTypes);
+    }
+
+    private static Patient toPatient(ProjectedRelationship row) {
+        // a relationship without patient columns has no patient, as when loaded through JPA
+        if (row.patientType() == null && row.contactPhone() == null && row.instructions() == null) {
+            return null;
+        }
+        Patient patient = new Patient();
+        patient.setPatientType(row.patientType());
+        patient.setContactPhone(row.contactPhone());
+        patient.setInstructions(row.instructions());
+        return patient;
+    }
+
+    /**
+     * Groups entity relationships by relationship type and destination entity.
+     * Relationships sharing the same destination and relationship type are merged
+     * into a single mapped entry whose patient types hold the patients of every
+     * merged row.
+     *
+     * @param relationships The entity relationships to be grouped.
+     * @return A map of relationship type names to the mapped relationships of that
+     *         type.
+     */
+    public Map<String, List<RelationshipSummary>> groupRelationships(List<EntityRelationshipModel> relationships) {
+        return groupRelationships(relationships, null, false);
+    }
+
+    /**
+     * Groups entity relationships by relationship type and the entity at the other
+     * end of the lookup, merging the relationships of each group into a single
+     * relationship summary.
+     *
+     * @param relationships The entity relationships to be grouped.
+     * @param lookupEntity  The entity the relationships were looked up by, mapped
+     *                      instead of the association to it, which is not fetched,
+     *                      or null to map the associations at both ends.
+     * @param byDestination Whether the relationships were looked up by destination
+     *                      and are grouped by source, rather than looked up by
+     *                      source and grouped by destination.
+     * @return A map of relationship type names to the relationship summaries of
+     *         that type.
+     */
+    private Map<String, List<RelationshipSummary>> groupRelationships(List<EntityRelationshipModel> relationships,
+            EntityModel lookupEntity, boolean byDestination) {
+        Map<String, Map<Long, List<EntityRelationshipModel>>> byTypeAndPeer = new LinkedHashMap<>();
+        for (EntityRelationshipModel relationship : relationships) {
+            EntityModel peer = byDestination ? relationship.getSourceEntity() : relationship.getDestinationEntity();
+            byTypeAndPeer
+                    .computeIfAbsent(relationship.getRelationshipType().name(), type -> new LinkedHashMap<>())
+                    .computeIfAbsent(peer.getId(), id -> new ArrayList<>())
+                    .add(relationship);
+        }
+
+        EntitySummary mappedLookup = lookupEntity == null ? null : EntitySummary.of(lookupEntity);
+        Map<String, List<RelationshipSummary>> groupedRelationships = new LinkedHashMap<>();
+        byTypeAndPeer.forEach((type, byPeer) -> {
+            List<RelationshipSummary> mappedRelationships = new ArrayList<>(byPeer.size());
+            byPeer.values().forEach(group -> mappedRelationships.add(
+                    mapRelationshipGroup(group, mappedLookup, byDestination)));
+            groupedRelationships.put(type, mappedRelationships);
+        });
+        return groupedRelationships;
+    }
+
+    /**
+     * Groups the outgoing edges of a node of the in-memory relationship graph by
+     * relationship type, in the same shape as
+     * {@link #groupRelationships(List)}.
+     *
+     * @param graph             The relationship graph.
+     * @param node              The node index of the source entity.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to group all relationship types.
+     * @return A map of relationship type names to the mapped relationships of that
+     *         type.
+     */
+    public Map<String, List<RelationshipSummary>> groupRelationships(RelationshipGraph graph, int node,
+            Set<RelationshipType> relationshipTypes) {
+        EntitySummary mappedSource = mapEntity(graph, node);
+        Map<String, List<RelationshipSummary>> groupedRelationships = new LinkedHashMap<>();
+        for (RelationshipType relationshipType : RelationshipType.values()) {
+            if (relationshipTypes != null && !relationshipTypes.isEmpty()
+                    && !relationshipTypes.contains(relationshipType)) {
+                continue;
+            }
+            int start = graph.edgeStart(node, relationshipType);
+            int end = graph.edgeEnd(node, relationshipType);
+            if (start == end) {
+                continue;
+            }
+            List<RelationshipSummary> mappedRelationships = new ArrayList<>(end - start);
+            for (int edge = start; edge < end; edge++) {
+                mappedRelationships.add(new RelationshipSummary(mappedSource, mapEntity(graph, graph.target(edge)),
+                        graph.patients(edge)));
+            }
+            groupedRelationships.put(relationshipType.name(), mappedRelationships);
+        }
+        return groupedRelationships;
+    }
+
+    /**
+     * Groups the incoming edges of a node of the in-memory relationship graph by
+     * relationship type, with one relationship summary per source entity.
+     *
+     * @param graph             The relationship graph.
+     * @param node              The node index of the destination entity.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to group all relationship types.
+     * @return A map of relationship type names to the relationship summaries of
+     *         that type.
+     */
+    public Map<String, List<RelationshipSummary>> groupInboundRelationships(RelationshipGraph graph, int node,
+            Set<RelationshipType> relationshipTypes) {
+        EntitySummary mappedDestination = mapEntity(graph, node);
+        Map<String, List<RelationshipSummary>> groupedRelationships = new LinkedHashMap<>();
+        for (RelationshipType relationshipType : RelationshipType.values()) {
+            if (relationshipTypes != null && !relationshipTypes.isEmpty()
+                    && !relationshipTypes.contains(relationshipType)) {
+                continue;
+            }
+            int start = graph.reverseEdgeStart(node, relationshipType);
+            int end = graph.reverseEdgeEnd(node, relationshipType);
+            if (start == end) {
+                continue;
+            }
+            List<RelationshipSummary> mappedRelationships = new ArrayList<>(end - start);
+            for (int position = start; position < end; position++) {
+                mappedRelationships.add(new RelationshipSummary(mapEntity(graph, graph.reverseSource(position)),
+                        mappedDestination, graph.patients(graph.reverseEdge(position))));
+            }
+            groupedRelationships.put(relationshipType.name(), mappedRelationships);
+        }
+        return groupedRelationships;
+    }
+
+    /**
+     * Maps a group of entity relationships sharing the same source, destination
+     * and relationship type to a relationship summary with source, destination,
+     * and the patient types of every relationship in the group.
+     *
+     * @param group         The non-empty group of entity relationships to be
+     *                      mapped.
+     * @param mappedLookup  The mapped entity the relationships were looked up by,
+     *                      or null to map the associations at both ends.
+     * @param byDestination Whether the relationships were looked up by
+     *                      destination.
+     * @return The relationship summary of the group.
+     */
+    private RelationshipSummary mapRelationshipGroup(List<EntityRelationshipModel> group, EntitySummary mappedLookup,
+            boolean byDestination) {
+        EntityRelationshipModel first = group.get(0);
+        List<Patient> patients = new ArrayList<>(group.size());
+        for (EntityRelationshipModel relationship : group) {
+            patients.add(relationship.getPatient());
+        }
+        EntitySummary mappedSource = mappedLookup != null && !byDestination ? mappedLookup
+                : EntitySummary.of(first.getSourceEntity());
+        EntitySummary mappedDestination = mappedLookup != null && byDestination ? mappedLookup
+                : EntitySummary.of(first.getDestinationEntity());
+        return new RelationshipSummary(mappedSource, mappedDestination, patients);
+    }
+
+    /**
+     * Gets the in-memory relationship graph if the index is enabled, loaded and up
+     * to date for a source entity.
+     *
+     * @param sourceEntityId The ID of the source entity.
+     * @param commitSeq      The commit sequence number of the last logged change
+     *                       of the source entity the graph must hold, or 0.
+     * @return The relationship graph, or null if relationships must be loaded from
+     *         the database.
+     */
+    private RelationshipGraph getIndexedGraphForSource(Long sourceEntityId, long commitSeq) {
+        if (relationshipGraphIndexService == null || !relationshipGraphIndexService.isEnabled()
+                || sourceEntityId == null) {
+            return null;
+        }
+        return relationshipGraphIndexService.getGraphForSource(sourceEntityId, commitSeq);
+    }
+
+    /**
+     * Gets the in-memory relationship graph if the index is enabled, loaded and up
+     * to date for a destination entity.
+     *
+     * @param destinationEntityId The ID of the destination entity.
+     * @return The relationship graph, or null if relationships must be loaded from
+     *         the database.
+     */
+    private RelationshipGraph getIndexedGraphForDestination(Long destinationEntityId) {
+        if (relationshipGraphIndexService == null || !relationshipGraphIndexService.isEnabled()
+                || destinationEntityId == null) {
+            return null;
+        }
+        return relationshipGraphIndexService.getGraphForDestination(destinationEntityId);
     }
 
     /**
-     * Maps an entity to a structured map with id, name, and type.
+     * Maps a node of the in-memory relationship graph to an entity summary.
      *
-     * @param entity The entity to be mapped.
-     * @return A structured map representing the entity.
+     * @param graph The relationship graph.
+     * @param node  The node index of the entity.
+     * @return The entity summary of the node.
      */
-    private Map<String, Object> mapEntity(EntityModel entity) {
-        Map<String, Object> mappedEntity = new LinkedHashMap<>();
-        mappedEntity.put("id", entity.getId());
-        mappedEntity.put("name", entity.getName());
-        mappedEntity.put("type", entity.getEntityType());
-        return mappedEntity;
+    private EntitySummary mapEntity(RelationshipGraph graph, int node) {
+        return new EntitySummary(graph.entityId(node), graph.name(node), graph.entityType(node));
     }
 
     /**
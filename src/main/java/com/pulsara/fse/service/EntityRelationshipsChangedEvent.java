@@ -0,0 +1,89 @@
+package com.pulsara.fse.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Application event published whenever relationships stored in
+ * TBL_ENTITY_RELATIONSHIPS are inserted, updated or deleted, so that derived
+ * views of the relationship graph can be invalidated. A change to every source
+ * or destination entity is flagged explicitly, so an event with no IDs and no
+ * flag changes nothing.
+ *
+ * @param sourceEntityIds      The IDs of the source entities whose relationships
+ *                             changed.
+ * @param destinationEntityIds The IDs of the destination entities whose
+ *                             relationships changed.
+ * @param allSources           Whether any source entity may have changed.
+ * @param allDestinations      Whether any destination entity may have changed.
+ */
+public record EntityRelationshipsChangedEvent(Set<Long> sourceEntityIds, Set<Long> destinationEntityIds,
+        boolean allSources, boolean allDestinations) {
+
+    /**
+     * Creates an event for a change that may affect any source and destination
+     * entity.
+     *
+     * @return An event covering every source and destination entity.
+     */
+    public static EntityRelationshipsChangedEvent global() {
+        return new EntityRelationshipsChangedEvent(Set.of(), Set.of(), true, true);
+    }
+
+    /**
+     * Creates an event for a change to the relationships of the given source
+     * entities, into any destination entity. Without source entities the event
+     * changes nothing.
+     *
+     * @param sourceEntityIds The IDs of the source entities whose relationships
+     *                        changed.
+     * @return An event covering the given source entities.
+     */
+    public static EntityRelationshipsChangedEvent of(Collection<Long> sourceEntityIds) {
+        return new EntityRelationshipsChangedEvent(Set.copyOf(sourceEntityIds), Set.of(), false,
+                !sourceEntityIds.isEmpty());
+    }
+
+    /**
+     * Creates an event for a change to the relationships between the given source
+     * and destination entities.
+     *
+     * @param sourceEntityIds      The IDs of the source entities whose
+     *                             relationships changed.
+     * @param destinationEntityIds The IDs of the destination entities whose
+     *                             relationships changed.
+     * @return An event covering the given source and destination entities.
+     */
+    public static EntityRelationshipsChangedEvent of(Collection<Long> sourceEntityIds,
+            Collection<Long> destinationEntityIds) {
+        return new EntityRelationshipsChangedEvent(Set.copyOf(sourceEntityIds), Set.copyOf(destinationEntityIds),
+                false, false);
+    }
+
+    /**
+     * Checks whether the change may affect every source entity.
+     *
+     * @return True if every source entity should be considered changed.
+     */
+    public boolean isGlobal() {
+        return allSources;
+    }
+
+    /**
+     * Checks whether the change may affect every destination entity.
+     *
+     * @return True if every destination entity should be considered changed.
+     */
+    public boolean affectsAllDestinations() {
+        return allDestinations;
+    }
+
+    /**
+     * Checks whether the event changes nothing, so that listeners can ignore it.
+     *
+     * @return True if no source or destination entity changed.
+     */
+    public boolean isEmpty() {
+        return !allSources && !allDestinations && sourceEntityIds.isEmpty() && destinationEntityIds.isEmpty();
+    }
+}
@@ -1,18 +1,37 @@
 package com.pulsara.fse.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.pulsara.fse.config.CacheConfiguration;
+import com.pulsara.fse.dto.KeysetPage;
 import com.pulsara.fse.models.EntityModel;
 import com.pulsara.fse.repository.EntityRepository;
+import com.pulsara.fse.repository.EntityRepositoryCustom;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 @Service
 public class EntityService {
 
+    private static final int STREAM_CLEAR_INTERVAL = 500;
+
     private final EntityRepository entityRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     public EntityService(EntityRepository entityRepository) {
         this.entityRepository = entityRepository;
@@ -22,6 +41,65 @@ public class EntityService {
         return entityRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public void streamAllEntities(Consumer<EntityModel> consumer) {
+        streamEntitiesWhile(entity -> {
+            consumer.accept(entity);
+            return true;
+        });
+    }
+
+    /**
+     * Streams the entities in ID order until the consumer returns false, at
+     * which point the rest of the result set is neither fetched nor mapped.
+     *
+     * @param consumer The consumer of the entities, returning whether to
+     *                 continue.
+     */
+    @Transactional(readOnly = true)
+    public void streamEntitiesWhile(Predicate<EntityModel> consumer) {
+        int rows = 0;
+        try (Stream<EntityModel> entities = entityRepository.streamAll()) {
+            Iterator<EntityModel> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                if (!consumer.test(iterator.next())) {
+                    return;
+                }
+                // keep the persistence context from growing with the result set
+                if (++rows % STREAM_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<List<Map<String, Object>>> getEntityPage(Long afterId, int pageSize, Collection<String> fields) {
+        List<String> projectedFields = fields == null || fields.isEmpty()
+                ? EntityRepositoryCustom.PROJECTABLE_FIELDS
+                : EntityRepositoryCustom.PROJECTABLE_FIELDS.stream().filter(fields::contains).toList();
+
+        // fetch one extra row to find out whether there is a next page
+        List<Map<String, Object>> rows = entityRepository.findProjectedPage(afterId, pageSize + 1, projectedFields);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = KeysetPage.encodeCursor((Long) rows.get(pageSize - 1).get("id"));
+        }
+        return new KeysetPage<>(rows, nextCursor);
+    }
+
+    public List<EntityModel> getEntitiesByIds(Collection<Long> entityIds) {
+        return entityRepository.findAllById(entityIds);
+    }
+
+    /**
+     * Retrieves an entity by ID from the entity cache, loading it on a cache miss.
+     *
+     * @param entityId The ID of the entity.
+     * @return The entity, or null if it does not exist.
+     */
+    @Cacheable(cacheNames = CacheConfiguration.ENTITIES, unless = "#result == null")
     public EntityModel getEntityById(Long entityId) {
         return entityRepository.findById(entityId).orElse(null);
     }
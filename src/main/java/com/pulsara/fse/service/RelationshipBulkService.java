@@ -0,0 +1,316 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.ImportResult;
+import com.pulsara.fse.dto.RelationshipCsv;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.RelationshipEdgeRow;
+import com.pulsara.fse.models.ChangeOperation;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Service for bulk import and export of relationship rows.
+ * Imports stream CSV or newline delimited JSON from an input stream and write
+ * the rows with batched JDBC inserts, one transaction per chunk of
+ * fse.import.chunk-size rows, so neither memory use nor transaction size grows
+ * with the file. JPA is bypassed because the IDENTITY generated keys of
+ * {@link com.pulsara.fse.models.EntityRelationshipModel} disable Hibernate insert
+ * batching. Every chunk records its inserts in the relationship change log and
+ * refreshes the relationship summaries of its source entities in the same
+ * transaction. Exports stream every row from a database cursor.
+ *
+ * @see RelationshipCsv
+ * @since 1.0
+ */
+@Service
+public class RelationshipBulkService {
+
+    /**
+     * The formats of relationship import and export files.
+     */
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO TBL_ENTITY_RELATIONSHIPS (source_entity_id, "
+            + "destination_entity_id, relationship_type, patient_type, contact_phone, instructions) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityRelationshipRepository entityRelationshipRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RelationshipChangeLogService relationshipChangeLogService;
+    private final RelationshipSummaryService relationshipSummaryService;
+    private final int chunkSize;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipBulkService.class);
+
+    /**
+     * Constructs a RelationshipBulkService.
+     *
+     * @param jdbcTemplate                 The JDBC template used for batched
+     *                                     inserts.
+     * @param transactionManager           The transaction manager of the chunk
+     *                                     transactions.
+     * @param entityRelationshipRepository The repository used for exports.
+     * @param objectMapper                 The object mapper used for newline
+     *                                     delimited JSON.
+     * @param eventPublisher               The publisher of relationship change
+     *                                     events.
+     * @param relationshipChangeLogService The service recording the imported
+     *                                     rows in the change log.
+     * @param relationshipSummaryService   The service refreshing the summaries
+     *                                     of the imported source entities.
+     * @param chunkSize                    The number of rows per batch and
+     *                                     transaction.
+     */
+    @Autowired
+    public RelationshipBulkService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            EntityRelationshipRepository entityRelationshipRepository, ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher, RelationshipChangeLogService relationshipChangeLogService,
+            RelationshipSummaryService relationshipSummaryService,
+            @Value("${fse.import.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityRelationshipRepository = entityRelationshipRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.relationshipChangeLogService = relationshipChangeLogService;
+        this.relationshipSummaryService = relationshipSummaryService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports relationship rows. Every chunk is committed on its own, so when a
+     * line is invalid or a chunk cannot be written the chunks before it stay
+     * imported and the error reports how many rows were. Caches and the
+     * relationship graph are invalidated once the import ends.
+     *
+     * @param inputStream The rows, in UTF-8. CSV input may start with the
+     *                    {@link RelationshipCsv#HEADER} line.
+     * @param format      The format of the rows.
+     * @return The outcome of the import.
+     * @throws FSEServiceException If a line is invalid or a chunk cannot be
+     *                             written.
+     */
+    public ImportResult importRelationships(InputStream inputStream, Format format) {
+        long start = System.nanoTime();
+        long importedRows = 0;
+        int chunks = 0;
+        int lineNumber = 0;
+        Set<Long> sourceEntityIds = new HashSet<>();
+        Set<Long> destinationEntityIds = new HashSet<>();
+        List<RelationshipEdgeRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = readRecord(reader, format)) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && format == Format.CSV && RelationshipCsv.isHeader(line))) {
+                    continue;
+                }
+                chunk.add(parse(line, format, lineNumber, importedRows));
+                if (chunk.size() == chunkSize) {
+                    importedRows += writeChunk(chunk, lineNumber, importedRows);
+                    chunks++;
+                    collectIds(chunk, sourceEntityIds, destinationEntityIds);
+                    chunk.clear();
+                    logger.info("Imported {} relationship rows in {} chunks, {} rows/s", importedRows, chunks,
+                            importedRows * 1_000_000_000L / Math.max(1, System.nanoTime() - start));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importedRows += writeChunk(chunk, lineNumber, importedRows);
+                chunks++;
+                collectIds(chunk, sourceEntityIds, destinationEntityIds);
+            }
+        } catch (IOException e) {
+            throw new FSEServiceException("Unable to read the import at line " + lineNumber + ", " + importedRows
+                    + " rows were imported", HttpStatus.BAD_REQUEST);
+        } finally {
+            if (!sourceEntityIds.isEmpty()) {
+                eventPublisher.publishEvent(
+                        EntityRelationshipsChangedEvent.of(sourceEntityIds, destinationEntityIds));
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Imported {} relationship rows in {} chunks in {} ms", importedRows, chunks, elapsedMillis);
+        return new ImportResult(importedRows, chunks, elapsedMillis);
+    }
+
+    /**
+     * Streams every relationship row to a consumer, read from a database cursor.
+     *
+     * @param consumer The consumer receiving each row.
+     */
+    @Transactional(readOnly = true)
+    public void exportRelationships(Consumer<RelationshipEdgeRow> consumer) {
+        try (Stream<RelationshipEdgeRow> rows = entityRelationshipRepository.streamAllEdgeRows()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    /**
+     * Formats a relationship row as a line of the given format, without line
+     * terminator.
+     *
+     * @param row    The relationship row.
+     * @param format The format.
+     * @return The formatted line.
+     */
+    public String format(RelationshipEdgeRow row, Format format) {
+        if (format == Format.CSV) {
+            return RelationshipCsv.format(row);
+        }
+        try {
+            return objectMapper.writeValueAsString(row);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the next record, joining CSV lines while a quoted value spans line
+     * breaks.
+     */
+    private static String readRecord(BufferedReader reader, Format format) throws IOException {
+        String line = reader.readLine();
+        if (line == null || format != Format.CSV) {
+            return line;
+        }
+        StringBuilder record = null;
+        while (line != null && countQuotes(record == null ? line : record) % 2 != 0) {
+            if (record == null) {
+                record = new StringBuilder(line);
+            }
+            line = reader.readLine();
+            if (line != null) {
+                record.append('\n').append(line);
+            }
+        }
+        return record == null ? line : record.toString();
+    }
+
+    private static int countQuotes(CharSequence value) {
+        int quotes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    private RelationshipEdgeRow parse(String line, Format format, int lineNumber, long importedRows) {
+        try {
+            RelationshipEdgeRow row = format == Format.CSV ? RelationshipCsv.parse(line)
+                    : objectMapper.readValue(line, RelationshipEdgeRow.class);
+            if (row.sourceEntityId() == null || row.destinationEntityId() == null
+                    || row.relationshipType() == null) {
+                throw new IllegalArgumentException("sourceEntityId, destinationEntityId and relationshipType "
+                        + "are required");
+            }
+            return row;
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new FSEServiceException("Invalid relationship at line " + lineNumber + ": " + e.getMessage()
+                    + ", " + importedRows + " rows were imported", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Writes a chunk of rows with a single JDBC batch and records the inserted
+     * rows in the change log, in its own transaction.
+     */
+    private int writeChunk(List<RelationshipEdgeRow> chunk, int lineNumber, long importedRows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[] { "id" }),
+                        new ChunkSetter(chunk), keyHolder);
+                List<Long> ids = new ArrayList<>(chunk.size());
+                for (Map<String, Object> keys : keyHolder.getKeyList()) {
+                    ids.add(((Number) keys.values().iterator().next()).longValue());
+                }
+                relationshipChangeLogService.recordChanges(ChangeOperation.INSERT, ids);
+                relationshipSummaryService.refresh(
+                        chunk.stream().map(RelationshipEdgeRow::sourceEntityId).distinct().toList());
+            });
+            return chunk.size();
+        } catch (DataAccessException e) {
+            logger.error("Unable to write relationship chunk ending at line {}", lineNumber, e);
+            throw new FSEServiceException("Unable to write the relationships up to line " + lineNumber
+                    + ", check that every entity exists, " + importedRows + " rows were imported",
+                    HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Binds the rows of a chunk to the batched insert.
+     */
+    private record ChunkSetter(List<RelationshipEdgeRow> chunk) implements BatchPreparedStatementSetter {
+
+        @Override
+        public void setValues(PreparedStatement statement, int i) throws SQLException {
+            RelationshipEdgeRow row = chunk.get(i);
+            statement.setLong(1, row.sourceEntityId());
+            statement.setLong(2, row.destinationEntityId());
+            statement.setString(3, row.relationshipType().name());
+            if (row.patientType() == null) {
+                statement.setNull(4, Types.VARCHAR);
+            } else {
+                statement.setString(4, row.patientType().name());
+            }
+            statement.setString(5, row.contactPhone());
+            statement.setString(6, row.instructions());
+        }
+
+        @Override
+        public int getBatchSize() {
+            return chunk.size();
+        }
+    }
+
+    private static void collectIds(List<RelationshipEdgeRow> chunk, Set<Long> sourceEntityIds,
+            Set<Long> destinationEntityIds) {
+        for (RelationshipEdgeRow row : chunk) {
+            sourceEntityIds.add(row.sourceEntityId());
+            destinationEntityIds.add(row.destinationEntityId());
+        }
+    }
+}
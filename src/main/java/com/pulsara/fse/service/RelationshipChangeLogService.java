@@ -0,0 +1,223 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pulsara.fse.dto.ChangeFeedPage;
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.dto.RelationshipChange;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.models.ChangeOperation;
+import com.pulsara.fse.models.RelationshipChangeModel;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Service for the relationship change log and the change feed served from it.
+ * Writes to TBL_ENTITY_RELATIONSHIPS made through the service record their
+ * changes in TBL_RELATIONSHIP_CHANGES in the same transaction, and offline
+ * clients fetch the changes after the watermark of their last sync instead of
+ * the whole relationship set. The bulk import is the only write path and
+ * records inserts; rows updated or deleted with plain SQL are not logged, and
+ * a write path added for them has to record its changes here. Watermarks are commit sequence numbers encoded as opaque
+ * tokens. Change log IDs are assigned when the rows are inserted, so with
+ * concurrent writes they do not follow the commit order, and a client that had
+ * synced past the IDs of a transaction committing late would never see its
+ * changes. Every transaction therefore writes its changes with a pending key and
+ * stamps them with numbers taken from TBL_CHANGE_SEQUENCE right before it
+ * commits, holding the lock on the sequence until the commit, so that a change
+ * never becomes visible behind a watermark already handed out.
+ *
+ * @see RelationshipChangeModel
+ * @since 1.0
+ */
+@Service
+public class RelationshipChangeLogService {
+
+    private static final int RECORD_CHUNK_SIZE = 1000;
+
+    private static final String RECORD_SQL = "INSERT INTO TBL_RELATIONSHIP_CHANGES (relationship_id, operation, "
+            + "version, source_entity_id, destination_entity_id, relationship_type, patient_type, contact_phone, "
+            + "instructions, changed_at, pending_key) "
+            + "SELECT id, :operation, version, source_entity_id, destination_entity_id, relationship_type, "
+            + "patient_type, contact_phone, instructions, CURRENT_TIMESTAMP(6), :pendingKey "
+            + "FROM TBL_ENTITY_RELATIONSHIPS WHERE id IN (:ids) ORDER BY id";
+
+    private static final String PENDING_RANGE_SQL = "SELECT MIN(id) AS min_id, MAX(id) AS max_id "
+            + "FROM TBL_RELATIONSHIP_CHANGES WHERE pending_key = :pendingKey";
+
+    private static final String LOCK_SEQUENCE_SQL = "SELECT next_value FROM TBL_CHANGE_SEQUENCE WHERE id = 1 FOR UPDATE";
+
+    private static final String ADVANCE_SEQUENCE_SQL = "UPDATE TBL_CHANGE_SEQUENCE SET next_value = :nextValue "
+            + "WHERE id = 1";
+
+    // the IDs of one transaction keep their order, and possible gaps, in the commit sequence
+    private static final String STAMP_SQL = "UPDATE TBL_RELATIONSHIP_CHANGES "
+            + "SET commit_seq = :firstSeq + id - :minId, pending_key = NULL WHERE pending_key = :pendingKey";
+
+    private final RelationshipChangeRepository relationshipChangeRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipChangeLogService.class);
+
+    /**
+     * Constructs a RelationshipChangeLogService.
+     *
+     * @param relationshipChangeRepository The repository used for reading the
+     *                                     change log.
+     * @param jdbcTemplate                 The JDBC template used for writing the
+     *                                     change log.
+     */
+    @Autowired
+    public RelationshipChangeLogService(RelationshipChangeRepository relationshipChangeRepository,
+            NamedParameterJdbcTemplate jdbcTemplate) {
+        this.relationshipChangeRepository = relationshipChangeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records changes to relationships with a copy of their current rows. Must be
+     * called in the transaction of the change, after inserts and updates and
+     * before deletes. The changes are stamped with their commit sequence numbers
+     * right before the transaction commits, or at once without a transaction.
+     *
+     * @param operation       The kind of change.
+     * @param relationshipIds The IDs of the changed relationships.
+     * @return The number of recorded changes.
+     */
+    public int recordChanges(ChangeOperation operation, Collection<Long> relationshipIds) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        String pendingKey = inTransaction ? transactionPendingKey() : UUID.randomUUID().toString();
+        List<Long> ids = new ArrayList<>(relationshipIds);
+        int recorded = 0;
+        for (int from = 0; from < ids.size(); from += RECORD_CHUNK_SIZE) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("operation", operation.name())
+                    .addValue("pendingKey", pendingKey)
+                    .addValue("ids", ids.subList(from, Math.min(from + RECORD_CHUNK_SIZE, ids.size())));
+            recorded += jdbcTemplate.update(RECORD_SQL, parameters);
+        }
+        if (!inTransaction) {
+            assignCommitSequence(pendingKey);
+        }
+        return recorded;
+    }
+
+    /**
+     * Gets the pending key of the changes of the current transaction, registering
+     * the stamping of their commit sequence numbers before the commit on first
+     * use.
+     */
+    private String transactionPendingKey() {
+        String pendingKey = (String) TransactionSynchronizationManager.getResource(this);
+        if (pendingKey == null) {
+            String newPendingKey = UUID.randomUUID().toString();
+            TransactionSynchronizationManager.bindResource(this, newPendingKey);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    assignCommitSequence(newPendingKey);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RelationshipChangeLogService.this);
+                }
+            });
+            pendingKey = newPendingKey;
+        }
+        return pendingKey;
+    }
+
+    /**
+     * Stamps the pending changes of a transaction with the next commit sequence
+     * numbers. The sequence row stays locked until the transaction ends, so the
+     * next transaction only gets higher numbers once this one has committed.
+     *
+     * @param pendingKey The pending key of the changes of the transaction.
+     */
+    private void assignCommitSequence(String pendingKey) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("pendingKey", pendingKey);
+        Map<String, Object> range = jdbcTemplate.queryForMap(PENDING_RANGE_SQL, parameters);
+        if (range.get("min_id") == null) {
+            return;
+        }
+        long minId = ((Number) range.get("min_id")).longValue();
+        long maxId = ((Number) range.get("max_id")).longValue();
+        Long firstSeq = jdbcTemplate.queryForObject(LOCK_SEQUENCE_SQL, new MapSqlParameterSource(), Long.class);
+        jdbcTemplate.update(ADVANCE_SEQUENCE_SQL,
+                new MapSqlParameterSource("nextValue", firstSeq + maxId - minId + 1));
+        jdbcTemplate.update(STAMP_SQL, parameters.addValue("firstSeq", firstSeq).addValue("minId", minId));
+    }
+
+    /**
+     * Retrieves the relationship changes made after a watermark. When a
+     * relationship changed several times within the page only its last change is
+     * returned, so a page holds at most one change per relationship. Runs in a
+     * read-write transaction so that it is served by the primary database, never
+     * by a read replica that may not have replayed the changes of a token handed
+     * out by the primary.
+     *
+     * @param since          The token of the last sync, or null to retrieve every
+     *                       relationship from the start of the log.
+     * @param sourceEntityId The ID of the source entity to restrict the changes
+     *                       to, or null for the changes of every source entity.
+     * @param pageSize       The maximum number of change log entries read.
+     * @return The page of changes with the token of the next sync.
+     * @throws FSEServiceException If the token is malformed, or is ahead of the
+     *                             log and the client has to sync from scratch.
+     */
+    @Transactional
+    public ChangeFeedPage getChanges(String since, Long sourceEntityId, int pageSize) {
+        long afterSeq;
+        try {
+            Long decoded = KeysetPage.decodeCursor(since);
+            afterSeq = decoded == null ? 0 : decoded;
+        } catch (IllegalArgumentException e) {
+            throw new FSEServiceException("Invalid change token", HttpStatus.BAD_REQUEST);
+        }
+
+        // fetch one extra entry to find out whether there are more changes
+        Limit limit = Limit.of(pageSize + 1);
+        List<RelationshipChangeModel> entries = sourceEntityId == null
+                ? relationshipChangeRepository.findAfter(afterSeq, limit)
+                : relationshipChangeRepository.findBySourceEntityIdAfter(sourceEntityId, afterSeq, limit);
+        boolean hasMore = entries.size() > pageSize;
+        if (hasMore) {
+            entries = entries.subList(0, pageSize);
+        }
+
+        if (entries.isEmpty()) {
+            if (afterSeq > relationshipChangeRepository.findLatestCommitSeq()) {
+                logger.error("Change token {} is ahead of the change log", afterSeq);
+                throw new FSEServiceException("Change token is no longer valid, a full sync is required",
+                        HttpStatus.GONE);
+            }
+            return new ChangeFeedPage(List.of(), KeysetPage.encodeCursor(afterSeq), false);
+        }
+
+        // keep the last change of every relationship, in the order of the last changes
+        Map<Long, RelationshipChange> changes = new LinkedHashMap<>();
+        for (RelationshipChangeModel entry : entries) {
+            changes.remove(entry.getRelationshipId());
+            changes.put(entry.getRelationshipId(), RelationshipChange.of(entry));
+        }
+        long lastSeq = entries.get(entries.size() - 1).getCommitSeq();
+        return new ChangeFeedPage(new ArrayList<>(changes.values()), KeysetPage.encodeCursor(lastSeq), hasMore);
+    }
+}
@@ -0,0 +1,276 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.RelationshipEdgeRow;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+import com.pulsara.fse.repository.EntityRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Service holding the optional in-memory {@link RelationshipGraph} index.
+ * When enabled with the fse.graph-index.enabled property, the whole relationship
+ * graph is loaded at startup as scalar rows and compressed into a CSR adjacency
+ * structure, and it is rebuilt in the background whenever an
+ * {@link EntityRelationshipsChangedEvent} is published. Events published while a
+ * rebuild is queued are coalesced into that rebuild, and the previous graph keeps
+ * being served until the new one has been loaded. Relationship lookups are then
+ * served from the index without touching JPA, except for the entities whose
+ * relationships changed since the graph being served was loaded. Features that
+ * always run against the in-memory graph, such as multi-hop traversal, load it on
+ * first use when it is not enabled at startup.
+ *
+ * @see RelationshipGraph
+ * @since 1.0
+ */
+@Service
+public class RelationshipGraphIndexService implements DisposableBean {
+
+    private final EntityRepository entityRepository;
+    private final EntityRelationshipRepository entityRelationshipRepository;
+    private final RelationshipChangeRepository relationshipChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final AtomicLong changeGeneration = new AtomicLong();
+    private final Map<Long, Long> sourceChanges = new ConcurrentHashMap<>();
+    private final Map<Long, Long> destinationChanges = new ConcurrentHashMap<>();
+    private volatile long globalSourceChange;
+    private volatile long globalDestinationChange;
+    private volatile LoadedGraph loaded;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipGraphIndexService.class);
+
+    /**
+     * A loaded graph with the changes it reflects.
+     *
+     * @param graph      The relationship graph.
+     * @param generation The last change generation published before the graph
+     *                   was loaded.
+     * @param commitSeq  The commit sequence number of the last logged change
+     *                   committed before the graph was loaded.
+     */
+    private record LoadedGraph(RelationshipGraph graph, long generation, long commitSeq) {
+    }
+
+    /**
+     * Constructs a RelationshipGraphIndexService.
+     *
+     * @param entityRepository             The repository used for loading entities.
+     * @param entityRelationshipRepository The repository used for loading entity
+     *                                     relationships.
+     * @param relationshipChangeRepository The repository of the relationship
+     *                                     change log.
+     * @param transactionManager           The transaction manager used while
+     *                                     streaming relationship rows.
+     * @param enabled                      Whether the index is enabled.
+     */
+    @Autowired
+    public RelationshipGraphIndexService(EntityRepository entityRepository,
+            EntityRelationshipRepository entityRelationshipRepository,
+            RelationshipChangeRepository relationshipChangeRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${fse.graph-index.enabled:false}") boolean enabled) {
+        this.entityRepository = entityRepository;
+        this.entityRelationshipRepository = entityRelationshipRepository;
+        this.relationshipChangeRepository = relationshipChangeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(Thread.ofPlatform()
+                .name("relationship-graph-index").daemon().factory());
+    }
+
+    /**
+     * Checks whether the index is enabled.
+     *
+     * @return True if the index is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the current relationship graph.
+     *
+     * @return The relationship graph, or null if it has not been loaded yet.
+     */
+    public RelationshipGraph getGraph() {
+        LoadedGraph current = loaded;
+        return current == null ? null : current.graph();
+    }
+
+    /**
+     * Gets the current relationship graph if it reflects every change published
+     * so far to the relationships of a source entity, and the given logged
+     * change, which may be committed before its event is published.
+     *
+     * @param sourceEntityId The ID of the source entity.
+     * @param commitSeq      The commit sequence number of the last logged change
+     *                       to the relationships of the source entity, or 0.
+     * @return The relationship graph, or null if it has not been loaded yet or a
+     *         rebuild covering the source entity is still pending.
+     */
+    public RelationshipGraph getGraphForSource(Long sourceEntityId, long commitSeq) {
+        LoadedGraph current = loaded;
+        if (current == null || current.commitSeq() < commitSeq || globalSourceChange > current.generation()
+                || sourceChanges.getOrDefault(sourceEntityId, 0L) > current.generation()) {
+            return null;
+        }
+        return current.graph();
+    }
+
+    /**
+     * Gets the current relationship graph if it reflects every change published
+     * so far to the relationships into a destination entity.
+     *
+     * @param destinationEntityId The ID of the destination entity.
+     * @return The relationship graph, or null if it has not been loaded yet or a
+     *         rebuild covering the destination entity is still pending.
+     */
+    public RelationshipGraph getGraphForDestination(Long destinationEntityId) {
+        LoadedGraph current = loaded;
+        if (current == null || globalDestinationChange > current.generation()
+                || destinationChanges.getOrDefault(destinationEntityId, 0L) > current.generation()) {
+            return null;
+        }
+        return current.graph();
+    }
+
+    /**
+     * Gets the current relationship graph, loading it first if it has not been
+     * loaded yet.
+     *
+     * @return The relationship graph.
+     * @throws FSEServiceException If the graph cannot be loaded.
+     */
+    public RelationshipGraph requireGraph() {
+        RelationshipGraph current = getGraph();
+        if (current == null) {
+            rebuildLock.lock();
+            try {
+                if (loaded == null) {
+                    rebuild();
+                }
+                current = getGraph();
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+        if (current == null) {
+            throw new FSEServiceException("Relationship graph is not available", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return current;
+    }
+
+    /**
+     * Loads the index once the application has started, if enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Queues a rebuild of the index when relationships change, if it is enabled or
+     * has been loaded on demand, and marks the changed entities as stale until the
+     * rebuild has replaced the graph, so that caches invalidated by the same event
+     * are not refilled from the previous graph. Runs before any cache listening to
+     * the same event is invalidated, and after read replica routing has recorded
+     * the change and the second-level cache has been evicted, so the graph is not
+     * reloaded from a replica that has not replayed it or from stale cached rows.
+     *
+     * @param event The event describing the changed relationships.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    public void onRelationshipsChanged(EntityRelationshipsChangedEvent event) {
+        if ((!enabled && loaded == null) || event.isEmpty()) {
+            return;
+        }
+        long generation = changeGeneration.incrementAndGet();
+        if (event.isGlobal()) {
+            globalSourceChange = generation;
+        } else {
+            event.sourceEntityIds().forEach(id -> sourceChanges.put(id, generation));
+        }
+        if (event.affectsAllDestinations()) {
+            globalDestinationChange = generation;
+        } else {
+            event.destinationEntityIds().forEach(id -> destinationChanges.put(id, generation));
+        }
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                // events published from here on queue another rebuild
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    /**
+     * Loads every entity and relationship row and atomically replaces the current
+     * graph. If loading fails the previous graph is kept. Rebuilds are serialized
+     * with a lock rather than a monitor so that waiting virtual threads do not pin
+     * their carrier threads while the graph is loaded.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        rebuildLock.lock();
+        try {
+            // changes are published after they are committed, so they are all loaded
+            long generation = changeGeneration.get();
+            LoadedGraph rebuilt = transactionTemplate.execute(status -> {
+                // read before the rows, so the graph holds at least the changes up to it
+                long commitSeq = relationshipChangeRepository.findLatestCommitSeq();
+                RelationshipGraph.Builder builder = new RelationshipGraph.Builder();
+                entityRepository.findAll().forEach(builder::addEntity);
+                try (Stream<RelationshipEdgeRow> rows = entityRelationshipRepository.streamAllEdgeRows()) {
+                    rows.forEach(builder::addRow);
+                }
+                return new LoadedGraph(builder.build(), generation, commitSeq);
+            });
+            loaded = rebuilt;
+            sourceChanges.values().removeIf(changed -> changed <= generation);
+            destinationChanges.values().removeIf(changed -> changed <= generation);
+            logger.info("Loaded relationship graph index with {} entities and {} edges in {} ms",
+                    rebuilt.graph().nodeCount(), rebuilt.graph().edgeCount(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Unable to load the relationship graph index", e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+}
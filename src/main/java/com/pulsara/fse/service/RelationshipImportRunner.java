@@ -0,0 +1,58 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.pulsara.fse.dto.ImportResult;
+import com.pulsara.fse.service.RelationshipBulkService.Format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command line relationship import, run at startup when the
+ * fse.import.relationships property names a file, for example:
+ * java -jar fse.jar --spring.main.web-application-type=none
+ * --fse.import.relationships=region.csv
+ * Files ending in .ndjson or .jsonl are read as newline delimited JSON, all
+ * others as CSV. The import runs before the {@link StartupWarmupRunner} loads
+ * the caches.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RelationshipImportRunner implements ApplicationRunner {
+
+    private final RelationshipBulkService relationshipBulkService;
+    private final String importFile;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipImportRunner.class);
+
+    public RelationshipImportRunner(RelationshipBulkService relationshipBulkService,
+            @Value("${fse.import.relationships:}") String importFile) {
+        this.relationshipBulkService = relationshipBulkService;
+        this.importFile = importFile;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (importFile.isBlank()) {
+            return;
+        }
+        Path path = Path.of(importFile);
+        String fileName = path.getFileName().toString().toLowerCase();
+        Format format = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl") ? Format.NDJSON : Format.CSV;
+        logger.info("Importing relationships from {} as {}", path, format);
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            ImportResult result = relationshipBulkService.importRelationships(inputStream, format);
+            logger.info("Imported {} relationships from {} in {} ms", result.importedRows(), path,
+                    result.elapsedMillis());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.pulsara.fse.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Instrumentation of the relationship lookups.
+ * Each stage of a lookup (entity lookup, in-memory index, database query and
+ * grouping) is run as an observation named {@value #STAGE}, which Spring Boot
+ * publishes as a timer tagged with the operation and the stage, and as a span
+ * once a tracer is configured. The number of relationship summaries returned by
+ * every lookup is recorded in the {@value #RESULT_SIZE} distribution, and the
+ * relationship summaries repaired by the reconciliation job are counted in
+ * {@value #SUMMARIES_REPAIRED}.
+ *
+ * @since 1.0
+ */
+@Component
+public class RelationshipMetrics {
+
+    /**
+     * Name of the per-stage observations and timers.
+     */
+    public static final String STAGE = "fse.relationships.stage";
+
+    /**
+     * Name of the result size distribution.
+     */
+    public static final String RESULT_SIZE = "fse.relationships.result.size";
+
+    /**
+     * Name of the counter of repaired relationship summaries.
+     */
+    public static final String SUMMARIES_REPAIRED = "fse.relationships.summaries.repaired";
+
+    /** Operation of the lookup of the relationships of a source entity. */
+    public static final String BY_SOURCE = "by_source";
+    /** Operation of the batch lookup of the relationships of source entities. */
+    public static final String BY_SOURCES = "by_sources";
+    /** Operation of the lookup of a keyset page of the relationships of a source entity. */
+    public static final String BY_SOURCE_PAGE = "by_source_page";
+    /** Operation of the lookup of the relationships into a destination entity. */
+    public static final String BY_DESTINATION = "by_destination";
+
+    /** Stage loading the entity the relationships are looked up for. */
+    public static final String ENTITY_LOOKUP = "entity_lookup";
+    /** Stage serving the relationships from the in-memory graph index. */
+    public static final String INDEX = "index";
+    /** Stage serving the relationships from the precomputed summary table. */
+    public static final String SUMMARY = "summary";
+    /** Stage querying the relationships from the database. */
+    public static final String QUERY = "query";
+    /** Stage grouping the queried relationships into summaries. */
+    public static final String GROUP = "group";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a RelationshipMetrics.
+     *
+     * @param observationRegistry The registry of the stage observations.
+     * @param meterRegistry       The registry of the result size distributions
+     *                            and counters.
+     */
+    @Autowired
+    public RelationshipMetrics(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Creates a RelationshipMetrics recording nothing.
+     *
+     * @return The RelationshipMetrics.
+     */
+    public static RelationshipMetrics noop() {
+        return new RelationshipMetrics(ObservationRegistry.NOOP, new CompositeMeterRegistry());
+    }
+
+    /**
+     * Runs a stage of a lookup as an observation.
+     *
+     * @param <T>       The type of the result of the stage.
+     * @param operation The lookup, such as {@value #BY_SOURCE}.
+     * @param stage     The stage, such as {@value #QUERY}.
+     * @param work      The work of the stage.
+     * @return The result of the stage.
+     */
+    public <T> T observe(String operation, String stage, Supplier<T> work) {
+        return Observation.createNotStarted(STAGE, observationRegistry)
+                .lowCardinalityKeyValue("operation", operation)
+                .lowCardinalityKeyValue("stage", stage)
+                .observe(work);
+    }
+
+    /**
+     * Records the number of relationship summaries returned by a lookup.
+     *
+     * @param operation            The lookup, such as {@value #BY_SOURCE}.
+     * @param groupedRelationships The relationship summaries grouped by
+     *                             relationship type.
+     */
+    public void recordResultSize(String operation, Map<String, ? extends Collection<?>> groupedRelationships) {
+        int size = 0;
+        for (Collection<?> group : groupedRelationships.values()) {
+            size += group.size();
+        }
+        DistributionSummary.builder(RESULT_SIZE)
+                .baseUnit("relationships")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    /**
+     * Counts relationship summaries repaired by the reconciliation job.
+     *
+     * @param repaired The number of source entities whose summary was repaired.
+     */
+    public void recordSummariesRepaired(int repaired) {
+        Counter.builder(SUMMARIES_REPAIRED)
+                .description("Relationship summaries rebuilt or removed because they drifted")
+                .register(meterRegistry)
+                .increment(repaired);
+    }
+}
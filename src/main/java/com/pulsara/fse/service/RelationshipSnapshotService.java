@@ -0,0 +1,197 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pulsara.fse.dto.RelationshipSnapshot;
+import com.pulsara.fse.dto.StampedRelationships;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Store of serialized by-source responses, enabled with fse.snapshots.enabled.
+ * The JSON bytes of the response for every requested (source entity,
+ * relationship types) pair are kept off the Java heap, up to
+ * fse.snapshots.max-size bytes with the most frequently requested source
+ * entities retained, and written to the response without loading, mapping or
+ * serializing the relationships. A snapshot records the relationship version
+ * stamp it was built at and is only served while the stamp is current, so it is
+ * never staler than the ETag of the response. When relationships change, the
+ * snapshots of the affected source entities are rebuilt in the background;
+ * requests arriving before the rebuild completes are served from the cache
+ * layer and rebuild the snapshot themselves.
+ *
+ * @see EntityRelationshipCacheService#getSourceVersionStamp(Long)
+ * @since 1.0
+ */
+@Service
+public class RelationshipSnapshotService implements DisposableBean {
+
+    private final EntityRelationshipCacheService entityRelationshipCacheService;
+    private final EntityService entityService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Cache<SnapshotKey, RelationshipSnapshot> snapshots;
+    private final ExecutorService rebuildExecutor;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipSnapshotService.class);
+
+    /**
+     * Key of a snapshot.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param relationshipTypes The relationship types, empty for all.
+     */
+    private record SnapshotKey(long sourceEntityId, Set<RelationshipType> relationshipTypes) {
+    }
+
+    /**
+     * Constructs a RelationshipSnapshotService.
+     *
+     * @param entityRelationshipCacheService The cache layer the snapshots are
+     *                                       built from.
+     * @param entityService                  The service used to load source
+     *                                       entities when rebuilding snapshots.
+     * @param objectMapper                   The object mapper serializing the
+     *                                       responses.
+     * @param enabled                        Whether snapshots are built and
+     *                                       served.
+     * @param maxSize                        The maximum total size of the
+     *                                       snapshots.
+     */
+    @Autowired
+    public RelationshipSnapshotService(EntityRelationshipCacheService entityRelationshipCacheService,
+            EntityService entityService, ObjectMapper objectMapper,
+            @Value("${fse.snapshots.enabled:false}") boolean enabled,
+            @Value("${fse.snapshots.max-size:64MB}") DataSize maxSize) {
+        this.entityRelationshipCacheService = entityRelationshipCacheService;
+        this.entityService = entityService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<SnapshotKey, RelationshipSnapshot>weigher((key, snapshot) -> snapshot.length())
+                .build();
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(Thread.ofPlatform()
+                .name("relationship-snapshots").daemon().factory());
+    }
+
+    /**
+     * Checks whether snapshots are built and served.
+     *
+     * @return True if snapshots are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the current snapshot of the relationships of a source entity without
+     * building it.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param relationshipTypes The relationship types, empty for all.
+     * @param versionStamp      The current relationship version stamp of the
+     *                          source entity.
+     * @return The snapshot, or null if snapshots are disabled or there is no
+     *         snapshot at the current version stamp.
+     */
+    public RelationshipSnapshot getSnapshot(Long sourceEntityId, Set<RelationshipType> relationshipTypes,
+            String versionStamp) {
+        if (!enabled) {
+            return null;
+        }
+        RelationshipSnapshot snapshot = snapshots.getIfPresent(
+                new SnapshotKey(sourceEntityId, Set.copyOf(relationshipTypes)));
+        return snapshot != null && snapshot.versionStamp().equals(versionStamp) ? snapshot : null;
+    }
+
+    /**
+     * Serializes the relationships of a source entity into a snapshot and stores
+     * it.
+     *
+     * @param sourceEntity      The source entity.
+     * @param relationshipTypes The relationship types, empty for all.
+     * @param versionStamp      The current relationship version stamp of the
+     *                          source entity, or null to accept any stamped cached
+     *                          relationships. The snapshot records the stamp its
+     *                          relationships were actually read at.
+     * @return The snapshot.
+     * @throws FSEServiceException If the relationships cannot be serialized.
+     */
+    public RelationshipSnapshot buildSnapshot(EntityModel sourceEntity, Set<RelationshipType> relationshipTypes,
+            String versionStamp) {
+        StampedRelationships relationships = entityRelationshipCacheService.getStampedRelationshipsBySourceEntity(
+                sourceEntity, relationshipTypes, versionStamp);
+        RelationshipSnapshot snapshot;
+        try {
+            snapshot = RelationshipSnapshot.of(sourceEntity.getId(), relationshipTypes, relationships.versionStamp(),
+                    objectMapper.writeValueAsBytes(Map.of("relationships", relationships.relationships())));
+        } catch (JsonProcessingException e) {
+            logger.error("Unable to serialize the relationships of source entity {}", sourceEntity.getId(), e);
+            throw new FSEServiceException("Unable to retrieve relationships at this time. Please try again!",
+                    HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        snapshots.put(new SnapshotKey(snapshot.sourceEntityId(), snapshot.relationshipTypes()), snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds the snapshots of the source entities whose relationships changed,
+     * in the background.
+     *
+     * @param event The event describing the changed relationships.
+     */
+    @EventListener
+    public void onRelationshipsChanged(EntityRelationshipsChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        List<SnapshotKey> keys = snapshots.asMap().keySet().stream()
+                .filter(key -> event.isGlobal() || event.sourceEntityIds().contains(key.sourceEntityId()))
+                .toList();
+        if (!keys.isEmpty()) {
+            rebuildExecutor.execute(() -> rebuild(keys));
+        }
+    }
+
+    private void rebuild(List<SnapshotKey> keys) {
+        logger.debug("Rebuilding {} relationship snapshots", keys.size());
+        for (SnapshotKey key : keys) {
+            try {
+                EntityModel sourceEntity = entityService.getEntityById(key.sourceEntityId());
+                if (sourceEntity == null) {
+                    snapshots.invalidate(key);
+                } else {
+                    buildSnapshot(sourceEntity, key.relationshipTypes(), null);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Unable to rebuild the relationship snapshot of source entity {}",
+                        key.sourceEntityId(), e);
+                snapshots.invalidate(key);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,160 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects and repairs drift between the relationship summaries and the
+ * relationships. At every run the summaries whose relationship count, highest
+ * relationship ID or sum of relationship versions no longer match the
+ * relationships are rebuilt, summaries are built for source entities that have
+ * none, such as those imported before the summary table existed, and summaries
+ * of source entities left without relationships are removed. Drift is looked
+ * up in ranges of fse.summaries.reconcile-range-size source entity IDs, each
+ * read with range scans of the source entity index, so no run scans the
+ * relationship table in a single statement and ranges without any source entity
+ * are skipped. Repairs are committed in chunks of fse.summaries.reconcile-chunk-size source entities
+ * and then announced like any other relationship change, so that caches built
+ * from a drifted summary are dropped. Runs start once the application is ready,
+ * after the application runners such as the startup warm-up, so the first run
+ * does not compete with them for connections or evict what they warmed, and
+ * repeat every fse.summaries.reconcile-interval; a zero interval runs only at
+ * startup.
+ *
+ * @see RelationshipSummaryService
+ * @since 1.0
+ */
+@Component
+public class RelationshipSummaryReconciler implements DisposableBean {
+
+    private final RelationshipSummaryService relationshipSummaryService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RelationshipMetrics relationshipMetrics;
+    private final Duration reconcileInterval;
+    private final int chunkSize;
+    private final long rangeSize;
+    private ScheduledExecutorService scheduler;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipSummaryReconciler.class);
+
+    /**
+     * Constructs a RelationshipSummaryReconciler.
+     *
+     * @param relationshipSummaryService The service rebuilding the summaries.
+     * @param transactionManager         The transaction manager of the repairs.
+     * @param eventPublisher             The publisher of relationship change
+     *                                   events.
+     * @param relationshipMetrics        The metrics counting the repairs.
+     * @param reconcileInterval          The interval between two runs.
+     * @param chunkSize                  The number of source entities repaired
+     *                                   per transaction.
+     * @param rangeSize                  The number of source entity IDs checked
+     *                                   for drift per query.
+     */
+    @Autowired
+    public RelationshipSummaryReconciler(RelationshipSummaryService relationshipSummaryService,
+            PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+            RelationshipMetrics relationshipMetrics,
+            @Value("${fse.summaries.reconcile-interval:1h}") Duration reconcileInterval,
+            @Value("${fse.summaries.reconcile-chunk-size:500}") int chunkSize,
+            @Value("${fse.summaries.reconcile-range-size:10000}") long rangeSize) {
+        this.relationshipSummaryService = relationshipSummaryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.relationshipMetrics = relationshipMetrics;
+        this.reconcileInterval = reconcileInterval;
+        this.chunkSize = chunkSize;
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * Starts reconciling the summaries in the background at the reconcile
+     * interval once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                    .name("relationship-summary-reconciler").daemon().factory());
+            if (reconcileInterval.isZero() || reconcileInterval.isNegative()) {
+                scheduler.execute(this::reconcileQuietly);
+            } else {
+                scheduler.scheduleWithFixedDelay(this::reconcileQuietly, 0, reconcileInterval.toMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stops the background runs.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Rebuilds every drifted summary.
+     *
+     * @return The number of source entities whose summary was repaired.
+     */
+    public int reconcile() {
+        long start = System.nanoTime();
+        List<Long> repaired = new ArrayList<>();
+        try {
+            Long fromId = relationshipSummaryService.findNextSourceEntityId(Long.MIN_VALUE);
+            while (fromId != null) {
+                long toId = fromId > Long.MAX_VALUE - rangeSize ? Long.MAX_VALUE : fromId + rangeSize - 1;
+                repair(relationshipSummaryService.findDriftedSourceEntityIds(fromId, toId), repaired);
+                fromId = toId == Long.MAX_VALUE ? null : relationshipSummaryService.findNextSourceEntityId(toId + 1);
+            }
+        } finally {
+            if (!repaired.isEmpty()) {
+                relationshipMetrics.recordSummariesRepaired(repaired.size());
+                eventPublisher.publishEvent(EntityRelationshipsChangedEvent.of(repaired));
+            }
+        }
+        if (repaired.isEmpty()) {
+            logger.debug("Relationship summaries are in sync");
+            return 0;
+        }
+        logger.info("Repaired the relationship summaries of {} source entities in {} ms", repaired.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return repaired.size();
+    }
+
+    private void repair(List<Long> drifted, List<Long> repaired) {
+        for (int from = 0; from < drifted.size(); from += chunkSize) {
+            List<Long> chunk = drifted.subList(from, Math.min(from + chunkSize, drifted.size()));
+            transactionTemplate.executeWithoutResult(status -> relationshipSummaryService.refresh(chunk));
+            repaired.addAll(chunk);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.error("Unable to reconcile the relationship summaries", e);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.EntitySummary;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipSummaryModel;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.RelationshipSummaryRepository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service maintaining and reading the precomputed by-source relationships of
+ * TBL_RELATIONSHIP_SUMMARIES. Every relationship write refreshes the summaries
+ * of the source entities it touched in its own transaction, so a committed
+ * summary always matches the committed relationships, and a by-source lookup
+ * reads the grouped relationships with a single primary key lookup instead of
+ * querying and grouping the relationship rows. Summaries can still drift, when
+ * relationships are written without going through this service or when two
+ * transactions summarize a new source entity concurrently, so every summary
+ * records the relationship count, highest relationship ID and sum of
+ * relationship versions it was built from, as well as the sum of the versions
+ * and the latest modification time of the entities whose names it embeds, and
+ * {@link #findDriftedSourceEntityIds(long, long)} compares them with the
+ * relationships and the entities.
+ *
+ * @see RelationshipSummaryReconciler
+ * @since 1.0
+ */
+@Service
+public class RelationshipSummaryService {
+
+    private static final int REFRESH_CHUNK_SIZE = 1000;
+
+    private static final String LOCK_SQL = "SELECT source_entity_id FROM TBL_RELATIONSHIP_SUMMARIES "
+            + "WHERE source_entity_id IN (:ids) FOR UPDATE";
+
+    private static final String ROWS_SQL = "SELECT r.id, r.version, r.source_entity_id, s.name AS source_name, "
+            + "s.entity_type AS source_type, s.version AS source_version, s.updated_at AS source_updated_at, "
+            + "r.relationship_type, r.destination_entity_id, d.name AS destination_name, "
+            + "d.entity_type AS destination_type, d.version AS destination_version, "
+            + "d.updated_at AS destination_updated_at, r.patient_type, r.contact_phone, r.instructions "
+            + "FROM TBL_ENTITY_RELATIONSHIPS r "
+            + "JOIN TBL_ENTITIES s ON s.id = r.source_entity_id "
+            + "JOIN TBL_ENTITIES d ON d.id = r.destination_entity_id "
+            + "WHERE r.source_entity_id IN (:ids) ORDER BY r.source_entity_id, r.id";
+
+    // the update assignments repeat the parameters instead of using VALUES(col), which
+    // MySQL deprecates, or a row alias, which H2 does not parse
+    private static final String UPSERT_SQL = "INSERT INTO TBL_RELATIONSHIP_SUMMARIES (source_entity_id, "
+            + "relationship_count, max_relationship_id, version_sum, entity_version_sum, entity_updated_at, "
+            + "summary, updated_at) "
+            + "VALUES (:sourceEntityId, :relationshipCount, :maxRelationshipId, :versionSum, :entityVersionSum, "
+            + ":entityUpdatedAt, :summary, CURRENT_TIMESTAMP(6)) "
+            + "ON DUPLICATE KEY UPDATE relationship_count = :relationshipCount, "
+            + "max_relationship_id = :maxRelationshipId, version_sum = :versionSum, "
+            + "entity_version_sum = :entityVersionSum, entity_updated_at = :entityUpdatedAt, "
+            + "summary = :summary, updated_at = CURRENT_TIMESTAMP(6)";
+
+    private static final String DELETE_SQL = "DELETE FROM TBL_RELATIONSHIP_SUMMARIES WHERE source_entity_id IN (:ids)";
+
+    // summaries missing or built from other relationships or other versions of the
+    // entities they name, and summaries of source entities left without relationships,
+    // within a range of source entity IDs read with range scans of the source index
+    private static final String DRIFTED_SQL = "SELECT r.source_entity_id FROM ("
+            + "SELECT source_entity_id, COUNT(*) AS relationship_count, MAX(id) AS max_relationship_id, "
+            + "SUM(version) AS version_sum FROM TBL_ENTITY_RELATIONSHIPS "
+            + "WHERE source_entity_id BETWEEN :fromId AND :toId AND destination_entity_id IS NOT NULL "
+            + "GROUP BY source_entity_id) r "
+            + "JOIN (SELECT n.source_entity_id, SUM(e.version) AS entity_version_sum, "
+            + "MAX(e.updated_at) AS entity_updated_at FROM ("
+            + "SELECT source_entity_id, source_entity_id AS entity_id FROM TBL_ENTITY_RELATIONSHIPS "
+            + "WHERE source_entity_id BETWEEN :fromId AND :toId AND destination_entity_id IS NOT NULL "
+            + "UNION "
+            + "SELECT source_entity_id, destination_entity_id FROM TBL_ENTITY_RELATIONSHIPS "
+            + "WHERE source_entity_id BETWEEN :fromId AND :toId AND destination_entity_id IS NOT NULL) n "
+            + "JOIN TBL_ENTITIES e ON e.id = n.entity_id GROUP BY n.source_entity_id) e "
+            + "ON e.source_entity_id = r.source_entity_id "
+            + "LEFT JOIN TBL_RELATIONSHIP_SUMMARIES s ON s.source_entity_id = r.source_entity_id "
+            + "WHERE s.source_entity_id IS NULL OR s.relationship_count <> r.relationship_count "
+            + "OR s.max_relationship_id <> r.max_relationship_id OR s.version_sum <> r.version_sum "
+            + "OR s.entity_version_sum <> e.entity_version_sum OR s.entity_updated_at IS NULL "
+            + "OR s.entity_updated_at <> e.entity_updated_at "
+            + "UNION "
+            + "SELECT s.source_entity_id FROM TBL_RELATIONSHIP_SUMMARIES s "
+            + "WHERE s.source_entity_id BETWEEN :fromId AND :toId AND NOT EXISTS ("
+            + "SELECT 1 FROM TBL_ENTITY_RELATIONSHIPS r WHERE r.source_entity_id = s.source_entity_id "
+            + "AND r.destination_entity_id IS NOT NULL)";
+
+    private static final String NEXT_SOURCE_SQL = "SELECT MIN(source_entity_id) FROM ("
+            + "SELECT MIN(source_entity_id) AS source_entity_id FROM TBL_ENTITY_RELATIONSHIPS "
+            + "WHERE source_entity_id >= :fromId "
+            + "UNION ALL "
+            + "SELECT MIN(source_entity_id) FROM TBL_RELATIONSHIP_SUMMARIES WHERE source_entity_id >= :fromId) n";
+
+    private static final TypeReference<LinkedHashMap<String, List<RelationshipSummary>>> SUMMARY_TYPE =
+            new TypeReference<>() {
+            };
+
+    private final RelationshipSummaryRepository relationshipSummaryRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipSummaryService.class);
+
+    /**
+     * Summary of the relationships of one source entity being built.
+     */
+    private static final class SummaryBuilder {
+
+        private final Map<String, Map<Long, RelationshipSummary>> byTypeAndDestination = new LinkedHashMap<>();
+        private long relationshipCount;
+        private long maxRelationshipId;
+        private long versionSum;
+        private final Set<Long> entityIds = new HashSet<>();
+        private long entityVersionSum;
+        private Timestamp entityUpdatedAt;
+
+        /**
+         * Adds an entity named by the summary, once.
+         */
+        private void addEntity(long entityId, long version, Timestamp updatedAt) {
+            if (entityIds.add(entityId)) {
+                entityVersionSum += version;
+                if (updatedAt != null && (entityUpdatedAt == null || updatedAt.after(entityUpdatedAt))) {
+                    entityUpdatedAt = updatedAt;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructs a RelationshipSummaryService.
+     *
+     * @param relationshipSummaryRepository The repository used for reading
+     *                                      summaries.
+     * @param jdbcTemplate                  The JDBC template used for building
+     *                                      and writing summaries.
+     * @param objectMapper                  The object mapper serializing the
+     *                                      grouped relationships.
+     */
+    @Autowired
+    public RelationshipSummaryService(RelationshipSummaryRepository relationshipSummaryRepository,
+            NamedParameterJdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.relationshipSummaryRepository = relationshipSummaryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the precomputed relationships of a source entity grouped by
+     * relationship type, in the shape of
+     * {@link EntityRelationshipService#getGroupedRelationshipsBySourceEntity}.
+     *
+     * @param sourceEntityId    The ID of the source entity.
+     * @param relationshipTypes The relationship types to filter on, or null or
+     *                          empty to retrieve all relationship types.
+     * @return A map of relationship type names to the relationship summaries of
+     *         that type, or null if there is no summary of the source entity.
+     * @throws FSEServiceException If the summary cannot be read.
+     */
+    public Map<String, List<RelationshipSummary>> getGroupedRelationships(Long sourceEntityId,
+            Set<RelationshipType> relationshipTypes) {
+        RelationshipSummaryModel summary = relationshipSummaryRepository.findById(sourceEntityId).orElse(null);
+        if (summary == null) {
+            return null;
+        }
+        Map<String, List<RelationshipSummary>> grouped;
+        try {
+            grouped = objectMapper.readValue(summary.getSummary(), SUMMARY_TYPE);
+        } catch (JsonProcessingException e) {
+            logger.error("Unable to read the relationship summary of source entity {}", sourceEntityId, e);
+            throw new FSEServiceException("Unable to retrieve relationships at this time. Please try again!",
+                    HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        if (relationshipTypes == null || relationshipTypes.isEmpty()) {
+            return grouped;
+        }
+        Map<String, List<RelationshipSummary>> filtered = new LinkedHashMap<>();
+        grouped.forEach((type, relationships) -> {
+            if (relationshipTypes.contains(RelationshipType.valueOf(type))) {
+                filtered.put(type, relationships);
+            }
+        });
+        return filtered;
+    }
+
+    /**
+     * Gets the time the summary of a source entity was last written.
+     *
+     * @param sourceEntityId The ID of the source entity.
+     * @return The last modification time, or null if there is no summary.
+     */
+    public Instant getUpdatedAt(Long sourceEntityId) {
+        return relationshipSummaryRepository.findUpdatedAtBySourceEntityId(sourceEntityId).orElse(null);
+    }
+
+    /**
+     * Gets the times the summaries of several source entities were last written,
+     * with a single query.
+     *
+     * @param sourceEntityIds The IDs of the source entities.
+     * @return The last modification time of every source entity with a summary.
+     */
+    public Map<Long, Instant> getUpdatedAt(Collection<Long> sourceEntityIds) {
+        Map<Long, Instant> updatedAt = new HashMap<>();
+        if (!sourceEntityIds.isEmpty()) {
+            relationshipSummaryRepository.findUpdatedAtBySourceEntityIds(sourceEntityIds)
+                    .forEach(row -> updatedAt.put(row.sourceEntityId(), row.updatedAt()));
+        }
+        return updatedAt;
+    }
+
+    /**
+     * Rebuilds the summaries of source entities from their current relationships.
+     * Must be called in the transaction of the relationship write, after the
+     * write. The summaries are locked before the relationships are read, so
+     * concurrent refreshes of the same source entity are serialized.
+     *
+     * @param sourceEntityIds The IDs of the source entities whose relationships
+     *                        changed.
+     * @return The number of summaries written or removed.
+     * @throws FSEServiceException If a summary cannot be serialized.
+     */
+    public int refresh(Collection<Long> sourceEntityIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(sourceEntityIds));
+        int refreshed = 0;
+        for (int from = 0; from < ids.size(); from += REFRESH_CHUNK_SIZE) {
+            refreshed += refreshChunk(ids.subList(from, Math.min(from + REFRESH_CHUNK_SIZE, ids.size())));
+        }
+        return refreshed;
+    }
+
+    /**
+     * Finds the source entities in a range of IDs whose summary is missing, was
+     * built from other relationships than the current ones or before one of the
+     * entities it names was updated, for instance renamed, or is left over from
+     * relationships that no longer exist. Only the relationships and summaries of
+     * the range are read, so the whole table is checked range by range.
+     *
+     * @param fromId The lowest source entity ID of the range.
+     * @param toId   The highest source entity ID of the range.
+     * @return The IDs of the source entities whose summary has to be rebuilt.
+     */
+    public List<Long> findDriftedSourceEntityIds(long fromId, long toId) {
+        return jdbcTemplate.queryForList(DRIFTED_SQL, new MapSqlParameterSource()
+                .addValue("fromId", fromId)
+                .addValue("toId", toId), Long.class);
+    }
+
+    /**
+     * Finds the lowest source entity ID with relationships or a summary from a
+     * lower bound on, so that ranges without any are skipped.
+     *
+     * @param fromId The lowest source entity ID to consider.
+     * @return The lowest such source entity ID, or null if there is none.
+     */
+    public Long findNextSourceEntityId(long fromId) {
+        return jdbcTemplate.queryForObject(NEXT_SOURCE_SQL, new MapSqlParameterSource("fromId", fromId),
+                Long.class);
+    }
+
+    private int refreshChunk(List<Long> ids) {
+        MapSqlParameterSource idParameters = new MapSqlParameterSource("ids", ids);
+        jdbcTemplate.queryForList(LOCK_SQL, idParameters, Long.class);
+
+        Map<Long, SummaryBuilder> builders = new LinkedHashMap<>();
+        jdbcTemplate.query(ROWS_SQL, idParameters, resultSet -> {
+            SummaryBuilder builder = builders.computeIfAbsent(resultSet.getLong("source_entity_id"),
+                    id -> new SummaryBuilder());
+            addRow(builder, resultSet);
+        });
+
+        List<SqlParameterSource> upserts = new ArrayList<>(builders.size());
+        for (Map.Entry<Long, SummaryBuilder> entry : builders.entrySet()) {
+            SummaryBuilder builder = entry.getValue();
+            Map<String, List<RelationshipSummary>> grouped = new LinkedHashMap<>();
+            builder.byTypeAndDestination.forEach(
+                    (type, byDestination) -> grouped.put(type, new ArrayList<>(byDestination.values())));
+            String summary;
+            try {
+                summary = objectMapper.writeValueAsString(grouped);
+            } catch (JsonProcessingException e) {
+                logger.error("Unable to serialize the relationship summary of source entity {}", entry.getKey(), e);
+                throw new FSEServiceException("Unable to summarize relationships", HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            upserts.add(new MapSqlParameterSource()
+                    .addValue("sourceEntityId", entry.getKey())
+                    .addValue("relationshipCount", builder.relationshipCount)
+                    .addValue("maxRelationshipId", builder.maxRelationshipId)
+                    .addValue("versionSum", builder.versionSum)
+                    .addValue("entityVersionSum", builder.entityVersionSum)
+                    .addValue("entityUpdatedAt", builder.entityUpdatedAt)
+                    .addValue("summary", summary));
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts.toArray(new SqlParameterSource[0]));
+        }
+
+        // source entities left without relationships
+        List<Long> emptied = ids.stream().filter(id -> !builders.containsKey(id)).toList();
+        if (!emptied.isEmpty()) {
+            jdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource("ids", emptied));
+        }
+        return ids.size();
+    }
+
+    /**
+     * Adds a relationship row to the summary of its source entity, merging it
+     * into the relationship summary of its relationship type and destination.
+     */
+    private static void addRow(SummaryBuilder builder, ResultSet resultSet) throws SQLException {
+        long id = resultSet.getLong("id");
+        builder.relationshipCount++;
+        builder.maxRelationshipId = Math.max(builder.maxRelationshipId, id);
+        builder.versionSum += resultSet.getLong("version");
+        builder.addEntity(resultSet.getLong("source_entity_id"), resultSet.getLong("source_version"),
+                resultSet.getTimestamp("source_updated_at"));
+        builder.addEntity(resultSet.getLong("destination_entity_id"), resultSet.getLong("destination_version"),
+                resultSet.getTimestamp("destination_updated_at"));
+
+        String relationshipType = resultSet.getString("relationship_type");
+        long destinationEntityId = resultSet.getLong("destination_entity_id");
+        RelationshipSummary relationship = builder.byTypeAndDestination
+                .computeIfAbsent(relationshipType, type -> new LinkedHashMap<>())
+                .get(destinationEntityId);
+        if (relationship == null) {
+            relationship = new RelationshipSummary(
+                    new EntitySummary(resultSet.getLong("source_entity_id"), resultSet.getString("source_name"),
+                            entityType(resultSet.getString("source_type"))),
+                    new EntitySummary(destinationEntityId, resultSet.getString("destination_name"),
+                            entityType(resultSet.getString("destination_type"))),
+                    new ArrayList<>());
+            builder.byTypeAndDestination.get(relationshipType).put(destinationEntityId, relationship);
+        }
+        relationship.patientTypes().add(patient(resultSet));
+    }
+
+    /**
+     * Maps the patient columns of a relationship row like the embedded
+     * {@link Patient} of a loaded relationship, which is null when every column
+     * is null.
+     */
+    private static Patient patient(ResultSet resultSet) throws SQLException {
+        String patientType = resultSet.getString("patient_type");
+        String contactPhone = resultSet.getString("contact_phone");
+        String instructions = resultSet.getString("instructions");
+        if (patientType == null && contactPhone == null && instructions == null) {
+            return null;
+        }
+        Patient patient = new Patient();
+        patient.setPatientType(patientType == null ? null : PatientType.valueOf(patientType));
+        patient.setContactPhone(contactPhone);
+        patient.setInstructions(instructions);
+        return patient;
+    }
+
+    private static EntityType entityType(String entityType) {
+        return entityType == null ? null : EntityType.valueOf(entityType);
+    }
+}
@@ -0,0 +1,149 @@
+package com.pulsara.fse.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.HopFilter;
+import com.pulsara.fse.graph.ReachableEntity;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.RelationshipType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Service for multi-hop routing queries, such as transfer chains, over the
+ * in-memory relationship graph.
+ * Traversals are bounded breadth-first searches where every hop has its own
+ * relationship type and patient type filter, and report the entities reached by
+ * the last hop. They never query the database.
+ *
+ * @see RelationshipGraphIndexService
+ * @since 1.0
+ */
+@Service
+public class RelationshipTraversalService {
+
+    /**
+     * The maximum number of hops of a single traversal.
+     */
+    public static final int MAX_HOPS = 4;
+
+    private final RelationshipGraphIndexService relationshipGraphIndexService;
+
+    /**
+     * Constructs a RelationshipTraversalService.
+     *
+     * @param relationshipGraphIndexService The service holding the in-memory
+     *                                      relationship graph.
+     */
+    @Autowired
+    public RelationshipTraversalService(RelationshipGraphIndexService relationshipGraphIndexService) {
+        this.relationshipGraphIndexService = relationshipGraphIndexService;
+    }
+
+    /**
+     * Finds the entities reachable from a source entity along the given hops.
+     *
+     * @param sourceEntityId  The ID of the source entity.
+     * @param hops            The filters of each hop, in traversal order.
+     * @param destinationType The entity type of the reported entities, or null to
+     *                        report entities of any type.
+     * @return The entities reached by the last hop.
+     * @throws FSEServiceException If the hops are invalid or the graph is not
+     *                             available.
+     */
+    public List<ReachableEntity> findReachableEntities(long sourceEntityId, List<HopFilter> hops,
+            EntityType destinationType) {
+        if (hops == null || hops.isEmpty() || hops.size() > MAX_HOPS) {
+            throw new FSEServiceException("Between 1 and " + MAX_HOPS + " hops must be provided",
+                    HttpStatus.BAD_REQUEST);
+        }
+        return findReachableEntities(relationshipGraphIndexService.requireGraph(), sourceEntityId, hops,
+                destinationType);
+    }
+
+    /**
+     * Finds the entities reachable from a source entity along the given hops of a
+     * relationship graph. An entity is reported when a path from the source
+     * entity takes exactly one edge per hop and every edge passes the filter of
+     * its hop; entities only passed through on the way are not reported. Every
+     * entity is visited at most once per hop, so an entity reached at one hop
+     * is still expanded under the filter of a later hop, and reported once with
+     * the first path found.
+     *
+     * @param graph           The relationship graph.
+     * @param sourceEntityId  The ID of the source entity.
+     * @param hops            The filters of each hop, in traversal order.
+     * @param destinationType The entity type of the reported entities, or null to
+     *                        report entities of any type.
+     * @return The reachable entities, in the order they were reached.
+     */
+    public List<ReachableEntity> findReachableEntities(RelationshipGraph graph, long sourceEntityId,
+            List<HopFilter> hops, EntityType destinationType) {
+        int source = graph.indexOf(sourceEntityId);
+        if (source < 0) {
+            return List.of();
+        }
+
+        // parents[depth][node] is the node a node was reached from at that depth
+        int[][] parents = new int[hops.size() + 1][];
+        int[] frontier = { source };
+        int frontierSize = 1;
+
+        for (int depth = 0; depth < hops.size() && frontierSize > 0; depth++) {
+            HopFilter hop = hops.get(depth);
+            BitSet visited = new BitSet(graph.nodeCount());
+            int[] depthParents = new int[graph.nodeCount()];
+            int[] next = new int[Math.max(16, frontierSize)];
+            int nextSize = 0;
+            for (int i = 0; i < frontierSize; i++) {
+                int node = frontier[i];
+                for (RelationshipType relationshipType : hop.relationshipTypes()) {
+                    int end = graph.edgeEnd(node, relationshipType);
+                    for (int edge = graph.edgeStart(node, relationshipType); edge < end; edge++) {
+                        int target = graph.target(edge);
+                        if (visited.get(target) || !hop.accepts(graph, edge)) {
+                            continue;
+                        }
+                        visited.set(target);
+                        depthParents[target] = node;
+                        if (nextSize == next.length) {
+                            next = Arrays.copyOf(next, nextSize * 2);
+                        }
+                        next[nextSize++] = target;
+                    }
+                }
+            }
+            parents[depth + 1] = depthParents;
+            frontier = next;
+            frontierSize = nextSize;
+        }
+        if (parents[hops.size()] == null) {
+            return List.of();
+        }
+
+        List<ReachableEntity> reachableEntities = new ArrayList<>();
+        for (int i = 0; i < frontierSize; i++) {
+            int node = frontier[i];
+            if (destinationType != null && graph.entityType(node) != destinationType) {
+                continue;
+            }
+            Long[] path = new Long[hops.size() + 1];
+            for (int depth = hops.size(), step = node; depth >= 0; depth--) {
+                path[depth] = graph.entityId(step);
+                if (depth > 0) {
+                    step = parents[depth][step];
+                }
+            }
+            reachableEntities.add(new ReachableEntity(graph.entityId(node), graph.name(node),
+                    graph.entityType(node), hops.size(), Arrays.asList(path)));
+        }
+        return reachableEntities;
+    }
+}
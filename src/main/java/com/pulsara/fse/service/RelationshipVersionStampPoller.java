@@ -0,0 +1,114 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the relationship change log so that the in-memory version stamps of
+ * source entities changed through other instances do not outlive the change.
+ * Every fse.relationships.version-stamp-poll-interval the source entities of the
+ * changes committed since the previous run are read with a range scan of the
+ * commit sequence index, and their version stamps are evicted, so the next
+ * request reads the new stamp from the database and reloads the relationships
+ * cached at the previous one. Changes made through this instance are evicted by
+ * their {@link EntityRelationshipsChangedEvent} already and are evicted again
+ * harmlessly. Summaries repaired by the reconciliation job of another instance
+ * are not logged and are picked up when the stamp expires from its cache.
+ *
+ * @see EntityRelationshipCacheService#getSourceVersionStamp(Long)
+ * @since 1.0
+ */
+@Component
+public class RelationshipVersionStampPoller implements DisposableBean {
+
+    private final RelationshipChangeRepository relationshipChangeRepository;
+    private final EntityRelationshipCacheService entityRelationshipCacheService;
+    private final Duration pollInterval;
+    private ScheduledExecutorService scheduler;
+    private long watermark = -1;
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipVersionStampPoller.class);
+
+    /**
+     * Constructs a RelationshipVersionStampPoller.
+     *
+     * @param relationshipChangeRepository   The repository of the relationship
+     *                                       change log.
+     * @param entityRelationshipCacheService The cache layer holding the version
+     *                                       stamps.
+     * @param pollInterval                   The interval between two polls, zero
+     *                                       to not poll.
+     */
+    @Autowired
+    public RelationshipVersionStampPoller(RelationshipChangeRepository relationshipChangeRepository,
+            EntityRelationshipCacheService entityRelationshipCacheService,
+            @Value("${fse.relationships.version-stamp-poll-interval:5s}") Duration pollInterval) {
+        this.relationshipChangeRepository = relationshipChangeRepository;
+        this.entityRelationshipCacheService = entityRelationshipCacheService;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Starts polling the change log at the poll interval once the application is
+     * ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (scheduler == null && !pollInterval.isZero() && !pollInterval.isNegative()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                    .name("relationship-version-stamps").daemon().factory());
+            scheduler.scheduleWithFixedDelay(this::pollQuietly, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops polling.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Evicts the version stamps of the source entities changed since the previous
+     * poll. The first poll only records the current watermark.
+     *
+     * @return The number of source entities whose version stamp was evicted.
+     */
+    public synchronized int poll() {
+        long latest = relationshipChangeRepository.findLatestCommitSeq();
+        if (watermark < 0 || latest <= watermark) {
+            watermark = latest;
+            return 0;
+        }
+        List<Long> sourceEntityIds = relationshipChangeRepository.findSourceEntityIdsBetween(watermark, latest);
+        entityRelationshipCacheService.evictVersionStamps(sourceEntityIds);
+        watermark = latest;
+        logger.debug("Evicted the version stamps of {} changed source entities", sourceEntityIds.size());
+        return sourceEntityIds.size();
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            logger.warn("Unable to poll the relationship change log", e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.pulsara.fse.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical concurrent loads. The first caller of a
+ * (operation, key) pair runs the load and every caller arriving with the same
+ * pair while it is in flight waits for it and receives the same result, or the
+ * same exception, instead of loading it again. A load is only shared with
+ * callers that arrive before it completes, so callers never receive a result
+ * loaded before a change they could have observed. Results are shared between
+ * callers and must not be modified.
+ * <p>
+ * Every call is counted in the {@value #REQUESTS} counter, tagged with the
+ * operation and whether the call ran the load ({@value #LEADER}) or joined one
+ * in flight ({@value #COALESCED}), and the number of loads in flight is
+ * published as the {@value #IN_FLIGHT} gauge.
+ *
+ * @since 1.0
+ */
+@Component
+public class RequestCoalescer {
+
+    /**
+     * Name of the counter of coalescible calls.
+     */
+    public static final String REQUESTS = "fse.coalescing.requests";
+
+    /**
+     * Name of the gauge of loads in flight.
+     */
+    public static final String IN_FLIGHT = "fse.coalescing.in.flight";
+
+    /** Result tag of a call that ran the load. */
+    public static final String LEADER = "leader";
+    /** Result tag of a call that received the result of a load in flight. */
+    public static final String COALESCED = "coalesced";
+
+    private final Map<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Key of a load in flight.
+     *
+     * @param operation The operation of the load.
+     * @param key       The parameters of the load.
+     */
+    private record FlightKey(String operation, Object key) {
+    }
+
+    /**
+     * Constructs a RequestCoalescer.
+     *
+     * @param meterRegistry The registry of the coalescing metrics.
+     */
+    @Autowired
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(IN_FLIGHT, inFlight, Map::size)
+                .description("Coalescible loads in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates a RequestCoalescer recording its metrics nowhere.
+     *
+     * @return The RequestCoalescer.
+     */
+    public static RequestCoalescer unmetered() {
+        return new RequestCoalescer(new CompositeMeterRegistry());
+    }
+
+    /**
+     * Runs a load, or waits for the identical load in flight.
+     *
+     * @param <T>       The type of the result.
+     * @param operation The operation of the load, such as
+     *                  {@value RelationshipMetrics#BY_SOURCE}.
+     * @param key       The parameters identifying the load within the operation,
+     *                  with value based equality.
+     * @param load      The load.
+     * @return The result of the load.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> load) {
+        FlightKey flightKey = new FlightKey(operation, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            counter(operation, COALESCED).increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        counter(operation, LEADER).increment();
+        T result;
+        try {
+            result = load.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(flightKey, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        // callers arriving from now on start a new load
+        inFlight.remove(flightKey, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    private Counter counter(String operation, String result) {
+        return Counter.builder(REQUESTS)
+                .description("Coalescible loads, by whether they ran or joined a load in flight")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
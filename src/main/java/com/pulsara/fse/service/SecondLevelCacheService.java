@@ -0,0 +1,67 @@
+package com.pulsara.fse.service;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import com.pulsara.fse.models.EntityRelationshipModel;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Keeps the Hibernate second-level and query caches consistent with
+ * relationship writes made outside of Hibernate. Bulk imports write
+ * TBL_ENTITY_RELATIONSHIPS with JDBC, which Hibernate does not see, so when an
+ * {@link EntityRelationshipsChangedEvent} is published the cached relationship
+ * rows and finder query results are evicted. Entities are not written by the
+ * application and expire with the time to live of their region.
+ * <p>
+ * An import publishes its event once, after its last chunk has committed, so
+ * rows and query results cached before the import can be served until the
+ * import ends, for relationships of chunks that have already committed. A
+ * finder query that read the relationships before a chunk committed and stores
+ * its result after the eviction keeps serving it until its region expires, so
+ * the window is bounded by the time to live of the regions in ehcache.xml.
+ *
+ * @since 1.0
+ */
+@Service
+public class SecondLevelCacheService {
+
+    private final Cache cache;
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheService.class);
+
+    /**
+     * Constructs a SecondLevelCacheService.
+     *
+     * @param entityManagerFactory The entity manager factory owning the caches.
+     */
+    public SecondLevelCacheService(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    /**
+     * Evicts the cached relationship rows and query results when relationships
+     * change, right after read replica routing has recorded the change and
+     * before the graph index and the relationship caches listening to the same
+     * event are invalidated, so that they are not reloaded from stale query
+     * results.
+     *
+     * @param event The event describing the changed relationships.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onRelationshipsChanged(EntityRelationshipsChangedEvent event) {
+        if (event.isEmpty()) {
+            return;
+        }
+        logger.debug("Evicting second-level cached relationships and query results");
+        cache.evictEntityData(EntityRelationshipModel.class);
+        cache.evictQueryRegions();
+    }
+}
@@ -0,0 +1,290 @@
+package com.pulsara.fse.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.config.CacheConfiguration;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+/**
+ * Warms the application up at startup when the fse.warmup.enabled property is
+ * set, so that the first requests after a deploy do not meet an empty connection
+ * pool, empty caches and interpreted code. In order, the warm-up
+ * <ol>
+ * <li>opens fse.warmup.connections database connections at once, so that the
+ * pool holds them before the first request,</li>
+ * <li>loads every entity into the entity cache and the second-level cache,</li>
+ * <li>loads the relationships of the fse.warmup.source-entities source entities
+ * with the most relationships into the relationship caches, or their response
+ * snapshots when snapshots are enabled, serializing each response once, and</li>
+ * <li>serves the cached responses of those source entities, with and without a
+ * relationship type filter, fse.warmup.jit-iterations times, so that the lookup,
+ * filtering and JSON serialization code is compiled.</li>
+ * </ol>
+ * The warm-up stops early once it has run for fse.warmup.time-budget, and stops
+ * loading once it has loaded fse.warmup.max-rows entities and relationships. A
+ * failing step is logged and skipped. Spring Boot reports the application as ready to accept traffic,
+ * on the readiness probe at /actuator/health/readiness, only after the
+ * application runners have returned, so no traffic is routed to the instance
+ * before the warm-up is over.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class StartupWarmupRunner implements ApplicationRunner {
+
+    private final DataSource dataSource;
+    private final EntityService entityService;
+    private final EntityRelationshipRepository entityRelationshipRepository;
+    private final EntityRelationshipCacheService entityRelationshipCacheService;
+    private final RelationshipSnapshotService relationshipSnapshotService;
+    private final Cache entities;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration timeBudget;
+    private final long maxRows;
+    private final int sourceEntities;
+    private final int connections;
+    private final int jitIterations;
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmupRunner.class);
+
+    /**
+     * Budgets and progress of a warm-up run.
+     */
+    private static final class Budget {
+
+        private final long deadline;
+        private final long maxRows;
+        private long rows;
+
+        Budget(Duration timeBudget, long maxRows) {
+            this.deadline = System.nanoTime() + timeBudget.toNanos();
+            this.maxRows = maxRows;
+        }
+
+        boolean timeUp() {
+            return System.nanoTime() - deadline >= 0;
+        }
+
+        boolean exhausted() {
+            return rows >= maxRows || timeUp();
+        }
+    }
+
+    /**
+     * Constructs a StartupWarmupRunner.
+     *
+     * @param dataSource                     The data source whose connections are
+     *                                       opened.
+     * @param entityService                  The service used for loading entities.
+     * @param entityRelationshipRepository   The repository used for ranking source
+     *                                       entities by relationship count.
+     * @param entityRelationshipCacheService The relationship cache to fill.
+     * @param relationshipSnapshotService    The snapshot store to fill when
+     *                                       snapshots are enabled.
+     * @param cacheManager                   The cache manager holding the entity
+     *                                       cache.
+     * @param objectMapper                   The mapper serializing responses.
+     * @param enabled                        Whether the warm-up runs.
+     * @param timeBudget                     The maximum duration of the warm-up.
+     * @param maxRows                        The maximum number of entities and
+     *                                       relationships loaded.
+     * @param sourceEntities                 The number of source entities whose
+     *                                       relationships are loaded.
+     * @param connections                    The number of database connections
+     *                                       opened at once.
+     * @param jitIterations                  The number of cached responses served.
+     */
+    @Autowired
+    public StartupWarmupRunner(DataSource dataSource, EntityService entityService,
+            EntityRelationshipRepository entityRelationshipRepository,
+            EntityRelationshipCacheService entityRelationshipCacheService,
+            RelationshipSnapshotService relationshipSnapshotService, CacheManager cacheManager,
+            ObjectMapper objectMapper,
+            @Value("${fse.warmup.enabled:false}") boolean enabled,
+            @Value("${fse.warmup.time-budget:30s}") Duration timeBudget,
+            @Value("${fse.warmup.max-rows:200000}") long maxRows,
+            @Value("${fse.warmup.source-entities:1000}") int sourceEntities,
+            @Value("${fse.warmup.connections:${spring.datasource.hikari.maximum-pool-size:10}}") int connections,
+            @Value("${fse.warmup.jit-iterations:20000}") int jitIterations) {
+        this.dataSource = dataSource;
+        this.entityService = entityService;
+        this.entityRelationshipRepository = entityRelationshipRepository;
+        this.entityRelationshipCacheService = entityRelationshipCacheService;
+        this.relationshipSnapshotService = relationshipSnapshotService;
+        this.entities = cacheManager.getCache(CacheConfiguration.ENTITIES);
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.timeBudget = timeBudget;
+        this.maxRows = maxRows;
+        this.sourceEntities = sourceEntities;
+        this.connections = connections;
+        this.jitIterations = jitIterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Budget budget = new Budget(timeBudget, maxRows);
+        logger.info("Warming up within {} and {} rows", timeBudget, maxRows);
+
+        int opened = openConnections();
+        if (!budget.exhausted()) {
+            loadEntities(budget);
+        }
+        long entityRows = budget.rows;
+        List<EntityModel> warmed = budget.exhausted() ? List.of() : loadRelationships(budget);
+        int served = budget.timeUp() ? 0 : serveCachedResponses(warmed, budget);
+
+        logger.info("Warmed up {} connections, {} entities, the relationships of {} source entities "
+                + "({} rows) and served {} cached responses in {} ms{}", opened, entityRows, warmed.size(),
+                budget.rows - entityRows, served, (System.nanoTime() - start) / 1_000_000,
+                budget.exhausted() ? ", stopped at the budget" : "");
+    }
+
+    /**
+     * Opens the configured number of connections at once and closes them again,
+     * so that the pool creates and keeps them.
+     *
+     * @return The number of connections opened.
+     */
+    private int openConnections() {
+        List<Connection> opened = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                Connection connection = dataSource.getConnection();
+                opened.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            logger.warn("Opened {} of {} connections while warming up", opened.size(), connections, e);
+        } finally {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.warn("Unable to return a connection while warming up", e);
+                }
+            }
+        }
+        return opened.size();
+    }
+
+    /**
+     * Puts every entity into the entity cache, within the budget. The stream is
+     * closed as soon as the budget is exhausted, so the rest of the table is not
+     * read.
+     *
+     * @param budget The budget of the warm-up.
+     */
+    private void loadEntities(Budget budget) {
+        try {
+            entityService.streamEntitiesWhile(entity -> {
+                entities.put(entity.getId(), entity);
+                budget.rows++;
+                return !budget.exhausted();
+            });
+        } catch (Exception e) {
+            logger.warn("Unable to load entities while warming up", e);
+        }
+    }
+
+    /**
+     * Loads the relationships of the source entities with the most relationships
+     * into the relationship caches, or their snapshots, within the budget.
+     *
+     * @param budget The budget of the warm-up.
+     * @return The source entities whose relationships were loaded.
+     */
+    private List<EntityModel> loadRelationships(Budget budget) {
+        List<EntityModel> warmed = new ArrayList<>();
+        try {
+            List<Long> sourceEntityIds = entityRelationshipRepository
+                    .findSourceEntityIdsByRelationshipCount(PageRequest.ofSize(sourceEntities));
+            for (Long sourceEntityId : sourceEntityIds) {
+                if (budget.exhausted()) {
+                    break;
+                }
+                EntityModel sourceEntity = entityService.getEntityById(sourceEntityId);
+                if (sourceEntity == null) {
+                    continue;
+                }
+                // the snapshot is the serialized response, built from the cached relationships
+                if (relationshipSnapshotService.isEnabled()) {
+                    relationshipSnapshotService.buildSnapshot(sourceEntity, Set.of(), null);
+                }
+                Map<String, List<RelationshipSummary>> grouped = entityRelationshipCacheService
+                        .getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+                if (!relationshipSnapshotService.isEnabled()) {
+                    serialize(grouped);
+                }
+                grouped.values().forEach(relationships -> relationships
+                        .forEach(relationship -> budget.rows += relationship.patientTypes().size()));
+                warmed.add(sourceEntity);
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to load relationships while warming up", e);
+        }
+        return warmed;
+    }
+
+    /**
+     * Serves the cached responses of the warmed source entities, alternating
+     * between all relationship types and each single one, within the time budget.
+     * No rows are loaded, so the row budget does not apply.
+     *
+     * @param warmed The source entities whose relationships are cached.
+     * @param budget The budget of the warm-up.
+     * @return The number of responses served.
+     */
+    private int serveCachedResponses(List<EntityModel> warmed, Budget budget) {
+        if (warmed.isEmpty()) {
+            return 0;
+        }
+        RelationshipType[] relationshipTypes = RelationshipType.values();
+        int served = 0;
+        try {
+            for (; served < jitIterations && !budget.timeUp(); served++) {
+                EntityModel sourceEntity = warmed.get(served % warmed.size());
+                int filter = served / warmed.size() % (relationshipTypes.length + 1);
+                serialize(entityRelationshipCacheService.getGroupedRelationshipsBySourceEntity(sourceEntity,
+                        filter == 0 ? null : Set.of(relationshipTypes[filter - 1])));
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to serve cached responses while warming up", e);
+        }
+        return served;
+    }
+
+    private void serialize(Map<String, List<RelationshipSummary>> grouped) throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), Map.of("relationships", grouped));
+    }
+}
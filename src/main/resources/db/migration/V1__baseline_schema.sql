@@ -0,0 +1,22 @@
+-- Baseline of the schema previously created by Hibernate. Existing databases
+-- are baselined at this version (spring.flyway.baseline-on-migrate) and skip it.
+
+CREATE TABLE IF NOT EXISTS TBL_ENTITIES (
+    id BIGINT NOT NULL,
+    name VARCHAR(255),
+    entity_type VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS TBL_ENTITY_RELATIONSHIPS (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    source_entity_id BIGINT,
+    destination_entity_id BIGINT,
+    relationship_type VARCHAR(255),
+    patient_type VARCHAR(255),
+    contact_phone VARCHAR(255),
+    instructions VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_relationships_source_entity FOREIGN KEY (source_entity_id) REFERENCES TBL_ENTITIES (id),
+    CONSTRAINT fk_relationships_destination_entity FOREIGN KEY (destination_entity_id) REFERENCES TBL_ENTITIES (id)
+);
@@ -0,0 +1,9 @@
+-- Relationships of a source entity, optionally filtered by relationship type and
+-- destination, read in (relationship type, destination) order by the streaming
+-- and grouping queries.
+CREATE INDEX idx_relationships_source_type_destination
+    ON TBL_ENTITY_RELATIONSHIPS (source_entity_id, relationship_type, destination_entity_id);
+
+-- Relationships into a destination entity, optionally filtered by relationship type.
+CREATE INDEX idx_relationships_destination_type
+    ON TBL_ENTITY_RELATIONSHIPS (destination_entity_id, relationship_type);
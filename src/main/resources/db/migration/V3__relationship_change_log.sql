@@ -0,0 +1,37 @@
+-- Optimistic locking versions and last modification times of entities and
+-- relationships.
+ALTER TABLE TBL_ENTITIES ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE TBL_ENTITIES ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+ALTER TABLE TBL_ENTITY_RELATIONSHIPS ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE TBL_ENTITY_RELATIONSHIPS ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+
+-- Append-only log of relationship inserts, updates and deletes read by the
+-- change feed. Every row keeps a copy of the relationship as it was after the
+-- change (before it, for deletes), so deleted relationships can still be
+-- reported. The ID is the sync watermark.
+CREATE TABLE TBL_RELATIONSHIP_CHANGES (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    relationship_id BIGINT NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    version BIGINT NOT NULL,
+    source_entity_id BIGINT,
+    destination_entity_id BIGINT,
+    relationship_type VARCHAR(255),
+    patient_type VARCHAR(255),
+    contact_phone VARCHAR(255),
+    instructions VARCHAR(255),
+    changed_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+-- Changes to the relationships of one source entity after a watermark.
+CREATE INDEX idx_relationship_changes_source ON TBL_RELATIONSHIP_CHANGES (source_entity_id, id);
+
+-- Existing relationships are logged as inserts, so a first sync without a
+-- watermark returns the whole relationship set.
+INSERT INTO TBL_RELATIONSHIP_CHANGES (relationship_id, operation, version, source_entity_id, destination_entity_id,
+        relationship_type, patient_type, contact_phone, instructions, changed_at)
+SELECT id, 'INSERT', version, source_entity_id, destination_entity_id, relationship_type, patient_type,
+        contact_phone, instructions, updated_at
+FROM TBL_ENTITY_RELATIONSHIPS
+ORDER BY id;
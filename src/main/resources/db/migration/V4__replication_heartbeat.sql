@@ -0,0 +1,9 @@
+-- Heartbeat written to the primary and read back from the read replica to
+-- measure replication lag, see ReplicaLagMonitor.
+CREATE TABLE TBL_REPLICATION_HEARTBEAT (
+    id INT NOT NULL,
+    beat_millis BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO TBL_REPLICATION_HEARTBEAT (id, beat_millis) VALUES (1, 0);
@@ -0,0 +1,18 @@
+-- Denormalized by-source relationships: one row per source entity holding its
+-- relationships grouped by relationship type and destination, serialized as
+-- JSON, so that a by-source lookup is a single primary key read. Rows are
+-- rewritten in the transaction of every relationship write, see
+-- RelationshipSummaryService. The relationship count, highest relationship ID
+-- and sum of relationship versions the summary was built from let the
+-- reconciliation job find summaries that drifted from the relationships.
+-- Existing relationships are summarized by the first reconciliation run.
+CREATE TABLE TBL_RELATIONSHIP_SUMMARIES (
+    source_entity_id BIGINT NOT NULL,
+    relationship_count BIGINT NOT NULL,
+    max_relationship_id BIGINT NOT NULL,
+    version_sum BIGINT NOT NULL,
+    summary LONGTEXT NOT NULL,
+    updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (source_entity_id),
+    CONSTRAINT fk_relationship_summaries_source_entity FOREIGN KEY (source_entity_id) REFERENCES TBL_ENTITIES (id)
+);
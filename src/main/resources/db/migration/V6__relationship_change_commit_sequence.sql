@@ -0,0 +1,26 @@
+-- Commit ordered watermark of the change feed. Change log IDs are assigned when
+-- the rows are inserted, so a transaction holding lower IDs can commit after one
+-- holding higher IDs, and a client that already synced past the higher IDs would
+-- never see its changes. Instead every transaction writes its change rows with
+-- a pending key and, right before it commits, takes the next numbers of
+-- TBL_CHANGE_SEQUENCE and stamps them on its rows. The lock on the sequence row
+-- is held until the commit, so commit sequence numbers become visible in commit
+-- order. Existing changes keep their IDs as commit sequence numbers, so tokens
+-- handed out before this migration stay valid.
+ALTER TABLE TBL_RELATIONSHIP_CHANGES ADD COLUMN commit_seq BIGINT;
+ALTER TABLE TBL_RELATIONSHIP_CHANGES ADD COLUMN pending_key VARCHAR(36);
+UPDATE TBL_RELATIONSHIP_CHANGES SET commit_seq = id;
+
+CREATE UNIQUE INDEX idx_relationship_changes_commit_seq ON TBL_RELATIONSHIP_CHANGES (commit_seq);
+CREATE INDEX idx_relationship_changes_source_commit_seq ON TBL_RELATIONSHIP_CHANGES (source_entity_id, commit_seq);
+CREATE INDEX idx_relationship_changes_pending ON TBL_RELATIONSHIP_CHANGES (pending_key);
+ALTER TABLE TBL_RELATIONSHIP_CHANGES DROP INDEX idx_relationship_changes_source;
+
+CREATE TABLE TBL_CHANGE_SEQUENCE (
+    id INT NOT NULL,
+    next_value BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO TBL_CHANGE_SEQUENCE (id, next_value)
+SELECT 1, COALESCE(MAX(id), 0) + 1 FROM TBL_RELATIONSHIP_CHANGES;
@@ -0,0 +1,8 @@
+-- Summaries embed the names and types of their source and destination entities,
+-- so renaming an entity leaves them stale even though no relationship changed.
+-- Every summary now also records the sum of the versions and the latest
+-- modification time of the entities it names, and the reconciliation job
+-- compares them with TBL_ENTITIES. Existing summaries record a version sum no
+-- entities can have and are rebuilt by the first reconciliation run.
+ALTER TABLE TBL_RELATIONSHIP_SUMMARIES ADD COLUMN entity_version_sum BIGINT NOT NULL DEFAULT -1;
+ALTER TABLE TBL_RELATIONSHIP_SUMMARIES ADD COLUMN entity_updated_at DATETIME(6);
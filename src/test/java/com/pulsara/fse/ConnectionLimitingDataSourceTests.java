@@ -0,0 +1,98 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import com.pulsara.fse.config.ConnectionLimitingDataSource;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionLimitingDataSourceTests {
+
+    @Test
+    void testConnectionsBeyondLimitWaitUntilClosed() throws Exception {
+        // Setup
+        DataSource pool = mock(DataSource.class);
+        Connection pooled = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 1,
+                Duration.ofMillis(50));
+
+        // Test
+        Connection connection = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        connection.close();
+        connection.close();
+
+        // Verify
+        assertEquals(1, dataSource.getAvailablePermits());
+        dataSource.getConnection();
+        verify(pool, times(2)).getConnection();
+        verify(pooled, times(2)).close();
+    }
+
+    @Test
+    void testUnwrappedConnectionStillReleasesItsPermit() throws Exception {
+        // Setup
+        DataSource pool = mock(DataSource.class);
+        Connection pooled = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        when(pooled.unwrap(DataSource.class)).thenReturn(pool);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 1,
+                Duration.ofMillis(50));
+
+        // Test
+        Connection connection = dataSource.getConnection();
+        Connection unwrapped = connection.unwrap(Connection.class);
+        unwrapped.close();
+        connection.close();
+
+        // Verify
+        assertSame(connection, unwrapped);
+        assertTrue(connection.isWrapperFor(Connection.class));
+        assertSame(pool, connection.unwrap(DataSource.class));
+        assertEquals(1, dataSource.getAvailablePermits());
+        dataSource.getConnection().abort(null);
+        assertEquals(1, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    void testVirtualThreadsAreLimitedToPoolSize() throws Exception {
+        // Setup
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(pool, 4,
+                Duration.ofSeconds(10));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        // Test
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                executor.submit(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        Thread.sleep(1);
+                        active.decrementAndGet();
+                    }
+                    return null;
+                });
+            }
+        }
+
+        // Verify
+        assertEquals(4, maxActive.get());
+        assertEquals(4, dataSource.getAvailablePermits());
+    }
+}
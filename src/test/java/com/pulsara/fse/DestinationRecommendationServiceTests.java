@@ -0,0 +1,99 @@
+package com.pulsara.fse;
+
+import static com.pulsara.fse.RelationshipGraphFixtures.entity;
+import static com.pulsara.fse.RelationshipGraphFixtures.graph;
+import static com.pulsara.fse.RelationshipGraphFixtures.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.DestinationRecommendation;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.service.DestinationRecommendationService;
+import com.pulsara.fse.service.RelationshipGraphIndexService;
+
+public class DestinationRecommendationServiceTests {
+
+    // EMS 1, hospitals 2 to 6 and EMS 7
+    private static final List<EntityModel> ENTITIES = List.of(entity(1L, EntityType.EMS),
+            entity(2L, EntityType.HOSPITAL), entity(3L, EntityType.HOSPITAL), entity(4L, EntityType.HOSPITAL),
+            entity(5L, EntityType.HOSPITAL), entity(6L, EntityType.HOSPITAL), entity(7L, EntityType.EMS));
+
+    private RelationshipGraphIndexService graphIndexService;
+    private DestinationRecommendationService service;
+
+    @BeforeEach
+    void setUp() {
+        graphIndexService = mock(RelationshipGraphIndexService.class);
+        service = new DestinationRecommendationService(graphIndexService);
+    }
+
+    @Test
+    void testDestinationsAreRankedForPatientType() {
+        // from EMS 1: 2 by MUTUAL_AID, 3 by TRANSFER and TRANSPORT, 4 by TRANSPORT
+        // with contact details, 5 by TRANSPORT, 6 by TRANSPORT for STROKE only
+        when(graphIndexService.requireGraph()).thenReturn(graph(ENTITIES,
+                row(1L, 2L, RelationshipType.MUTUAL_AID, PatientType.STEMI, null),
+                row(1L, 3L, RelationshipType.TRANSFER, PatientType.STEMI, null),
+                row(1L, 3L, RelationshipType.TRANSPORT, PatientType.STEMI, null),
+                row(1L, 4L, RelationshipType.TRANSPORT, PatientType.STEMI, "555-0104"),
+                row(1L, 5L, RelationshipType.TRANSPORT, PatientType.STEMI, null),
+                row(1L, 5L, RelationshipType.TRANSPORT, PatientType.STROKE, "555-0105"),
+                row(1L, 6L, RelationshipType.TRANSPORT, PatientType.STROKE, null)));
+
+        List<DestinationRecommendation> recommendations = service.recommend(1L, PatientType.STEMI, Set.of(),
+                null, 10);
+
+        assertEquals(List.of(3L, 4L, 5L, 2L), recommendations.stream().map(DestinationRecommendation::id).toList());
+        assertEquals(List.of(1, 2, 3, 4), recommendations.stream().map(DestinationRecommendation::rank).toList());
+        assertEquals(List.of(RelationshipType.TRANSPORT, RelationshipType.TRANSFER),
+                recommendations.get(0).relationshipTypes());
+        assertEquals("555-0104", recommendations.get(1).contactPhone());
+        // the STROKE contact of destination 5 is not given for STEMI
+        assertNull(recommendations.get(2).contactPhone());
+    }
+
+    @Test
+    void testFiltersSkipDestinationsAndLimitCapsResults() {
+        when(graphIndexService.requireGraph()).thenReturn(graph(ENTITIES,
+                row(1L, 2L, RelationshipType.MUTUAL_AID, PatientType.STROKE, null),
+                row(1L, 3L, RelationshipType.TRANSPORT, PatientType.STROKE, null),
+                row(1L, 4L, RelationshipType.TRANSPORT, PatientType.STROKE, null),
+                row(1L, 7L, RelationshipType.TRANSPORT, PatientType.STROKE, null)));
+
+        assertEquals(List.of(2L), service.recommend(1L, PatientType.STROKE, Set.of(RelationshipType.MUTUAL_AID),
+                null, 10).stream().map(DestinationRecommendation::id).toList());
+        assertEquals(List.of(7L), service.recommend(1L, PatientType.STROKE, Set.of(), EntityType.EMS, 10)
+                .stream().map(DestinationRecommendation::id).toList());
+        assertEquals(List.of(3L, 4L), service.recommend(1L, PatientType.STROKE, Set.of(), EntityType.HOSPITAL, 2)
+                .stream().map(DestinationRecommendation::id).toList());
+        assertEquals(List.of(), service.recommend(99L, PatientType.STROKE, Set.of(), null, 10));
+        assertThrows(FSEServiceException.class,
+                () -> service.recommend(1L, PatientType.STROKE, Set.of(), null,
+                        DestinationRecommendationService.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void testIndexIsRebuiltWhenGraphIsReloaded() {
+        when(graphIndexService.requireGraph()).thenReturn(graph(ENTITIES,
+                row(1L, 2L, RelationshipType.TRANSPORT, PatientType.GENERAL, null)));
+        assertEquals(1, service.recommend(1L, PatientType.GENERAL, Set.of(), null, 10).size());
+
+        when(graphIndexService.requireGraph()).thenReturn(graph(ENTITIES,
+                row(1L, 2L, RelationshipType.TRANSPORT, PatientType.GENERAL, null),
+                row(1L, 3L, RelationshipType.TRANSPORT, PatientType.GENERAL, null)));
+        assertEquals(2, service.recommend(1L, PatientType.GENERAL, Set.of(), null, 10).size());
+    }
+}
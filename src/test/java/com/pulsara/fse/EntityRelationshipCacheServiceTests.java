@@ -0,0 +1,216 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.pulsara.fse.config.CacheConfiguration;
+import com.pulsara.fse.dto.EntitySummary;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.dto.StampedRelationships;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+import com.pulsara.fse.service.EntityRelationshipCacheService;
+import com.pulsara.fse.service.EntityRelationshipService;
+import com.pulsara.fse.service.EntityRelationshipsChangedEvent;
+import com.pulsara.fse.service.EntityService;
+import com.pulsara.fse.service.RelationshipVersionStampPoller;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+public class EntityRelationshipCacheServiceTests {
+
+    private EntityRelationshipService relationshipService;
+    private EntityService entityService;
+    private EntityRelationshipCacheService cacheService;
+    private EntityModel sourceEntity;
+
+    @BeforeEach
+    void setUp() {
+        relationshipService = mock(EntityRelationshipService.class);
+        entityService = mock(EntityService.class);
+        cacheService = new EntityRelationshipCacheService(relationshipService, entityService,
+                new ConcurrentMapCacheManager(CacheConfiguration.RELATIONSHIPS_BY_SOURCE,
+                        CacheConfiguration.RELATIONSHIPS_BY_DESTINATION,
+                        CacheConfiguration.RELATIONSHIP_VERSION_STAMPS), 2);
+        sourceEntity = new EntityModel();
+        sourceEntity.setId(1L);
+
+        Map<String, List<RelationshipSummary>> adjacency = new LinkedHashMap<>();
+        adjacency.put("TRANSPORT", List.of(new RelationshipSummary(null, new EntitySummary(2L, null, null), List.of())));
+        adjacency.put("TRANSFER", List.of(new RelationshipSummary(null, new EntitySummary(3L, null, null), List.of())));
+        when(relationshipService.getStampedRelationshipsBySourceEntity(sourceEntity))
+                .thenReturn(new StampedRelationships("1.0", adjacency));
+    }
+
+    @Test
+    void testRepeatedLookupsAreServedFromCache() {
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        Map<String, List<RelationshipSummary>> filtered = cacheService
+                .getGroupedRelationshipsBySourceEntity(sourceEntity, Set.of(RelationshipType.TRANSFER));
+
+        assertEquals(Set.of("TRANSFER"), filtered.keySet());
+        verify(relationshipService, times(1)).getStampedRelationshipsBySourceEntity(sourceEntity);
+    }
+
+    @Test
+    void testRelationshipsChangedEventEvictsSource() {
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        cacheService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(Set.of(1L)));
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+
+        verify(relationshipService, times(2)).getStampedRelationshipsBySourceEntity(sourceEntity);
+    }
+
+    @Test
+    void testEmptyEventEvictsNothingAndGlobalEventEvictsAll() {
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        cacheService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(Set.of()));
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        verify(relationshipService, times(1)).getStampedRelationshipsBySourceEntity(sourceEntity);
+
+        cacheService.onRelationshipsChanged(EntityRelationshipsChangedEvent.global());
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        verify(relationshipService, times(2)).getStampedRelationshipsBySourceEntity(sourceEntity);
+    }
+
+    @Test
+    void testBatchLookupLoadsMissesInChunks() {
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        when(entityService.getEntitiesByIds(anyCollection())).thenReturn(List.of());
+        when(relationshipService.getSourceVersionStamps(anyCollection())).thenReturn(Map.of(1L, "1.0"));
+        when(relationshipService.getStampedRelationshipsBySourceEntities(anyCollection())).thenReturn(Map.of());
+
+        Map<Long, Map<String, List<RelationshipSummary>>> results = new LinkedHashMap<>();
+        cacheService.forEachGroupedRelationshipsBySourceEntityIds(List.of(1L, 2L, 3L, 4L, 2L), null, results::put);
+
+        assertEquals(Set.of(1L), results.keySet());
+        verify(entityService).getEntitiesByIds(eq(List.of(2L)));
+        verify(entityService).getEntitiesByIds(eq(List.of(3L, 4L)));
+    }
+
+    @Test
+    void testDestinationLookupFiltersPatientTypes() {
+        EntityModel destinationEntity = new EntityModel();
+        destinationEntity.setId(9L);
+        Map<String, List<RelationshipSummary>> adjacency = new LinkedHashMap<>();
+        adjacency.put("TRANSPORT", List.of(
+                new RelationshipSummary(new EntitySummary(1L, null, null), null,
+                        List.of(patient(PatientType.STROKE), patient(PatientType.STEMI))),
+                new RelationshipSummary(new EntitySummary(2L, null, null), null,
+                        List.of(patient(PatientType.GENERAL)))));
+        when(relationshipService.getGroupedRelationshipsByDestinationEntity(eq(destinationEntity), isNull()))
+                .thenReturn(adjacency);
+
+        Map<String, List<RelationshipSummary>> filtered = cacheService.getGroupedRelationshipsByDestinationEntity(
+                destinationEntity, null, Set.of(PatientType.STROKE));
+        cacheService.getGroupedRelationshipsByDestinationEntity(destinationEntity, null, null);
+        cacheService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(Set.of(1L), Set.of(9L)));
+        cacheService.getGroupedRelationshipsByDestinationEntity(destinationEntity, null, null);
+
+        assertEquals(1, filtered.get("TRANSPORT").size());
+        assertEquals(1L, filtered.get("TRANSPORT").get(0).source().id());
+        assertEquals(1, filtered.get("TRANSPORT").get(0).patientTypes().size());
+        verify(relationshipService, times(2)).getGroupedRelationshipsByDestinationEntity(eq(destinationEntity),
+                isNull());
+    }
+
+    private static Patient patient(PatientType patientType) {
+        Patient patient = new Patient();
+        patient.setPatientType(patientType);
+        return patient;
+    }
+
+    @Test
+    void testCachedRelationshipsAreReloadedAtNewVersionStamp() {
+        StampedRelationships cached = cacheService.getStampedRelationshipsBySourceEntity(sourceEntity, null, "1.0");
+        cacheService.getStampedRelationshipsBySourceEntity(sourceEntity, null, "1.0");
+        assertEquals("1.0", cached.versionStamp());
+        verify(relationshipService, times(1)).getStampedRelationshipsBySourceEntity(sourceEntity);
+
+        // changed through another instance, without an event on this one
+        when(relationshipService.getStampedRelationshipsBySourceEntity(sourceEntity))
+                .thenReturn(new StampedRelationships("2.0", Map.of()));
+        StampedRelationships reloaded = cacheService.getStampedRelationshipsBySourceEntity(sourceEntity,
+                Set.of(RelationshipType.TRANSFER), "2.0");
+
+        assertEquals("2.0", reloaded.versionStamp());
+        assertEquals(Map.of(), reloaded.relationships());
+        assertEquals("2.0", cacheService.getStampedRelationshipsBySourceEntity(sourceEntity, null, null)
+                .versionStamp());
+        verify(relationshipService, times(2)).getStampedRelationshipsBySourceEntity(sourceEntity);
+    }
+
+    @Test
+    void testBatchCachedRelationshipsCarryTheirVersionStamp() {
+        when(entityService.getEntitiesByIds(anyCollection())).thenReturn(List.of(sourceEntity));
+        when(relationshipService.getStampedRelationshipsBySourceEntities(anyCollection()))
+                .thenReturn(Map.of(1L, new StampedRelationships("1.0", Map.of())));
+        cacheService.forEachGroupedRelationshipsBySourceEntityIds(List.of(1L), null, (id, relationships) -> {
+        });
+
+        assertEquals("1.0", cacheService.getStampedRelationshipsBySourceEntity(sourceEntity, null, "1.0")
+                .versionStamp());
+        verify(relationshipService, never()).getStampedRelationshipsBySourceEntity(sourceEntity);
+    }
+
+    @Test
+    void testBatchLookupReloadsRelationshipsCachedAtOlderVersionStamp() {
+        cacheService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        when(relationshipService.getSourceVersionStamp(1L)).thenReturn("2.0");
+        when(entityService.getEntitiesByIds(anyCollection())).thenReturn(List.of(sourceEntity));
+        when(relationshipService.getStampedRelationshipsBySourceEntities(anyCollection()))
+                .thenReturn(Map.of(1L, new StampedRelationships("2.0", Map.of())));
+
+        // stamp held in memory
+        cacheService.getSourceVersionStamp(1L);
+        cacheService.forEachGroupedRelationshipsBySourceEntityIds(List.of(1L), null, (id, relationships) -> {
+        });
+        assertEquals("2.0", cacheService.getStampedRelationshipsBySourceEntity(sourceEntity, null, "2.0")
+                .versionStamp());
+
+        // stamp read for the whole chunk
+        cacheService.evictVersionStamps(List.of(1L));
+        when(relationshipService.getSourceVersionStamps(anyCollection())).thenReturn(Map.of(1L, "2.0"));
+        cacheService.forEachGroupedRelationshipsBySourceEntityIds(List.of(1L), null, (id, relationships) -> {
+        });
+
+        verify(relationshipService, times(1)).getStampedRelationshipsBySourceEntities(anyCollection());
+        verify(relationshipService, times(1)).getStampedRelationshipsBySourceEntity(sourceEntity);
+    }
+
+    @Test
+    void testVersionStampIsKeptInMemoryUntilEvicted() {
+        when(relationshipService.getSourceVersionStamp(1L)).thenReturn("1.0", "2.0", "3.0");
+        RelationshipChangeRepository changeRepository = mock(RelationshipChangeRepository.class);
+        RelationshipVersionStampPoller poller = new RelationshipVersionStampPoller(changeRepository, cacheService,
+                Duration.ZERO);
+        when(changeRepository.findLatestCommitSeq()).thenReturn(5L);
+        poller.poll();
+
+        assertEquals("1.0", cacheService.getSourceVersionStamp(1L));
+        assertEquals("1.0", cacheService.getSourceVersionStamp(1L));
+        verify(relationshipService, times(1)).getSourceVersionStamp(1L);
+
+        // changed through this instance
+        cacheService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(Set.of(1L)));
+        assertEquals("2.0", cacheService.getSourceVersionStamp(1L));
+
+        // changed through another instance, found in the change log
+        when(changeRepository.findLatestCommitSeq()).thenReturn(7L);
+        when(changeRepository.findSourceEntityIdsBetween(5L, 7L)).thenReturn(List.of(1L));
+        assertEquals(1, poller.poll());
+        assertEquals(0, poller.poll());
+        assertEquals("3.0", cacheService.getSourceVersionStamp(1L));
+        verify(relationshipService, times(3)).getSourceVersionStamp(1L);
+    }
+}
@@ -0,0 +1,123 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.controllers.EntityRelationshipController;
+import com.pulsara.fse.dto.RelationshipSnapshot;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.dto.StampedRelationships;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.service.EntityRelationshipCacheService;
+import com.pulsara.fse.service.EntityRelationshipService;
+import com.pulsara.fse.service.EntityService;
+import com.pulsara.fse.service.RelationshipMetrics;
+import com.pulsara.fse.service.RelationshipSnapshotService;
+import com.pulsara.fse.service.RelationshipTraversalService;
+
+public class EntityRelationshipControllerTests {
+
+    private EntityRelationshipCacheService cacheService;
+    private EntityService entityService;
+    private RelationshipSnapshotService snapshotService;
+    private EntityRelationshipController controller;
+
+    @BeforeEach
+    void setUp() {
+        cacheService = mock(EntityRelationshipCacheService.class);
+        entityService = mock(EntityService.class);
+        snapshotService = mock(RelationshipSnapshotService.class);
+        controller = new EntityRelationshipController(cacheService, mock(EntityRelationshipService.class),
+                mock(RelationshipTraversalService.class), entityService, RelationshipMetrics.noop(), snapshotService,
+                new ObjectMapper(), Duration.ofSeconds(30));
+        when(cacheService.getSourceVersionStamp(1L)).thenReturn("stamp.0.3");
+        EntityModel sourceEntity = new EntityModel();
+        sourceEntity.setId(1L);
+        when(entityService.getEntityById(1L)).thenReturn(sourceEntity);
+    }
+
+    @Test
+    void testResponseCarriesETagAndCacheControl() {
+        EntityModel sourceEntity = entityService.getEntityById(1L);
+        // relationships read after a change made since the stamp was checked
+        when(cacheService.getStampedRelationshipsBySourceEntity(eq(sourceEntity), any(), eq("stamp.0.3")))
+                .thenReturn(new StampedRelationships("stamp.0.4", Map.<String, List<RelationshipSummary>>of()));
+
+        ResponseEntity<?> response = controller.getRelationshipsBySourceEntity(1L, null, null,
+                null, null, mock(WebRequest.class));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"1-stamp.0.4-0\"", response.getHeaders().getETag());
+        assertEquals("max-age=0, public, s-maxage=30", response.getHeaders().getCacheControl());
+        assertEquals(List.of(HttpHeaders.ACCEPT), response.getHeaders().getVary());
+    }
+
+    @Test
+    void testMatchingIfNoneMatchIsAnsweredWithoutRelationshipLookups() {
+        WebRequest webRequest = mock(WebRequest.class);
+        when(webRequest.checkNotModified("\"1-stamp.0.3-0\"")).thenReturn(true);
+
+        ResponseEntity<?> response = controller.getRelationshipsBySourceEntity(1L, null, null,
+                null, null, webRequest);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("max-age=0, public, s-maxage=30", response.getHeaders().getCacheControl());
+        verify(cacheService, never()).getStampedRelationshipsBySourceEntity(any(), any(), any());
+    }
+
+    @Test
+    void testUnknownSourceIsNotFoundDespiteMatchingIfNoneMatch() {
+        WebRequest webRequest = mock(WebRequest.class);
+        when(webRequest.checkNotModified(anyString())).thenReturn(true);
+        when(cacheService.getSourceVersionStamp(2L)).thenReturn("stamp.0.3");
+
+        ResponseEntity<?> response = controller.getRelationshipsBySourceEntity(2L, null, null,
+                null, null, webRequest);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(webRequest, never()).checkNotModified(anyString());
+    }
+
+    @Test
+    void testRelationshipTypesSelectDistinctETags() {
+        WebRequest webRequest = mock(WebRequest.class);
+        when(webRequest.checkNotModified(anyString())).thenReturn(true);
+        controller.getRelationshipsBySourceEntity(1L, null, null, null, null, webRequest);
+        controller.getRelationshipsBySourceEntity(1L, Set.of("TRANSFER"), null, null, null, webRequest);
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(webRequest, times(2)).checkNotModified(captor.capture());
+        assertNotEquals(captor.getAllValues().get(0), captor.getAllValues().get(1));
+    }
+
+    @Test
+    void testCurrentSnapshotIsServedWithoutRelationshipLookups() {
+        RelationshipSnapshot snapshot = RelationshipSnapshot.of(1L, Set.of(), "stamp.0.3",
+                "{\"relationships\":{}}".getBytes());
+        when(snapshotService.getSnapshot(1L, Set.of(), "stamp.0.3")).thenReturn(snapshot);
+
+        ResponseEntity<?> response = controller.getRelationshipsBySourceEntity(1L, null, null, null, null,
+                mock(WebRequest.class));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(snapshot, response.getBody());
+        assertEquals("\"1-stamp.0.3-0\"", response.getHeaders().getETag());
+        verify(cacheService, never()).getStampedRelationshipsBySourceEntity(any(), any(), any());
+    }
+}
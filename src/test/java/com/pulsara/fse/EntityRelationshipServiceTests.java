@@ -1,17 +1,40 @@
 package com.pulsara.fse;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.graph.RelationshipEdgeRow;
+import com.pulsara.fse.graph.RelationshipGraph;
 import com.pulsara.fse.models.EntityModel;
 import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.models.EntityType;
 import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
 import com.pulsara.fse.models.RelationshipType;
 import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRelationshipRepositoryCustom.ProjectedRelationship;
 import com.pulsara.fse.service.EntityRelationshipService;
+import com.pulsara.fse.service.RelationshipGraphIndexService;
+import com.pulsara.fse.service.RelationshipMetrics;
+import com.pulsara.fse.service.RequestCoalescer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -23,7 +46,8 @@ public class EntityRelationshipServiceTests {
     @BeforeEach
     void setUp() {
         repository = mock(EntityRelationshipRepository.class);
-        service = new EntityRelationshipService(repository);
+        service = new EntityRelationshipService(repository, null, RelationshipMetrics.noop(),
+                RequestCoalescer.unmetered(), null, null, null);
     }
 
     @Test
@@ -63,4 +87,242 @@ public class EntityRelationshipServiceTests {
                 .findBySourceEntityAndDestinationEntityAndRelationshipType(
                         eq(sourceEntity), eq(destinationEntity), eq(relationshipType));
     }
+
+    @Test
+    void testGetGroupedRelationshipsBySourceEntityUsesSingleQuery() {
+        // Setup
+        EntityModel sourceEntity = entity(1L);
+        EntityModel destinationEntity = entity(2L);
+        when(repository.findWithDestinationBySourceEntity(eq(sourceEntity))).thenReturn(List.of(
+                relationship(sourceEntity, destinationEntity, RelationshipType.TRANSPORT, PatientType.STEMI),
+                relationship(sourceEntity, destinationEntity, RelationshipType.TRANSPORT, PatientType.STROKE),
+                relationship(sourceEntity, destinationEntity, RelationshipType.TRANSFER, PatientType.GENERAL)));
+
+        // Test
+        Map<String, List<RelationshipSummary>> grouped = service.getGroupedRelationshipsBySourceEntity(sourceEntity,
+                null);
+
+        // Verify
+        assertEquals(Set.of("TRANSPORT", "TRANSFER"), grouped.keySet());
+        assertEquals(1, grouped.get("TRANSPORT").size());
+        assertEquals(2, grouped.get("TRANSPORT").get(0).patientTypes().size());
+        verify(repository, times(1)).findWithDestinationBySourceEntity(eq(sourceEntity));
+        verify(repository, never()).findBySourceEntityAndDestinationEntityAndRelationshipType(any(), any(), any());
+    }
+
+    @Test
+    void testGetGroupedRelationshipsBySourceEntityRecordsStagesAndResultSize() {
+        // Setup
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        service = new EntityRelationshipService(repository, null,
+                new RelationshipMetrics(observationRegistry, meterRegistry), RequestCoalescer.unmetered(), null,
+                null, null);
+        EntityModel sourceEntity = entity(1L);
+        when(repository.findWithDestinationBySourceEntity(eq(sourceEntity))).thenReturn(List.of(
+                relationship(sourceEntity, entity(2L), RelationshipType.TRANSPORT, PatientType.STEMI),
+                relationship(sourceEntity, entity(3L), RelationshipType.TRANSFER, PatientType.GENERAL)));
+
+        // Test
+        service.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+
+        // Verify
+        for (String stage : List.of(RelationshipMetrics.QUERY, RelationshipMetrics.GROUP)) {
+            assertEquals(1, meterRegistry.get(RelationshipMetrics.STAGE)
+                    .tags("operation", RelationshipMetrics.BY_SOURCE, "stage", stage).timer().count());
+        }
+        DistributionSummary resultSize = meterRegistry.get(RelationshipMetrics.RESULT_SIZE)
+                .tag("operation", RelationshipMetrics.BY_SOURCE).summary();
+        assertEquals(1, resultSize.count());
+        assertEquals(2.0, resultSize.totalAmount());
+    }
+
+    @Test
+    void testGetGroupedRelationshipsByDestinationEntityGroupsBySource() {
+        // Setup
+        EntityModel destinationEntity = entity(9L);
+        EntityModel firstSource = entity(1L);
+        EntityModel secondSource = entity(2L);
+        when(repository.findWithSourceByDestinationEntity(eq(destinationEntity))).thenReturn(List.of(
+                relationship(firstSource, destinationEntity, RelationshipType.TRANSPORT, PatientType.STEMI),
+                relationship(secondSource, destinationEntity, RelationshipType.TRANSPORT, PatientType.STEMI),
+                relationship(firstSource, destinationEntity, RelationshipType.TRANSPORT, PatientType.STROKE)));
+
+        // Test
+        Map<String, List<RelationshipSummary>> grouped = service
+                .getGroupedRelationshipsByDestinationEntity(destinationEntity, null);
+
+        // Verify
+        List<RelationshipSummary> transport = grouped.get("TRANSPORT");
+        assertEquals(2, transport.size());
+        assertEquals(1L, transport.get(0).source().id());
+        assertEquals(9L, transport.get(0).destination().id());
+        assertEquals(2, transport.get(0).patientTypes().size());
+        verify(repository, times(1)).findWithSourceByDestinationEntity(eq(destinationEntity));
+    }
+
+    @Test
+    void testStreamGroupedRelationshipsMergesAdjacentRows() {
+        // Setup
+        EntityModel sourceEntity = entity(1L);
+        EntityModel destinationEntity = entity(2L);
+        when(repository.streamWithDestinationBySourceEntity(eq(sourceEntity))).thenReturn(Stream.of(
+                relationship(sourceEntity, destinationEntity, RelationshipType.TRANSFER, PatientType.GENERAL),
+                relationship(sourceEntity, destinationEntity, RelationshipType.TRANSPORT, PatientType.STEMI),
+                relationship(sourceEntity, destinationEntity, RelationshipType.TRANSPORT, PatientType.STROKE)));
+
+        // Test
+        List<String> types = new ArrayList<>();
+        List<Integer> patientCounts = new ArrayList<>();
+        service.streamGroupedRelationshipsBySourceEntity(sourceEntity, null, (type, mappedRelationship) -> {
+            types.add(type);
+            patientCounts.add(mappedRelationship.patientTypes().size());
+        });
+
+        // Verify
+        assertEquals(List.of("TRANSFER", "TRANSPORT"), types);
+        assertEquals(List.of(1, 2), patientCounts);
+    }
+
+    @Test
+    void testStreamGroupedRelationshipsFiltersTypesInQuery() {
+        // Setup
+        EntityModel sourceEntity = entity(1L);
+        EntityModel destinationEntity = entity(2L);
+        Set<RelationshipType> relationshipTypes = Set.of(RelationshipType.TRANSPORT);
+        when(repository.streamWithDestinationBySourceEntityAndRelationshipTypes(eq(sourceEntity),
+                eq(relationshipTypes))).thenReturn(Stream.of(
+                        relationship(sourceEntity, destinationEntity, RelationshipType.TRANSPORT, PatientType.STEMI)));
+
+        // Test
+        List<String> types = new ArrayList<>();
+        service.streamGroupedRelationshipsBySourceEntity(sourceEntity, relationshipTypes,
+                (type, mappedRelationship) -> types.add(type));
+
+        // Verify
+        assertEquals(List.of("TRANSPORT"), types);
+        verify(repository, never()).streamWithDestinationBySourceEntity(any());
+    }
+
+    @Test
+    void testGetRelationshipPageBySourceEntityReturnsNextCursor() {
+        // Setup
+        EntityModel sourceEntity = entity(1L);
+        when(repository.findProjectedPageBySourceEntityId(eq(1L), isNull(), eq(10L), eq(3), eq(true), eq(false)))
+                .thenReturn(List.of(
+                        new ProjectedRelationship(11L, RelationshipType.TRANSPORT, 2L, "Entity 2",
+                                EntityType.HOSPITAL, null, null, null),
+                        new ProjectedRelationship(12L, RelationshipType.TRANSPORT, 3L, "Entity 3",
+                                EntityType.HOSPITAL, null, null, null),
+                        new ProjectedRelationship(13L, RelationshipType.TRANSFER, 2L, "Entity 2",
+                                EntityType.HOSPITAL, null, null, null)));
+
+        // Test
+        KeysetPage<Map<String, List<RelationshipSummary>>> page = service.getRelationshipPageBySourceEntity(
+                sourceEntity, null, 10L, 2, Set.of("destination"));
+
+        // Verify
+        assertEquals(Set.of("TRANSPORT"), page.content().keySet());
+        RelationshipSummary first = page.content().get("TRANSPORT").get(0);
+        assertNull(first.source());
+        assertNull(first.patientTypes());
+        assertEquals(2L, first.destination().id());
+        assertEquals(12L, KeysetPage.decodeCursor(page.nextCursor()));
+    }
+
+    @Test
+    void testRelationshipSummaryJsonMatchesMappedRelationship() throws Exception {
+        // Setup
+        EntityModel sourceEntity = entity(1L);
+        EntityModel destinationEntity = entity(2L);
+        EntityRelationshipModel relationship = relationship(sourceEntity, destinationEntity,
+                RelationshipType.TRANSPORT, PatientType.STEMI);
+        when(repository.findWithDestinationBySourceEntity(eq(sourceEntity))).thenReturn(List.of(relationship));
+
+        // the map based shape the endpoint returned before the summaries
+        Map<String, Object> mappedSource = new LinkedHashMap<>();
+        mappedSource.put("id", 1L);
+        mappedSource.put("name", "Entity 1");
+        mappedSource.put("type", EntityType.HOSPITAL);
+        Map<String, Object> mappedDestination = new LinkedHashMap<>();
+        mappedDestination.put("id", 2L);
+        mappedDestination.put("name", "Entity 2");
+        mappedDestination.put("type", EntityType.HOSPITAL);
+        Map<String, Object> mappedRelationship = new LinkedHashMap<>();
+        mappedRelationship.put("source", mappedSource);
+        mappedRelationship.put("destination", mappedDestination);
+        mappedRelationship.put("patient_types", List.of(relationship.getPatient()));
+
+        // Test
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = objectMapper.writeValueAsString(service.getGroupedRelationshipsBySourceEntity(sourceEntity,
+                null));
+
+        // Verify
+        assertEquals(objectMapper.writeValueAsString(Map.of("TRANSPORT", Set.of(mappedRelationship))), json);
+    }
+
+    @Test
+    void testGraphIndexServesSameJsonAsQuery() throws Exception {
+        // Setup
+        EntityModel sourceEntity = entity(1L);
+        EntityModel destinationEntity = entity(2L);
+        EntityRelationshipModel withoutPatient = relationship(sourceEntity, destinationEntity,
+                RelationshipType.TRANSFER, null);
+        // Hibernate maps a relationship without any patient column to a null patient
+        withoutPatient.setPatient(null);
+        when(repository.findWithDestinationBySourceEntity(eq(sourceEntity))).thenReturn(List.of(
+                relationship(sourceEntity, destinationEntity, RelationshipType.TRANSPORT, PatientType.STEMI),
+                withoutPatient));
+        RelationshipGraph graph = new RelationshipGraph.Builder()
+                .addEntity(sourceEntity)
+                .addEntity(destinationEntity)
+                .addRow(new RelationshipEdgeRow(1L, 2L, RelationshipType.TRANSPORT, PatientType.STEMI, null, null))
+                .addRow(new RelationshipEdgeRow(1L, 2L, RelationshipType.TRANSFER, null, null, null))
+                .build();
+        RelationshipGraphIndexService indexService = mock(RelationshipGraphIndexService.class);
+        when(indexService.isEnabled()).thenReturn(true);
+        when(indexService.getGraphForSource(1L, 0)).thenReturn(graph);
+        EntityRelationshipService indexedService = new EntityRelationshipService(repository, indexService,
+                RelationshipMetrics.noop(), RequestCoalescer.unmetered(), null, null, null);
+
+        // Test
+        ObjectMapper objectMapper = new ObjectMapper();
+        String queried = objectMapper.writeValueAsString(service.getGroupedRelationshipsBySourceEntity(sourceEntity,
+                null));
+        String indexed = objectMapper.writeValueAsString(indexedService.getGroupedRelationshipsBySourceEntity(
+                sourceEntity, null));
+
+        // Verify
+        assertEquals(queried, indexed);
+        assertTrue(indexed.contains("\"patient_types\":[null]"), indexed);
+    }
+
+    @Test
+    void testEntityJsonOmitsVersionColumns() throws Exception {
+        // the entities endpoints serialize the model as is
+        assertEquals("{\"id\":1,\"name\":\"Entity 1\",\"entityType\":\"HOSPITAL\"}",
+                new ObjectMapper().writeValueAsString(entity(1L)));
+    }
+
+    private static EntityModel entity(Long id) {
+        EntityModel entity = new EntityModel();
+        entity.setId(id);
+        entity.setName("Entity " + id);
+        entity.setEntityType(EntityType.HOSPITAL);
+        return entity;
+    }
+
+    private static EntityRelationshipModel relationship(EntityModel sourceEntity, EntityModel destinationEntity,
+            RelationshipType relationshipType, PatientType patientType) {
+        Patient patient = new Patient();
+        patient.setPatientType(patientType);
+        EntityRelationshipModel relationship = new EntityRelationshipModel();
+        relationship.setSourceEntity(sourceEntity);
+        relationship.setDestinationEntity(destinationEntity);
+        relationship.setRelationshipType(relationshipType);
+        relationship.setPatient(patient);
+        return relationship;
+    }
 }
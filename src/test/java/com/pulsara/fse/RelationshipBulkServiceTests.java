@@ -0,0 +1,119 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.ImportResult;
+import com.pulsara.fse.dto.RelationshipCsv;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.graph.RelationshipEdgeRow;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+import com.pulsara.fse.repository.RelationshipSummaryRepository;
+import com.pulsara.fse.service.EntityRelationshipsChangedEvent;
+import com.pulsara.fse.service.RelationshipBulkService;
+import com.pulsara.fse.service.RelationshipChangeLogService;
+import com.pulsara.fse.service.RelationshipSummaryService;
+import com.pulsara.fse.service.RelationshipBulkService.Format;
+
+public class RelationshipBulkServiceTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private RelationshipBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:bulk;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO TBL_ENTITIES (id, name, entity_type) VALUES (1, 'EMS 1', 'EMS'), "
+                + "(2, 'Hospital 2', 'HOSPITAL')");
+
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new RelationshipBulkService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                mock(EntityRelationshipRepository.class), new ObjectMapper(), eventPublisher,
+                new RelationshipChangeLogService(mock(RelationshipChangeRepository.class),
+                        new NamedParameterJdbcTemplate(jdbcTemplate)),
+                new RelationshipSummaryService(mock(RelationshipSummaryRepository.class),
+                        new NamedParameterJdbcTemplate(jdbcTemplate), new ObjectMapper()),
+                2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testCsvImportIsWrittenInChunks() {
+        String csv = RelationshipCsv.HEADER + "\n"
+                + "1,2,TRANSPORT,STROKE,555-0100,\n"
+                + "1,2,TRANSPORT,STEMI,,\"Call ahead, then \"\"page\"\"\nthe team\"\n"
+                + "2,1,TRANSFER,,,\n";
+
+        ImportResult result = service.importRelationships(stream(csv), Format.CSV);
+
+        assertEquals(3, result.importedRows());
+        assertEquals(2, result.chunks());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TBL_ENTITY_RELATIONSHIPS", Integer.class));
+        assertEquals("Call ahead, then \"page\"\nthe team", jdbcTemplate.queryForObject(
+                "SELECT instructions FROM TBL_ENTITY_RELATIONSHIPS WHERE patient_type = 'STEMI'", String.class));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM TBL_RELATIONSHIP_CHANGES WHERE operation = 'INSERT'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM TBL_RELATIONSHIP_CHANGES WHERE commit_seq IS NULL", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT relationship_count FROM TBL_RELATIONSHIP_SUMMARIES WHERE source_entity_id = 1", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT relationship_count FROM TBL_RELATIONSHIP_SUMMARIES WHERE source_entity_id = 2", Integer.class));
+        verify(eventPublisher).publishEvent(any(EntityRelationshipsChangedEvent.class));
+    }
+
+    @Test
+    void testInvalidLineKeepsCommittedChunks() {
+        String ndjson = "{\"sourceEntityId\":1,\"destinationEntityId\":2,\"relationshipType\":\"TRANSPORT\"}\n"
+                + "{\"sourceEntityId\":2,\"destinationEntityId\":1,\"relationshipType\":\"TRANSFER\"}\n"
+                + "{\"sourceEntityId\":1,\"destinationEntityId\":2,\"relationshipType\":\"UNKNOWN\"}\n";
+
+        FSEServiceException e = assertThrows(FSEServiceException.class,
+                () -> service.importRelationships(stream(ndjson), Format.NDJSON));
+
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+        assertTrue(e.getMessage().contains("2 rows were imported"), e.getMessage());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TBL_ENTITY_RELATIONSHIPS", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TBL_RELATIONSHIP_CHANGES", Integer.class));
+    }
+
+    @Test
+    void testCsvFormatRoundTrips() {
+        RelationshipEdgeRow row = new RelationshipEdgeRow(1L, 2L, RelationshipType.MUTUAL_AID, PatientType.GENERAL,
+                null, "a, \"b\"");
+
+        assertEquals(row, RelationshipCsv.parse(RelationshipCsv.format(row)));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
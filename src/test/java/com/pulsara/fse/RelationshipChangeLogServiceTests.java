@@ -0,0 +1,143 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pulsara.fse.dto.ChangeFeedPage;
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.models.ChangeOperation;
+import com.pulsara.fse.models.RelationshipChangeModel;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+import com.pulsara.fse.service.RelationshipChangeLogService;
+
+public class RelationshipChangeLogServiceTests {
+
+    private RelationshipChangeRepository repository;
+    private RelationshipChangeLogService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RelationshipChangeRepository.class);
+        service = new RelationshipChangeLogService(repository, mock(NamedParameterJdbcTemplate.class));
+    }
+
+    @Test
+    void testPageKeepsLastChangePerRelationship() {
+        List<RelationshipChangeModel> changes = List.of(
+                change(11L, 100L, ChangeOperation.INSERT),
+                change(12L, 101L, ChangeOperation.INSERT),
+                change(13L, 100L, ChangeOperation.DELETE),
+                change(14L, 102L, ChangeOperation.UPDATE));
+        when(repository.findAfter(eq(10L), eq(Limit.of(4)))).thenReturn(changes);
+
+        ChangeFeedPage page = service.getChanges(KeysetPage.encodeCursor(10L), null, 3);
+
+        assertEquals(List.of(101L, 100L), page.changes().stream().map(c -> c.relationshipId()).toList());
+        assertEquals(ChangeOperation.DELETE, page.changes().get(1).operation());
+        assertEquals(13L, KeysetPage.decodeCursor(page.nextToken()));
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void testNoChangesKeepsToken() {
+        when(repository.findBySourceEntityIdAfter(eq(1L), eq(20L), any())).thenReturn(List.of());
+        when(repository.findLatestCommitSeq()).thenReturn(25L);
+
+        ChangeFeedPage page = service.getChanges(KeysetPage.encodeCursor(20L), 1L, 100);
+
+        assertTrue(page.changes().isEmpty());
+        assertEquals(20L, KeysetPage.decodeCursor(page.nextToken()));
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void testTokenAheadOfLogRequiresFullSync() {
+        when(repository.findAfter(eq(30L), any())).thenReturn(List.of());
+        when(repository.findLatestCommitSeq()).thenReturn(25L);
+
+        FSEServiceException e = assertThrows(FSEServiceException.class,
+                () -> service.getChanges(KeysetPage.encodeCursor(30L), null, 100));
+
+        assertEquals(HttpStatus.GONE, e.getStatus());
+    }
+
+    @Test
+    void testInterleavedChunkTransactionsAreDeliveredInCommitOrder() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:changes;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            jdbcTemplate.update("INSERT INTO TBL_ENTITIES (id, name, entity_type) VALUES (1, 'EMS 1', 'EMS')");
+            jdbcTemplate.update("INSERT INTO TBL_ENTITY_RELATIONSHIPS (id, source_entity_id, destination_entity_id, "
+                    + "relationship_type) VALUES (100, 1, 1, 'TRANSPORT'), (101, 1, 1, 'TRANSFER')");
+            // the change log is read from the table like the JPA repository would
+            when(repository.findAfter(anyLong(), any())).thenAnswer(invocation -> jdbcTemplate.query(
+                    "SELECT commit_seq, relationship_id FROM TBL_RELATIONSHIP_CHANGES WHERE commit_seq > ? "
+                            + "ORDER BY commit_seq",
+                    (resultSet, row) -> change(resultSet.getLong(1), resultSet.getLong(2), ChangeOperation.INSERT),
+                    (Long) invocation.getArgument(0)));
+            service = new RelationshipChangeLogService(repository, new NamedParameterJdbcTemplate(jdbcTemplate));
+            TransactionTemplate transactionTemplate = new TransactionTemplate(
+                    new DataSourceTransactionManager(dataSource));
+
+            // the first chunk takes the lower change log ID but commits after the second one
+            CountDownLatch recorded = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Thread first = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+                service.recordChanges(ChangeOperation.INSERT, List.of(100L));
+                recorded.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            first.start();
+            recorded.await();
+            transactionTemplate.executeWithoutResult(
+                    status -> service.recordChanges(ChangeOperation.INSERT, List.of(101L)));
+
+            ChangeFeedPage page = service.getChanges(null, null, 100);
+            assertEquals(List.of(101L), page.changes().stream().map(c -> c.relationshipId()).toList());
+
+            release.countDown();
+            first.join();
+            ChangeFeedPage next = service.getChanges(page.nextToken(), null, 100);
+            assertEquals(List.of(100L), next.changes().stream().map(c -> c.relationshipId()).toList());
+            assertTrue(jdbcTemplate.queryForObject(
+                    "SELECT MIN(id) FROM TBL_RELATIONSHIP_CHANGES WHERE relationship_id = 100", Long.class)
+                    < jdbcTemplate.queryForObject(
+                            "SELECT MIN(id) FROM TBL_RELATIONSHIP_CHANGES WHERE relationship_id = 101", Long.class));
+        } finally {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static RelationshipChangeModel change(long id, long relationshipId, ChangeOperation operation) {
+        RelationshipChangeModel change = mock(RelationshipChangeModel.class);
+        when(change.getCommitSeq()).thenReturn(id);
+        when(change.getRelationshipId()).thenReturn(relationshipId);
+        when(change.getOperation()).thenReturn(operation);
+        return change;
+    }
+}
@@ -0,0 +1,270 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.dto.StampedRelationships;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRelationshipRepositoryImpl;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+import com.pulsara.fse.service.EntityRelationshipService;
+import com.pulsara.fse.service.RelationshipMetrics;
+import com.pulsara.fse.service.RequestCoalescer;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Counts the SQL statements each relationship lookup runs against an embedded
+ * H2 database, with the second-level and query caches off so that every read
+ * reaches the database. Each lookup must load its rows and the entities it maps
+ * with a single select, whatever the number of rows.
+ */
+public class RelationshipFetchPlanTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+    private TransactionTemplate transactionTemplate;
+    private EntityRelationshipRepository repository;
+    private EntityRelationshipService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:fetch-plan;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO TBL_ENTITIES (id, name, entity_type) VALUES (1, 'EMS 1', 'EMS'), "
+                + "(2, 'Hospital 2', 'HOSPITAL'), (3, 'Hospital 3', 'HOSPITAL'), (4, 'Hospital 4', 'HOSPITAL'), "
+                + "(5, 'EMS 5', 'EMS')");
+        jdbcTemplate.update("INSERT INTO TBL_ENTITY_RELATIONSHIPS "
+                + "(source_entity_id, destination_entity_id, relationship_type, patient_type) VALUES "
+                + "(1, 2, 'TRANSPORT', 'STROKE'), (1, 2, 'TRANSPORT', 'STEMI'), (1, 3, 'TRANSFER', 'GENERAL'), "
+                + "(1, 4, 'TRANSPORT', 'STROKE'), (5, 2, 'TRANSPORT', 'STEMI'), (5, 3, 'MUTUAL_AID', 'GENERAL')");
+
+        Properties applicationProperties = PropertiesLoaderUtils
+                .loadProperties(new ClassPathResource("application.properties"));
+        Map<String, Object> jpaProperties = new HashMap<>();
+        applicationProperties.stringPropertyNames().stream()
+                .filter(name -> name.startsWith("spring.jpa.properties."))
+                .forEach(name -> jpaProperties.put(name.substring("spring.jpa.properties.".length()),
+                        applicationProperties.getProperty(name)));
+        jpaProperties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        jpaProperties.put("hibernate.cache.use_second_level_cache", "false");
+        jpaProperties.put("hibernate.cache.use_query_cache", "false");
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.pulsara.fse.models");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        EntityRelationshipRepositoryImpl repositoryImpl = new EntityRelationshipRepositoryImpl();
+        ReflectionTestUtils.setField(repositoryImpl, "entityManager", entityManager);
+        repository = new JpaRepositoryFactory(entityManager).getRepository(EntityRelationshipRepository.class,
+                RepositoryFragments.just(repositoryImpl));
+        service = new EntityRelationshipService(repository, null, RelationshipMetrics.noop(),
+                RequestCoalescer.unmetered(), transactionManager, null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testGroupedLookupBySourceRunsOneStatement() {
+        EntityModel sourceEntity = entity(1L);
+
+        Map<String, List<RelationshipSummary>> grouped = countStatements(1,
+                () -> service.getGroupedRelationshipsBySourceEntity(sourceEntity, null));
+
+        assertEquals(List.of("Hospital 2", "Hospital 4"), grouped.get("TRANSPORT").stream()
+                .map(relationship -> relationship.destination().name()).toList());
+        assertEquals("EMS 1", grouped.get("TRANSFER").get(0).source().name());
+        countStatements(1, () -> service.getGroupedRelationshipsBySourceEntity(sourceEntity,
+                Set.of(RelationshipType.TRANSFER)));
+    }
+
+    @Test
+    void testGroupedLookupByDestinationRunsOneStatement() {
+        EntityModel destinationEntity = entity(2L);
+
+        Map<String, List<RelationshipSummary>> grouped = countStatements(1,
+                () -> service.getGroupedRelationshipsByDestinationEntity(destinationEntity, null));
+
+        assertEquals(List.of("EMS 1", "EMS 5"), grouped.get("TRANSPORT").stream()
+                .map(relationship -> relationship.source().name()).toList());
+        assertEquals("Hospital 2", grouped.get("TRANSPORT").get(1).destination().name());
+        countStatements(1, () -> service.getGroupedRelationshipsByDestinationEntity(destinationEntity,
+                Set.of(RelationshipType.TRANSPORT)));
+    }
+
+    @Test
+    void testBatchLookupBySourcesRunsOneStatement() {
+        List<EntityModel> sourceEntities = List.of(entity(1L), entity(5L));
+
+        Map<Long, Map<String, List<RelationshipSummary>>> grouped = countStatements(1,
+                () -> transactionTemplate.execute(status -> service.getGroupedRelationshipsBySourceEntities(
+                        sourceEntities)));
+
+        assertEquals("EMS 5", grouped.get(5L).get("MUTUAL_AID").get(0).source().name());
+        assertEquals("Hospital 3", grouped.get(5L).get("MUTUAL_AID").get(0).destination().name());
+    }
+
+    @Test
+    void testStampedBatchLookupBySourcesMatchesSingleLookups() {
+        jdbcTemplate.update("INSERT INTO TBL_RELATIONSHIP_CHANGES (relationship_id, operation, version, "
+                + "source_entity_id, commit_seq) VALUES (1, 'INSERT', 0, 1, 3), (2, 'INSERT', 0, 1, 7), "
+                + "(5, 'INSERT', 0, 5, 4)");
+        RelationshipChangeRepository changeRepository = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory))
+                .getRepository(RelationshipChangeRepository.class);
+        EntityRelationshipService stampedService = new EntityRelationshipService(repository, null,
+                RelationshipMetrics.noop(), RequestCoalescer.unmetered(),
+                new JpaTransactionManager(entityManagerFactory), null, changeRepository);
+        List<EntityModel> sourceEntities = List.of(entity(1L), entity(5L), entity(2L));
+
+        Map<Long, StampedRelationships> stamped = countStatements(2,
+                () -> stampedService.getStampedRelationshipsBySourceEntities(sourceEntities));
+
+        for (EntityModel sourceEntity : sourceEntities) {
+            StampedRelationships single = stampedService.getStampedRelationshipsBySourceEntity(sourceEntity);
+            assertEquals(single.versionStamp(), stamped.get(sourceEntity.getId()).versionStamp());
+            assertEquals(single.relationships().keySet(), stamped.get(sourceEntity.getId()).relationships().keySet());
+        }
+        assertEquals("7.0", stamped.get(1L).versionStamp());
+        assertEquals("0.0", stamped.get(2L).versionStamp());
+    }
+
+    @Test
+    void testStreamedLookupBySourceRunsOneStatement() {
+        EntityModel sourceEntity = entity(1L);
+        List<RelationshipSummary> streamed = new ArrayList<>();
+
+        countStatements(1, () -> transactionTemplate.execute(status -> {
+            service.streamGroupedRelationshipsBySourceEntity(sourceEntity, null,
+                    (type, relationship) -> streamed.add(relationship));
+            return null;
+        }));
+
+        assertEquals(List.of("Hospital 3", "Hospital 2", "Hospital 4"), streamed.stream()
+                .map(relationship -> relationship.destination().name()).toList());
+    }
+
+    @Test
+    void testPageLookupBySourceRunsOneStatement() {
+        EntityModel sourceEntity = entity(1L);
+
+        countStatements(1, () -> service.getRelationshipPageBySourceEntity(sourceEntity, null, null, 10, null));
+        countStatements(1, () -> service.getRelationshipPageBySourceEntity(sourceEntity, null, null, 10,
+                List.of("destination")));
+    }
+
+    @Test
+    void testPageKeepsRowsWithoutDestinationOrPatient() {
+        jdbcTemplate.update("INSERT INTO TBL_ENTITY_RELATIONSHIPS (source_entity_id, destination_entity_id, "
+                + "relationship_type) VALUES (5, NULL, 'TRANSFER'), (5, 4, 'TRANSFER')");
+        EntityModel sourceEntity = entity(5L);
+
+        Map<String, List<RelationshipSummary>> all = service.getRelationshipPageBySourceEntity(sourceEntity, null,
+                null, 10, null).content();
+        Map<String, List<RelationshipSummary>> withoutDestination = service.getRelationshipPageBySourceEntity(sourceEntity,
+                null, null, 10, List.of("patient_types")).content();
+
+        assertEquals(2, all.get("TRANSFER").size());
+        assertEquals(2, withoutDestination.get("TRANSFER").size());
+        assertNull(all.get("TRANSFER").get(0).destination());
+        assertEquals("Hospital 4", all.get("TRANSFER").get(1).destination().name());
+        assertEquals(Collections.singletonList(null), all.get("TRANSFER").get(1).patientTypes());
+    }
+
+    @Test
+    void testRelationshipsBySourceAreReturnedWithEntities() {
+        EntityModel sourceEntity = entity(1L);
+
+        // read after the lookup, outside any persistence context
+        List<EntityRelationshipModel> relationships = countStatements(1,
+                () -> repository.findBySourceEntity(sourceEntity));
+        List<EntityRelationshipModel> transfers = countStatements(1,
+                () -> repository.findBySourceEntityAndRelationshipTypes(sourceEntity,
+                        Set.of(RelationshipType.TRANSFER)));
+
+        assertEquals(4, relationships.size());
+        relationships.forEach(relationship -> {
+            assertEquals("EMS 1", relationship.getSourceEntity().getName());
+            assertEquals("Hospital " + relationship.getDestinationEntity().getId(),
+                    relationship.getDestinationEntity().getName());
+        });
+        assertEquals("Hospital 3", transfers.get(0).getDestinationEntity().getName());
+    }
+
+    @Test
+    void testPatientLookupDoesNotLoadEntities() {
+        EntityModel sourceEntity = entity(1L);
+        EntityModel destinationEntity = entity(2L);
+
+        assertEquals(2, countStatements(1, () -> service.getPatientsBySourceAndDestinationAndRelationshipType(
+                sourceEntity, destinationEntity, RelationshipType.TRANSPORT)).size());
+    }
+
+    private <T> T countStatements(long expected, Supplier<T> lookup) {
+        statistics.clear();
+        T result = lookup.get();
+        assertEquals(expected, statistics.getPrepareStatementCount());
+        return result;
+    }
+
+    private EntityModel entity(Long id) {
+        // detached, like the entities the controllers pass in from the entity cache
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(EntityModel.class, id);
+        } finally {
+            entityManager.close();
+        }
+    }
+}
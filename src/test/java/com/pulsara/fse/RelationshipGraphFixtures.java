@@ -0,0 +1,47 @@
+package com.pulsara.fse;
+
+import java.util.List;
+
+import com.pulsara.fse.graph.RelationshipEdgeRow;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+
+/**
+ * Entities, relationship rows and relationship graphs shared by the tests of
+ * the graph index and the services traversing it.
+ */
+final class RelationshipGraphFixtures {
+
+    private RelationshipGraphFixtures() {
+    }
+
+    static EntityModel entity(Long id, EntityType entityType) {
+        EntityModel entity = new EntityModel();
+        entity.setId(id);
+        entity.setName("Entity " + id);
+        entity.setEntityType(entityType);
+        return entity;
+    }
+
+    static RelationshipEdgeRow row(Long sourceId, Long destinationId, RelationshipType relationshipType,
+            PatientType patientType) {
+        return row(sourceId, destinationId, relationshipType, patientType, null);
+    }
+
+    static RelationshipEdgeRow row(Long sourceId, Long destinationId, RelationshipType relationshipType,
+            PatientType patientType, String contactPhone) {
+        return new RelationshipEdgeRow(sourceId, destinationId, relationshipType, patientType, contactPhone, null);
+    }
+
+    static RelationshipGraph graph(List<EntityModel> entities, RelationshipEdgeRow... rows) {
+        RelationshipGraph.Builder builder = new RelationshipGraph.Builder();
+        entities.forEach(builder::addEntity);
+        for (RelationshipEdgeRow row : rows) {
+            builder.addRow(row);
+        }
+        return builder.build();
+    }
+}
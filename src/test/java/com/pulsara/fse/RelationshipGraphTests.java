@@ -0,0 +1,141 @@
+package com.pulsara.fse;
+
+import static com.pulsara.fse.RelationshipGraphFixtures.entity;
+import static com.pulsara.fse.RelationshipGraphFixtures.graph;
+import static com.pulsara.fse.RelationshipGraphFixtures.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRepository;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+import com.pulsara.fse.service.EntityRelationshipsChangedEvent;
+import com.pulsara.fse.service.RelationshipGraphIndexService;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class RelationshipGraphTests {
+
+    @Test
+    void testRowsAreBucketedAndMergedByDestination() {
+        RelationshipGraph graph = graph(List.of(entity(30L, EntityType.HOSPITAL), entity(10L, EntityType.EMS),
+                entity(20L, EntityType.HOSPITAL)),
+                row(10L, 30L, RelationshipType.TRANSPORT, PatientType.STROKE),
+                row(10L, 20L, RelationshipType.TRANSPORT, PatientType.STEMI),
+                row(10L, 30L, RelationshipType.TRANSPORT, PatientType.STEMI),
+                row(10L, 20L, RelationshipType.TRANSFER, PatientType.GENERAL),
+                row(10L, 99L, RelationshipType.TRANSPORT, PatientType.GENERAL));
+
+        assertEquals(3, graph.nodeCount());
+        assertEquals(3, graph.edgeCount());
+
+        int source = graph.indexOf(10L);
+        assertEquals(EntityType.EMS, graph.entityType(source));
+        assertEquals(-1, graph.indexOf(99L));
+
+        int start = graph.edgeStart(source, RelationshipType.TRANSPORT);
+        assertEquals(2, graph.edgeEnd(source, RelationshipType.TRANSPORT) - start);
+        assertEquals(20L, graph.entityId(graph.target(start)));
+        assertEquals(30L, graph.entityId(graph.target(start + 1)));
+        assertEquals(2, graph.patients(start + 1).size());
+        assertTrue(graph.accepts(start + 1, PatientType.STROKE));
+        assertTrue(graph.accepts(start + 1, PatientType.STEMI));
+        assertFalse(graph.accepts(start + 1, PatientType.GENERAL));
+
+        assertEquals(0, graph.edgeEnd(source, RelationshipType.MUTUAL_AID)
+                - graph.edgeStart(source, RelationshipType.MUTUAL_AID));
+    }
+
+    @Test
+    void testIncomingEdgesAreIndexedBySource() {
+        RelationshipGraph graph = new RelationshipGraph.Builder()
+                .addEntity(entity(30L, EntityType.HOSPITAL))
+                .addEntity(entity(10L, EntityType.EMS))
+                .addEntity(entity(20L, EntityType.HOSPITAL))
+                .addRow(row(20L, 30L, RelationshipType.TRANSFER, PatientType.STROKE))
+                .addRow(row(10L, 30L, RelationshipType.TRANSPORT, PatientType.STROKE))
+                .addRow(row(10L, 30L, RelationshipType.TRANSFER, PatientType.STEMI))
+                .addRow(row(10L, 30L, RelationshipType.TRANSFER, PatientType.GENERAL))
+                .build();
+
+        int destination = graph.indexOf(30L);
+        int start = graph.reverseEdgeStart(destination, RelationshipType.TRANSFER);
+        assertEquals(2, graph.reverseEdgeEnd(destination, RelationshipType.TRANSFER) - start);
+        assertEquals(10L, graph.entityId(graph.reverseSource(start)));
+        assertEquals(20L, graph.entityId(graph.reverseSource(start + 1)));
+        assertEquals(2, graph.patients(graph.reverseEdge(start)).size());
+        assertEquals(destination, graph.target(graph.reverseEdge(start)));
+        assertEquals(1, graph.reverseEdgeEnd(destination, RelationshipType.TRANSPORT)
+                - graph.reverseEdgeStart(destination, RelationshipType.TRANSPORT));
+        assertEquals(0, graph.reverseEdgeEnd(graph.indexOf(10L), RelationshipType.TRANSPORT)
+                - graph.reverseEdgeStart(graph.indexOf(10L), RelationshipType.TRANSPORT));
+    }
+
+    @Test
+    void testChangesAreRebuiltInBackgroundWhileServingPreviousGraph() throws Exception {
+        EntityRepository entityRepository = mock(EntityRepository.class);
+        EntityRelationshipRepository relationshipRepository = mock(EntityRelationshipRepository.class);
+        when(entityRepository.findAll()).thenReturn(List.of(entity(10L, EntityType.EMS),
+                entity(20L, EntityType.EMS), entity(30L, EntityType.HOSPITAL)));
+        when(relationshipRepository.streamAllEdgeRows()).thenAnswer(invocation -> Stream.of(
+                row(10L, 30L, RelationshipType.TRANSPORT, PatientType.STROKE)));
+        RelationshipChangeRepository changeRepository = mock(RelationshipChangeRepository.class);
+        when(changeRepository.findLatestCommitSeq()).thenReturn(5L);
+        RelationshipGraphIndexService indexService = new RelationshipGraphIndexService(entityRepository,
+                relationshipRepository, changeRepository, mock(PlatformTransactionManager.class), true);
+        indexService.rebuild();
+        RelationshipGraph previous = indexService.getGraph();
+        // a logged change committed after the graph was loaded, whose event is not published yet
+        assertSame(previous, indexService.getGraphForSource(20L, 5));
+        assertNull(indexService.getGraphForSource(20L, 6));
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(relationshipRepository.streamAllEdgeRows()).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Stream.of(row(10L, 30L, RelationshipType.TRANSPORT, PatientType.STROKE),
+                    row(10L, 30L, RelationshipType.TRANSFER, PatientType.STROKE));
+        });
+        // the publishing thread returns while the graph is rebuilt
+        indexService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(List.of(10L), List.of(30L)));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // the changed entities fall back to the database, the others keep the previous graph
+        assertNull(indexService.getGraphForSource(10L, 0));
+        assertNull(indexService.getGraphForDestination(30L));
+        assertSame(previous, indexService.getGraphForSource(20L, 0));
+        assertSame(previous, indexService.getGraph());
+
+        // events published during a rebuild are coalesced into a single rebuild
+        indexService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(List.of(20L)));
+        indexService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(List.of(10L)));
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((indexService.getGraphForSource(10L, 0) == null || indexService.getGraphForSource(20L, 0) == null)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        RelationshipGraph rebuilt = indexService.getGraphForSource(10L, 0);
+        assertNotNull(rebuilt);
+        assertSame(rebuilt, indexService.getGraphForDestination(30L));
+        assertEquals(2, rebuilt.edgeCount());
+        verify(relationshipRepository, times(3)).streamAllEdgeRows();
+        indexService.destroy();
+    }
+}
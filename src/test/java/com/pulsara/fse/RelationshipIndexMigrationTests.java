@@ -0,0 +1,110 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Applies the schema migrations to an embedded H2 database in MySQL mode and
+ * checks that the relationship access patterns are planned on the composite
+ * indexes.
+ */
+public class RelationshipIndexMigrationTests {
+
+    private static final String URL = "jdbc:h2:mem:migrations;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Flyway.configure().dataSource(URL, "sa", "").locations("classpath:db/migration").load().migrate();
+        connection = DriverManager.getConnection(URL, "sa", "");
+
+        // Seed enough rows for the optimizer to prefer the selective indexes
+        try (PreparedStatement entity = connection.prepareStatement(
+                "INSERT INTO TBL_ENTITIES (id, name, entity_type) VALUES (?, ?, 'HOSPITAL')")) {
+            for (long id = 1; id <= 200; id++) {
+                entity.setLong(1, id);
+                entity.setString(2, "Entity " + id);
+                entity.addBatch();
+            }
+            entity.executeBatch();
+        }
+        try (PreparedStatement relationship = connection.prepareStatement(
+                "INSERT INTO TBL_ENTITY_RELATIONSHIPS (source_entity_id, destination_entity_id, relationship_type,"
+                        + " patient_type) VALUES (?, ?, ?, 'STROKE')")) {
+            for (long source = 1; source <= 200; source++) {
+                for (long destination = 1; destination <= 200; destination += 7) {
+                    relationship.setLong(1, source);
+                    relationship.setLong(2, destination);
+                    relationship.setString(3, destination % 2 == 0 ? "TRANSPORT" : "TRANSFER");
+                    relationship.addBatch();
+                }
+            }
+            relationship.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void testMigrationsAreApplied() throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(
+                        "SELECT COUNT(*) FROM \"flyway_schema_history\""
+                                + " WHERE \"version\" IS NOT NULL AND \"success\" = TRUE")) {
+            resultSet.next();
+            assertEquals(7, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    void testSourceAndRelationshipTypeLookupUsesSourceIndex() throws SQLException {
+        assertPlanUses("IDX_RELATIONSHIPS_SOURCE_TYPE_DESTINATION",
+                "SELECT * FROM TBL_ENTITY_RELATIONSHIPS er WHERE er.source_entity_id = 5"
+                        + " AND er.relationship_type IN ('TRANSPORT', 'TRANSFER')");
+    }
+
+    @Test
+    void testSourceDestinationAndRelationshipTypeLookupUsesSourceIndex() throws SQLException {
+        assertPlanUses("IDX_RELATIONSHIPS_SOURCE_TYPE_DESTINATION",
+                "SELECT * FROM TBL_ENTITY_RELATIONSHIPS er WHERE er.source_entity_id = 5"
+                        + " AND er.destination_entity_id = 8 AND er.relationship_type = 'TRANSPORT'");
+    }
+
+    @Test
+    void testDestinationAndRelationshipTypeLookupUsesReverseIndex() throws SQLException {
+        assertPlanUses("IDX_RELATIONSHIPS_DESTINATION_TYPE",
+                "SELECT * FROM TBL_ENTITY_RELATIONSHIPS er WHERE er.destination_entity_id = 8"
+                        + " AND er.relationship_type = 'TRANSPORT'");
+    }
+
+    private void assertPlanUses(String index, String query) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("EXPLAIN " + query)) {
+            resultSet.next();
+            String plan = resultSet.getString(1);
+            assertTrue(plan.toUpperCase().contains(index), plan);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.RelationshipSnapshot;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.dto.StampedRelationships;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.service.EntityRelationshipCacheService;
+import com.pulsara.fse.service.EntityRelationshipsChangedEvent;
+import com.pulsara.fse.service.EntityService;
+import com.pulsara.fse.service.RelationshipSnapshotService;
+
+public class RelationshipSnapshotServiceTests {
+
+    private EntityRelationshipCacheService cacheService;
+    private EntityService entityService;
+    private RelationshipSnapshotService snapshotService;
+    private EntityModel sourceEntity;
+
+    @BeforeEach
+    void setUp() {
+        cacheService = mock(EntityRelationshipCacheService.class);
+        entityService = mock(EntityService.class);
+        snapshotService = new RelationshipSnapshotService(cacheService, entityService, new ObjectMapper(), true,
+                DataSize.ofMegabytes(1));
+        sourceEntity = new EntityModel();
+        sourceEntity.setId(1L);
+        when(entityService.getEntityById(1L)).thenReturn(sourceEntity);
+        when(cacheService.getStampedRelationshipsBySourceEntity(eq(sourceEntity), eq(Set.of()), any()))
+                .thenReturn(new StampedRelationships("stamp.0.1",
+                        Map.<String, List<RelationshipSummary>>of("TRANSPORT", List.of())));
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotService.destroy();
+    }
+
+    @Test
+    void testSnapshotHoldsSerializedResponseAtItsVersionStamp() throws IOException {
+        // the snapshot is stamped with the stamp its relationships were read at
+        assertEquals("stamp.0.1", snapshotService.buildSnapshot(sourceEntity, Set.of(), null).versionStamp());
+
+        RelationshipSnapshot snapshot = snapshotService.getSnapshot(1L, Set.of(), "stamp.0.1");
+        assertNotNull(snapshot);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        snapshot.writeTo(outputStream);
+        assertEquals("{\"relationships\":{\"TRANSPORT\":[]}}", outputStream.toString());
+        assertNull(snapshotService.getSnapshot(1L, Set.of(), "stamp.0.2"));
+        assertNull(snapshotService.getSnapshot(1L, Set.of(RelationshipType.TRANSFER), "stamp.0.1"));
+    }
+
+    @Test
+    void testChangedSourceSnapshotIsRebuiltAtNewVersionStamp() throws InterruptedException {
+        snapshotService.buildSnapshot(sourceEntity, Set.of(), "stamp.0.1");
+        when(cacheService.getStampedRelationshipsBySourceEntity(eq(sourceEntity), eq(Set.of()), any()))
+                .thenReturn(new StampedRelationships("stamp.0.2", Map.of()));
+
+        snapshotService.onRelationshipsChanged(EntityRelationshipsChangedEvent.of(List.of(1L)));
+
+        for (int i = 0; i < 100 && snapshotService.getSnapshot(1L, Set.of(), "stamp.0.2") == null; i++) {
+            Thread.sleep(20);
+        }
+        assertNotNull(snapshotService.getSnapshot(1L, Set.of(), "stamp.0.2"));
+        assertNull(snapshotService.getSnapshot(1L, Set.of(), "stamp.0.1"));
+    }
+}
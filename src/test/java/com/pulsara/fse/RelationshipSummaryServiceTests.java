@@ -0,0 +1,217 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipSummaryModel;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.RelationshipChangeRepository;
+import com.pulsara.fse.repository.RelationshipSummaryRepository;
+import com.pulsara.fse.service.EntityRelationshipService;
+import com.pulsara.fse.service.EntityRelationshipsChangedEvent;
+import com.pulsara.fse.service.RelationshipMetrics;
+import com.pulsara.fse.service.RelationshipSummaryReconciler;
+import com.pulsara.fse.service.RelationshipSummaryService;
+import com.pulsara.fse.service.RequestCoalescer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Builds relationship summaries on an embedded H2 database in MySQL mode and
+ * checks that drift introduced with plain SQL is detected and repaired.
+ */
+public class RelationshipSummaryServiceTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private RelationshipSummaryService service;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:summaries;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.update("INSERT INTO TBL_ENTITIES (id, name, entity_type) VALUES (1, 'EMS 1', 'EMS'), "
+                + "(2, 'Hospital 2', 'HOSPITAL'), (3, 'Hospital 3', 'HOSPITAL')");
+        jdbcTemplate.update("INSERT INTO TBL_ENTITY_RELATIONSHIPS (source_entity_id, destination_entity_id, "
+                + "relationship_type, patient_type, contact_phone) VALUES (1, 2, 'TRANSPORT', 'STROKE', '555-0100'), "
+                + "(1, 2, 'TRANSPORT', 'STEMI', NULL), (1, 3, 'TRANSFER', NULL, NULL)");
+
+        // the summaries are read from the table like the JPA repository would
+        RelationshipSummaryRepository repository = mock(RelationshipSummaryRepository.class);
+        when(repository.findById(any())).thenAnswer(invocation -> jdbcTemplate.query(
+                "SELECT summary FROM TBL_RELATIONSHIP_SUMMARIES WHERE source_entity_id = ?",
+                (resultSet, row) -> {
+                    RelationshipSummaryModel summary = mock(RelationshipSummaryModel.class);
+                    when(summary.getSummary()).thenReturn(resultSet.getString(1));
+                    return summary;
+                }, (Long) invocation.getArgument(0)).stream().findFirst());
+        when(repository.findUpdatedAtBySourceEntityId(any())).thenAnswer(invocation -> jdbcTemplate.query(
+                "SELECT updated_at FROM TBL_RELATIONSHIP_SUMMARIES WHERE source_entity_id = ?",
+                (resultSet, row) -> resultSet.getTimestamp(1).toInstant(), (Long) invocation.getArgument(0))
+                .stream().findFirst());
+        service = new RelationshipSummaryService(repository, new NamedParameterJdbcTemplate(jdbcTemplate),
+                new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testRefreshGroupsRelationshipsByTypeAndDestination() {
+        service.refresh(List.of(1L));
+
+        Map<String, List<RelationshipSummary>> grouped = service.getGroupedRelationships(1L, null);
+        assertEquals(List.of("TRANSPORT", "TRANSFER"), List.copyOf(grouped.keySet()));
+        RelationshipSummary transport = grouped.get("TRANSPORT").get(0);
+        assertEquals("EMS 1", transport.source().name());
+        assertEquals(EntityType.HOSPITAL, transport.destination().type());
+        assertEquals(List.of(PatientType.STROKE, PatientType.STEMI),
+                transport.patientTypes().stream().map(patient -> patient.getPatientType()).toList());
+        assertEquals("555-0100", transport.patientTypes().get(0).getContactPhone());
+        // a relationship without patient columns has no patient, as when loaded through JPA
+        assertNull(grouped.get("TRANSFER").get(0).patientTypes().get(0));
+
+        assertEquals(Set.of("TRANSFER"), service.getGroupedRelationships(1L, Set.of(RelationshipType.TRANSFER))
+                .keySet());
+        assertNull(service.getGroupedRelationships(2L, null));
+        assertTrue(drifted().isEmpty());
+    }
+
+    @Test
+    void testReconcilerRepairsDrift() {
+        service.refresh(List.of(1L));
+        // a relationship written without refreshing its summary, a source entity without
+        // a summary and a summary left over from deleted relationships
+        jdbcTemplate.update("INSERT INTO TBL_ENTITY_RELATIONSHIPS (source_entity_id, destination_entity_id, "
+                + "relationship_type) VALUES (1, 3, 'MUTUAL_AID'), (3, 2, 'TRANSFER')");
+        jdbcTemplate.update("INSERT INTO TBL_RELATIONSHIP_SUMMARIES (source_entity_id, relationship_count, "
+                + "max_relationship_id, version_sum, summary) VALUES (2, 1, 99, 0, '{}')");
+        assertEquals(Set.of(1L, 2L, 3L), Set.copyOf(drifted()));
+
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RelationshipSummaryReconciler reconciler = new RelationshipSummaryReconciler(service, transactionManager,
+                eventPublisher, new RelationshipMetrics(ObservationRegistry.NOOP, meterRegistry), Duration.ZERO, 2, 2);
+
+        assertEquals(3, reconciler.reconcile());
+        assertTrue(drifted().isEmpty());
+        assertTrue(service.getGroupedRelationships(1L, null).containsKey("MUTUAL_AID"));
+        assertEquals(1, service.getGroupedRelationships(3L, null).get("TRANSFER").size());
+        assertNull(service.getGroupedRelationships(2L, null));
+        verify(eventPublisher).publishEvent(any(EntityRelationshipsChangedEvent.class));
+        assertEquals(0, reconciler.reconcile());
+        assertEquals(3, meterRegistry.counter(RelationshipMetrics.SUMMARIES_REPAIRED).count());
+    }
+
+    @Test
+    void testEntityRenamesAreDrift() {
+        service.refresh(List.of(1L));
+        assertTrue(drifted().isEmpty());
+
+        // a destination renamed through JPA bumps its version, one renamed with plain SQL
+        // at least its modification time
+        jdbcTemplate.update("UPDATE TBL_ENTITIES SET name = 'Hospital Two', version = version + 1 WHERE id = 2");
+        assertEquals(List.of(1L), drifted());
+        service.refresh(List.of(1L));
+        assertTrue(drifted().isEmpty());
+        assertEquals("Hospital Two", service.getGroupedRelationships(1L, null).get("TRANSPORT").get(0)
+                .destination().name());
+
+        jdbcTemplate.update("UPDATE TBL_ENTITIES SET name = 'Hospital Three', "
+                + "updated_at = DATEADD(SECOND, 1, updated_at) WHERE id = 3");
+        assertEquals(List.of(1L), drifted());
+        service.refresh(List.of(1L));
+        assertTrue(drifted().isEmpty());
+    }
+
+    @Test
+    void testVersionStampIsReadFromDatabase() throws InterruptedException {
+        // the change log is read from the table like the JPA repository would
+        RelationshipChangeRepository changeRepository = mock(RelationshipChangeRepository.class);
+        when(changeRepository.findLatestCommitSeqBySourceEntityId(anyLong())).thenAnswer(invocation -> jdbcTemplate
+                .queryForObject("SELECT COALESCE(MAX(commit_seq), 0) FROM TBL_RELATIONSHIP_CHANGES "
+                        + "WHERE source_entity_id = ?", Long.class, (Long) invocation.getArgument(0)));
+        EntityRelationshipService relationshipService = relationshipService(changeRepository);
+        EntityModel sourceEntity = new EntityModel();
+        sourceEntity.setId(1L);
+        service.refresh(List.of(1L));
+        String first = relationshipService.getSourceVersionStamp(1L);
+        String other = relationshipService.getSourceVersionStamp(3L);
+
+        // another instance, or this one after a restart, derives the same stamps
+        assertEquals(first, relationshipService(changeRepository).getSourceVersionStamp(1L));
+        assertEquals(first, relationshipService.getStampedRelationshipsBySourceEntity(sourceEntity).versionStamp());
+
+        Thread.sleep(2);
+        service.refresh(List.of(1L));
+        String refreshed = relationshipService.getSourceVersionStamp(1L);
+        assertNotEquals(first, refreshed);
+        jdbcTemplate.update("INSERT INTO TBL_RELATIONSHIP_CHANGES (relationship_id, operation, version, "
+                + "source_entity_id, commit_seq) VALUES (1, 'UPDATE', 1, 1, 7)");
+        assertNotEquals(refreshed, relationshipService.getSourceVersionStamp(1L));
+        assertEquals(other, relationshipService.getSourceVersionStamp(3L));
+    }
+
+    @Test
+    void testBySourceLookupIsServedFromSummary() {
+        service.refresh(List.of(1L));
+        EntityRelationshipRepository repository = mock(EntityRelationshipRepository.class);
+        EntityRelationshipService relationshipService = new EntityRelationshipService(repository, null,
+                RelationshipMetrics.noop(), RequestCoalescer.unmetered(), null, service, null);
+        EntityModel sourceEntity = new EntityModel();
+        sourceEntity.setId(1L);
+
+        Map<String, List<RelationshipSummary>> grouped = relationshipService
+                .getGroupedRelationshipsBySourceEntity(sourceEntity, Set.of(RelationshipType.TRANSPORT));
+
+        assertEquals(2, grouped.get("TRANSPORT").get(0).patientTypes().size());
+        verifyNoInteractions(repository);
+
+        // source entities without a summary are queried
+        sourceEntity.setId(2L);
+        when(repository.findWithDestinationBySourceEntity(sourceEntity)).thenReturn(List.of());
+        relationshipService.getGroupedRelationshipsBySourceEntity(sourceEntity, null);
+        verify(repository).findWithDestinationBySourceEntity(sourceEntity);
+    }
+
+    private EntityRelationshipService relationshipService(RelationshipChangeRepository changeRepository) {
+        return new EntityRelationshipService(mock(EntityRelationshipRepository.class), null,
+                RelationshipMetrics.noop(), RequestCoalescer.unmetered(), transactionManager, service,
+                changeRepository);
+    }
+
+    private List<Long> drifted() {
+        return service.findDriftedSourceEntityIds(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+}
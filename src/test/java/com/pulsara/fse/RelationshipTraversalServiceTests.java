@@ -0,0 +1,102 @@
+package com.pulsara.fse;
+
+import static com.pulsara.fse.RelationshipGraphFixtures.entity;
+import static com.pulsara.fse.RelationshipGraphFixtures.graph;
+import static com.pulsara.fse.RelationshipGraphFixtures.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Random;
+
+import com.pulsara.fse.graph.HopFilter;
+import com.pulsara.fse.graph.ReachableEntity;
+import com.pulsara.fse.graph.RelationshipGraph;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.service.RelationshipGraphIndexService;
+import com.pulsara.fse.service.RelationshipTraversalService;
+import org.junit.jupiter.api.Test;
+
+public class RelationshipTraversalServiceTests {
+
+    private final RelationshipTraversalService service = new RelationshipTraversalService(
+            mock(RelationshipGraphIndexService.class));
+
+    @Test
+    void testTransportThenTransferAcceptingStroke() {
+        // 1 (EMS) -TRANSPORT-> 2 (HOSPITAL) -TRANSFER-> 3 (HOSPITAL, STROKE) and 4 (HOSPITAL, STEMI)
+        RelationshipGraph graph = graph(List.of(entity(1L, EntityType.EMS), entity(2L, EntityType.HOSPITAL),
+                entity(3L, EntityType.HOSPITAL), entity(4L, EntityType.HOSPITAL)),
+                row(1L, 2L, RelationshipType.TRANSPORT, PatientType.STROKE),
+                row(2L, 3L, RelationshipType.TRANSFER, PatientType.STROKE),
+                row(2L, 4L, RelationshipType.TRANSFER, PatientType.STEMI),
+                row(1L, 4L, RelationshipType.MUTUAL_AID, PatientType.STROKE));
+
+        List<ReachableEntity> reachable = service.findReachableEntities(graph, 1L,
+                List.of(HopFilter.parse("TRANSPORT:STROKE"), HopFilter.parse("TRANSFER:STROKE")),
+                EntityType.HOSPITAL);
+
+        // 2 is only passed through, 4 is not reached by TRANSFER for STROKE
+        assertEquals(List.of(3L), reachable.stream().map(ReachableEntity::id).toList());
+        assertEquals(List.of(1L, 2L, 3L), reachable.get(0).path());
+        assertEquals(2, reachable.get(0).hops());
+    }
+
+    @Test
+    void testEntityReachedEarlierIsExpandedUnderLaterHop() {
+        // 1 -TRANSPORT-> 3 and 2, 2 -TRANSFER-> 3, 3 -TRANSFER-> 4: 3 is reached by the
+        // first hop and again by the second hop, from 2
+        RelationshipGraph graph = graph(List.of(entity(1L, EntityType.EMS), entity(2L, EntityType.HOSPITAL),
+                entity(3L, EntityType.HOSPITAL), entity(4L, EntityType.HOSPITAL)),
+                row(1L, 3L, RelationshipType.TRANSPORT, PatientType.STROKE),
+                row(1L, 2L, RelationshipType.TRANSPORT, PatientType.STROKE),
+                row(2L, 3L, RelationshipType.TRANSFER, PatientType.STROKE),
+                row(3L, 4L, RelationshipType.TRANSFER, PatientType.STROKE));
+
+        List<ReachableEntity> reachable = service.findReachableEntities(graph, 1L,
+                List.of(HopFilter.parse("TRANSPORT"), HopFilter.parse("TRANSFER"), HopFilter.parse("TRANSFER")),
+                null);
+
+        // 4 is two hops away, but only the path through 2 and 3 takes TRANSPORT, TRANSFER, TRANSFER
+        assertEquals(1, reachable.size());
+        assertEquals(4L, reachable.get(0).id());
+        assertEquals(3, reachable.get(0).hops());
+        assertEquals(List.of(1L, 2L, 3L, 4L), reachable.get(0).path());
+        assertEquals(List.of(), service.findReachableEntities(graph, 1L,
+                List.of(HopFilter.parse("TRANSFER"), HopFilter.parse("TRANSFER")), null));
+    }
+
+    @Test
+    void testTraversalOfLargeGraph() {
+        // 20k entities with 6 edges each, 120k edges in total
+        int entityCount = 20_000;
+        Random random = new Random(42);
+        RelationshipGraph.Builder builder = new RelationshipGraph.Builder();
+        for (long id = 1; id <= entityCount; id++) {
+            builder.addEntity(entity(id, id % 10 == 0 ? EntityType.EMS : EntityType.HOSPITAL));
+        }
+        RelationshipType[] relationshipTypes = RelationshipType.values();
+        PatientType[] patientTypes = PatientType.values();
+        for (long id = 1; id <= entityCount; id++) {
+            for (int edge = 0; edge < 6; edge++) {
+                builder.addRow(row(id, 1L + random.nextInt(entityCount),
+                        relationshipTypes[random.nextInt(relationshipTypes.length)],
+                        patientTypes[random.nextInt(patientTypes.length)]));
+            }
+        }
+        RelationshipGraph graph = builder.build();
+
+        List<ReachableEntity> reachable = service.findReachableEntities(graph, 10L,
+                List.of(HopFilter.parse("TRANSPORT|TRANSFER"), HopFilter.parse("TRANSFER:STROKE"),
+                        HopFilter.parse("TRANSFER|MUTUAL_AID:STROKE|STEMI")),
+                null);
+
+        for (ReachableEntity entity : reachable) {
+            assertEquals(3, entity.hops());
+            assertEquals(entity.hops() + 1, entity.path().size());
+            assertEquals(10L, entity.path().get(0));
+        }
+    }
+}
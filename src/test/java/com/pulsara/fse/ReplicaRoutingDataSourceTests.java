@@ -0,0 +1,138 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pulsara.fse.config.ReplicaLagMonitor;
+import com.pulsara.fse.config.ReplicaRoutingDataSource;
+
+/**
+ * Routes transactions across two embedded H2 databases standing in for a
+ * primary and its read replica. Replication of the heartbeat is simulated by
+ * copying it from one database to the other.
+ */
+public class ReplicaRoutingDataSourceTests {
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private boolean replicaDown;
+    private ReplicaLagMonitor monitor;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDataSource = database("primary");
+        DataSource replicaDataSource = new DelegatingDataSource(database("replica")) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (replicaDown) {
+                    throw new SQLException("Connection refused");
+                }
+                return super.getConnection();
+            }
+        };
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+
+        monitor = new ReplicaLagMonitor(primaryDataSource, replicaDataSource, Duration.ofSeconds(5),
+                Duration.ofSeconds(1));
+        DataSource dataSource = ReplicaRoutingDataSource.create(primaryDataSource, replicaDataSource, monitor);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicaDown = false;
+        primary.execute("DROP ALL OBJECTS");
+        replica.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplicaInSync() {
+        assertEquals("primary", readDatabaseName(readOnlyTransaction));
+
+        replicateHeartbeat();
+
+        assertEquals("replica", readDatabaseName(readOnlyTransaction));
+        assertEquals("primary", readDatabaseName(readWriteTransaction));
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        replicateHeartbeat();
+        replica.update("UPDATE TBL_REPLICATION_HEARTBEAT SET beat_millis = ?", System.currentTimeMillis() - 10_000);
+        monitor.check();
+
+        assertEquals("primary", readDatabaseName(readOnlyTransaction));
+    }
+
+    @Test
+    void testReadsStayOnPrimaryUntilReplicaReplaysWrite() throws InterruptedException {
+        replicateHeartbeat();
+        Thread.sleep(2);
+        monitor.recordPrimaryWrite();
+
+        assertEquals("primary", readDatabaseName(readOnlyTransaction));
+
+        Thread.sleep(2);
+        replicateHeartbeat();
+        assertEquals("replica", readDatabaseName(readOnlyTransaction));
+    }
+
+    @Test
+    void testUnavailableReplicaFallsBackToPrimary() {
+        replicateHeartbeat();
+        replicaDown = true;
+
+        assertEquals("primary", readDatabaseName(readOnlyTransaction));
+        assertFalse(monitor.isReplicaUsable());
+    }
+
+    private String readDatabaseName(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT name FROM TBL_ENTITIES WHERE id = 1", String.class));
+    }
+
+    /**
+     * Writes a heartbeat to the primary, copies it to the replica and checks the
+     * replica again.
+     */
+    private void replicateHeartbeat() {
+        monitor.check();
+        replica.update("UPDATE TBL_REPLICATION_HEARTBEAT SET beat_millis = ?", primary.queryForObject(
+                "SELECT beat_millis FROM TBL_REPLICATION_HEARTBEAT WHERE id = 1", Long.class));
+        monitor.check();
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        new JdbcTemplate(dataSource).update(
+                "INSERT INTO TBL_ENTITIES (id, name, entity_type) VALUES (1, ?, 'HOSPITAL')", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,180 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.pulsara.fse.dto.KeysetPage;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.exceptions.FSEServiceException;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.RelationshipType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.service.EntityRelationshipService;
+import com.pulsara.fse.service.RelationshipMetrics;
+import com.pulsara.fse.service.RequestCoalescer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RequestCoalescerTests {
+
+    private static final int CALLERS = 8;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(meterRegistry);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentIdenticalCallsShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<Future<Object>> results = callConcurrently(List.of(1L, Set.of()), () -> {
+            loads.incrementAndGet();
+            await(release);
+            return new Object();
+        });
+        release.countDown();
+
+        Object first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<Object> result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, count(RequestCoalescer.LEADER));
+        assertEquals(CALLERS - 1, count(RequestCoalescer.COALESCED));
+        assertEquals(0.0, meterRegistry.get(RequestCoalescer.IN_FLIGHT).gauge().value());
+
+        // a call after the load completed loads again
+        coalescer.execute("test", List.of(1L, Set.of()), Object::new);
+        assertEquals(2, count(RequestCoalescer.LEADER));
+    }
+
+    @Test
+    void testFailureIsSharedWithWaitingCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> results = callConcurrently("key", () -> {
+            await(release);
+            throw new FSEServiceException("Unable to retrieve relationships", HttpStatus.INTERNAL_SERVER_ERROR);
+        });
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertEquals(FSEServiceException.class, e.getCause().getClass());
+        }
+        assertEquals(1, count(RequestCoalescer.LEADER));
+    }
+
+    @Test
+    void testConcurrentPageLookupsRunOneQuery() throws Exception {
+        EntityRelationshipRepository repository = mock(EntityRelationshipRepository.class);
+        EntityRelationshipService service = new EntityRelationshipService(repository, null,
+                RelationshipMetrics.noop(), coalescer, null, null, null);
+        EntityModel sourceEntity = new EntityModel();
+        sourceEntity.setId(1L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findProjectedPageBySourceEntityId(eq(1L), any(), isNull(), eq(11), eq(true), eq(true)))
+                .thenAnswer(invocation -> {
+                    await(release);
+                    return List.of();
+                });
+
+        List<Future<KeysetPage<Map<String, List<RelationshipSummary>>>>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            // null and empty relationship types are the same lookup
+            Set<RelationshipType> relationshipTypes = i % 2 == 0 ? null : Set.of();
+            results.add(executor.submit(() -> service.getRelationshipPageBySourceEntity(sourceEntity,
+                    relationshipTypes, null, 10, null)));
+        }
+        awaitWaiters(RelationshipMetrics.BY_SOURCE_PAGE);
+        release.countDown();
+        for (Future<KeysetPage<Map<String, List<RelationshipSummary>>>> result : results) {
+            assertEquals(Map.of(), result.get(5, TimeUnit.SECONDS).content());
+        }
+
+        verify(repository, times(1)).findProjectedPageBySourceEntityId(eq(1L), any(), isNull(), eq(11), eq(true),
+                eq(true));
+    }
+
+    @Test
+    void testCachedLookupsAreNotCoalesced() {
+        EntityRelationshipRepository repository = mock(EntityRelationshipRepository.class);
+        EntityRelationshipService service = new EntityRelationshipService(repository, null,
+                RelationshipMetrics.noop(), coalescer, null, null, null);
+        EntityModel entity = new EntityModel();
+        entity.setId(1L);
+
+        service.getGroupedRelationshipsBySourceEntity(entity, null);
+        service.getGroupedRelationshipsByDestinationEntity(entity, null);
+
+        // the relationship caches share their loads, so a second single flight is not needed
+        assertEquals(0, count(RelationshipMetrics.BY_SOURCE, RequestCoalescer.LEADER));
+        assertEquals(0, count(RelationshipMetrics.BY_DESTINATION, RequestCoalescer.LEADER));
+    }
+
+    private List<Future<Object>> callConcurrently(Object key, Supplier<Object> load) throws InterruptedException {
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.execute("test", key, load)));
+        }
+        awaitWaiters("test");
+        return results;
+    }
+
+    private void awaitWaiters(String operation) throws InterruptedException {
+        // every caller is counted before it joins the load in flight
+        for (int i = 0; i < 250 && count(operation, RequestCoalescer.LEADER)
+                + count(operation, RequestCoalescer.COALESCED) < CALLERS; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private long count(String result) {
+        return count("test", result);
+    }
+
+    private long count(String operation, String result) {
+        var counter = meterRegistry.find(RequestCoalescer.REQUESTS)
+                .tags("operation", operation, "result", result).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.OrderUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.pulsara.fse.config.ReplicaLagMonitor;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityRelationshipModel;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.repository.EntityRelationshipRepositoryImpl;
+import com.pulsara.fse.service.EntityRelationshipCacheService;
+import com.pulsara.fse.service.EntityRelationshipsChangedEvent;
+import com.pulsara.fse.service.RelationshipGraphIndexService;
+import com.pulsara.fse.service.RelationshipSnapshotService;
+import com.pulsara.fse.service.SecondLevelCacheService;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Runs the second-level and query cache configuration of application.properties
+ * against an embedded H2 database, checking the cache statistics.
+ */
+public class SecondLevelCacheTests {
+
+    private static final String INSERT_RELATIONSHIP = "INSERT INTO TBL_ENTITY_RELATIONSHIPS "
+            + "(source_entity_id, destination_entity_id, relationship_type, patient_type) VALUES (1, ?, 'TRANSPORT', 'STROKE')";
+
+    private JdbcTemplate jdbcTemplate;
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:second-level-cache;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO TBL_ENTITIES (id, name, entity_type) VALUES (1, 'EMS 1', 'EMS'), "
+                + "(2, 'Hospital 2', 'HOSPITAL'), (3, 'Hospital 3', 'HOSPITAL')");
+        jdbcTemplate.update(INSERT_RELATIONSHIP, 2);
+
+        Properties applicationProperties = PropertiesLoaderUtils
+                .loadProperties(new ClassPathResource("application.properties"));
+        Map<String, Object> jpaProperties = new HashMap<>();
+        applicationProperties.stringPropertyNames().stream()
+                .filter(name -> name.startsWith("spring.jpa.properties."))
+                .forEach(name -> jpaProperties.put(name.substring("spring.jpa.properties.".length()),
+                        applicationProperties.getProperty(name)));
+        jpaProperties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.pulsara.fse.models");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testEntityIsServedFromSecondLevelCache() {
+        inEntityManager(entityManager -> entityManager.find(EntityModel.class, 1L));
+        statistics.clear();
+
+        EntityModel entity = inEntityManager(entityManager -> entityManager.find(EntityModel.class, 1L));
+
+        assertEquals("EMS 1", entity.getName());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFinderQueryIsServedFromQueryCache() {
+        findRelationshipsOfSource();
+        statistics.clear();
+
+        List<EntityRelationshipModel> relationships = findRelationshipsOfSource();
+
+        assertEquals(1, relationships.size());
+        assertEquals("Hospital 2", relationships.get(0).getDestinationEntity().getName());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(0, statistics.getQueryCacheMissCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testRelationshipChangeEvictsCachedQueryResults() {
+        findRelationshipsOfSource();
+        // written with JDBC like bulk imports, so Hibernate does not see it and the
+        // cached result hides the committed row until the import is announced
+        jdbcTemplate.update(INSERT_RELATIONSHIP, 3);
+        assertEquals(1, findRelationshipsOfSource().size());
+
+        new SecondLevelCacheService(entityManagerFactory)
+                .onRelationshipsChanged(EntityRelationshipsChangedEvent.of(List.of(1L)));
+        statistics.clear();
+
+        assertEquals(2, findRelationshipsOfSource().size());
+        assertEquals(0, statistics.getQueryCacheHitCount());
+        assertEquals(1, statistics.getQueryCacheMissCount());
+    }
+
+    @Test
+    void testEvictionRunsBeforeGraphIndexAndRelationshipCaches() throws NoSuchMethodException {
+        int replicaRouting = listenerOrder(ReplicaLagMonitor.class);
+        int secondLevelCache = listenerOrder(SecondLevelCacheService.class);
+        int graphIndex = listenerOrder(RelationshipGraphIndexService.class);
+
+        assertTrue(replicaRouting < secondLevelCache);
+        assertTrue(secondLevelCache < graphIndex);
+        assertTrue(graphIndex < listenerOrder(EntityRelationshipCacheService.class));
+        assertTrue(graphIndex < listenerOrder(RelationshipSnapshotService.class));
+    }
+
+    private static int listenerOrder(Class<?> listener) throws NoSuchMethodException {
+        Integer order = OrderUtils.getOrder(
+                listener.getMethod("onRelationshipsChanged", EntityRelationshipsChangedEvent.class));
+        return order == null ? Ordered.LOWEST_PRECEDENCE : order;
+    }
+
+    private List<EntityRelationshipModel> findRelationshipsOfSource() {
+        return inEntityManager(entityManager -> {
+            EntityRelationshipRepository repository = new JpaRepositoryFactory(entityManager).getRepository(
+                    EntityRelationshipRepository.class,
+                    RepositoryFragments.just(new EntityRelationshipRepositoryImpl()));
+            return repository.findWithDestinationBySourceEntity(entityManager.find(EntityModel.class, 1L));
+        });
+    }
+
+    private <T> T inEntityManager(Function<EntityManager, T> work) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return work.apply(entityManager);
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.pulsara.fse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pulsara.fse.config.CacheConfiguration;
+import com.pulsara.fse.dto.EntitySummary;
+import com.pulsara.fse.dto.RelationshipSummary;
+import com.pulsara.fse.models.EntityModel;
+import com.pulsara.fse.models.EntityType;
+import com.pulsara.fse.models.Patient;
+import com.pulsara.fse.models.PatientType;
+import com.pulsara.fse.repository.EntityRelationshipRepository;
+import com.pulsara.fse.service.EntityRelationshipCacheService;
+import com.pulsara.fse.service.EntityService;
+import com.pulsara.fse.service.RelationshipSnapshotService;
+import com.pulsara.fse.service.StartupWarmupRunner;
+
+public class StartupWarmupRunnerTests {
+
+    private DataSource dataSource;
+    private Connection connection;
+    private EntityService entityService;
+    private EntityRelationshipRepository repository;
+    private EntityRelationshipCacheService cacheService;
+    private RelationshipSnapshotService snapshotService;
+    private CacheManager cacheManager;
+    private int streamedEntities;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        entityService = mock(EntityService.class);
+        repository = mock(EntityRelationshipRepository.class);
+        cacheService = mock(EntityRelationshipCacheService.class);
+        snapshotService = mock(RelationshipSnapshotService.class);
+        cacheManager = new ConcurrentMapCacheManager(CacheConfiguration.ENTITIES);
+
+        // entities 1, 2 and 3, each the source of two relationships
+        doAnswer(invocation -> {
+            Predicate<EntityModel> consumer = invocation.getArgument(0);
+            for (long id = 1; id <= 3; id++) {
+                streamedEntities++;
+                if (!consumer.test(entity(id))) {
+                    break;
+                }
+            }
+            return null;
+        }).when(entityService).streamEntitiesWhile(any());
+        when(repository.findSourceEntityIdsByRelationshipCount(any())).thenReturn(List.of(1L, 2L, 3L));
+        when(entityService.getEntityById(any())).thenAnswer(invocation -> entity(invocation.getArgument(0)));
+        when(cacheService.getGroupedRelationshipsBySourceEntity(any(), any())).thenAnswer(invocation -> {
+            EntitySummary source = EntitySummary.of(invocation.getArgument(0));
+            EntitySummary destination = new EntitySummary(9L, "Hospital 9", EntityType.HOSPITAL);
+            return Map.of("TRANSPORT", List.of(new RelationshipSummary(source, destination,
+                    List.of(patient(PatientType.STROKE), patient(PatientType.STEMI)))));
+        });
+    }
+
+    @Test
+    void testWarmupFillsCachesAndOpensConnections() throws Exception {
+        runner(true, Duration.ofSeconds(30), 1000, 10).run(null);
+
+        verify(dataSource, times(4)).getConnection();
+        verify(connection, times(4)).close();
+        for (long id = 1; id <= 3; id++) {
+            assertNotNull(cacheManager.getCache(CacheConfiguration.ENTITIES).get(id));
+            verify(cacheService, atLeastOnce()).getGroupedRelationshipsBySourceEntity(sourceEntity(id), isNull());
+        }
+        // the cached responses are then served, filtered or not, ten times in all
+        verify(cacheService, times(3 + 10)).getGroupedRelationshipsBySourceEntity(any(), any());
+        verify(snapshotService, never()).buildSnapshot(any(), any(), any());
+    }
+
+    @Test
+    void testWarmupStopsLoadingAtRowBudget() throws Exception {
+        // 3 entities and the 2 relationships of the first source entity
+        runner(true, Duration.ofSeconds(30), 5, 0).run(null);
+
+        verify(cacheService, times(1)).getGroupedRelationshipsBySourceEntity(any(), any());
+        verify(cacheService).getGroupedRelationshipsBySourceEntity(sourceEntity(1L), isNull());
+    }
+
+    @Test
+    void testWarmupStopsStreamingEntitiesAtRowBudget() throws Exception {
+        runner(true, Duration.ofSeconds(30), 2, 0).run(null);
+
+        // the stream is closed after the second entity instead of reading the third
+        assertEquals(2, streamedEntities);
+        assertNotNull(cacheManager.getCache(CacheConfiguration.ENTITIES).get(2L));
+        assertNull(cacheManager.getCache(CacheConfiguration.ENTITIES).get(3L));
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void testWarmupStopsAtTimeBudget() throws Exception {
+        runner(true, Duration.ZERO, 1000, 10).run(null);
+
+        verify(entityService, never()).streamEntitiesWhile(any());
+        verifyNoInteractions(cacheService);
+        assertNull(cacheManager.getCache(CacheConfiguration.ENTITIES).get(1L));
+    }
+
+    @Test
+    void testDisabledWarmupDoesNothing() throws Exception {
+        runner(false, Duration.ofSeconds(30), 1000, 10).run(null);
+
+        verifyNoInteractions(dataSource, entityService, repository, cacheService);
+    }
+
+    private StartupWarmupRunner runner(boolean enabled, Duration timeBudget, long maxRows, int jitIterations) {
+        return new StartupWarmupRunner(dataSource, entityService, repository, cacheService, snapshotService,
+                cacheManager, new ObjectMapper(), enabled, timeBudget, maxRows, 100, 4, jitIterations);
+    }
+
+    private static EntityModel sourceEntity(Long id) {
+        return argThat(entity -> entity != null && id.equals(entity.getId()));
+    }
+
+    private static EntityModel entity(Long id) {
+        EntityModel entity = new EntityModel();
+        entity.setId(id);
+        entity.setName("EMS " + id);
+        entity.setEntityType(EntityType.EMS);
+        return entity;
+    }
+
+    private static Patient patient(PatientType patientType) {
+        Patient patient = new Patient();
+        patient.setPatientType(patientType);
+        return patient;
+    }
+}